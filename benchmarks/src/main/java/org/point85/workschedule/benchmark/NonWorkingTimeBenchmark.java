@@ -0,0 +1,91 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package org.point85.workschedule.benchmark;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.point85.workschedule.WorkSchedule;
+
+/**
+ * Benchmark of
+ * {@link WorkSchedule#calculateNonWorkingTime(LocalDateTime, LocalDateTime)}
+ * and {@link WorkSchedule#calculateWorkingTime(LocalDateTime, LocalDateTime)}
+ * over one year of a DNO schedule with 10 to 10,000 non-working periods, one
+ * per day.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NonWorkingTimeBenchmark {
+	@Param({ "10", "100", "1000", "10000" })
+	public int periods;
+
+	private WorkSchedule schedule;
+	private LocalDateTime from;
+	private LocalDateTime to;
+
+	@Setup
+	public void setUp() throws Exception {
+		schedule = Scenarios.createDNO();
+
+		LocalDateTime start = LocalDateTime.of(WorkingTimeBenchmark.FIRST_DAY, LocalTime.of(10, 0, 0));
+
+		for (int i = 0; i < periods; i++) {
+			schedule.createNonWorkingPeriod("Period " + i, "Downtime", start.plusDays(i), Duration.ofHours(4));
+		}
+
+		// a year in the middle of the periods
+		from = start.plusDays(periods / 2).minusDays(182);
+		to = from.plusDays(365);
+	}
+
+	@Benchmark
+	public Duration calculateNonWorkingTime() throws Exception {
+		return schedule.calculateNonWorkingTime(from, to);
+	}
+
+	@Benchmark
+	public Duration calculateWorkingTime() throws Exception {
+		return schedule.calculateWorkingTime(from, to);
+	}
+}
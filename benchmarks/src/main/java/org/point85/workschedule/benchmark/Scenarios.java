@@ -0,0 +1,221 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package org.point85.workschedule.benchmark;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import org.point85.workschedule.Rotation;
+import org.point85.workschedule.Shift;
+import org.point85.workschedule.WorkSchedule;
+
+/**
+ * Class Scenarios builds the work schedules of the library's scenario tests
+ * (TestSnapSchedule) for benchmarking.
+ */
+public final class Scenarios {
+	// scenario names for the benchmark parameters
+	public static final String DNO = "DNO";
+	public static final String DUPONT = "DuPont";
+	public static final String TEAM_FIXED_21 = "21TeamFixed";
+	public static final String PANAMA = "Panama";
+	public static final String ICU_INTERNS = "ICUInterns";
+
+	// reference date for start of shift rotations
+	public static final LocalDate REFERENCE_DATE = LocalDate.of(2016, 10, 31);
+
+	private Scenarios() {
+	}
+
+	/**
+	 * Create the work schedule for the named scenario
+	 * 
+	 * @param name Scenario name
+	 * @return {@link WorkSchedule}
+	 * @throws Exception exception
+	 */
+	public static WorkSchedule create(String name) throws Exception {
+		switch (name) {
+		case DNO:
+			return createDNO();
+		case DUPONT:
+			return createDuPont();
+		case TEAM_FIXED_21:
+			return create21TeamFixed();
+		case PANAMA:
+			return createPanama();
+		case ICU_INTERNS:
+			return createICUInterns();
+		default:
+			throw new IllegalArgumentException(name);
+		}
+	}
+
+	/**
+	 * Three teams and two 12-hr shifts with a 3-day rotation
+	 * 
+	 * @return {@link WorkSchedule}
+	 * @throws Exception exception
+	 */
+	public static WorkSchedule createDNO() throws Exception {
+		WorkSchedule schedule = new WorkSchedule("DNO Plan", "Day, night, off");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+
+		Rotation rotation = schedule.createRotation("DNO", "DNO");
+		rotation.addSegment(day, 1, 0);
+		rotation.addSegment(night, 1, 1);
+
+		schedule.createTeam("Team 1", "First team", rotation, REFERENCE_DATE);
+		schedule.createTeam("Team 2", "Second team", rotation, REFERENCE_DATE.minusDays(1));
+		schedule.createTeam("Team 3", "Third team", rotation, REFERENCE_DATE.minusDays(2));
+
+		return schedule;
+	}
+
+	/**
+	 * Four teams and two 12-hr shifts with a 4-week rotation
+	 * 
+	 * @return {@link WorkSchedule}
+	 * @throws Exception exception
+	 */
+	public static WorkSchedule createDuPont() throws Exception {
+		WorkSchedule schedule = new WorkSchedule("DuPont Shift Schedule", "DuPont 12-hour rotating shift schedule");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+
+		Rotation rotation = schedule.createRotation("DuPont", "DuPont");
+		rotation.addSegment(night, 4, 3);
+		rotation.addSegment(day, 3, 1);
+		rotation.addSegment(night, 3, 3);
+		rotation.addSegment(day, 4, 7);
+
+		schedule.createTeam("Team 1", "First team", rotation, REFERENCE_DATE);
+		schedule.createTeam("Team 2", "Second team", rotation, REFERENCE_DATE.minusDays(7));
+		schedule.createTeam("Team 3", "Third team", rotation, REFERENCE_DATE.minusDays(14));
+		schedule.createTeam("Team 4", "Forth team", rotation, REFERENCE_DATE.minusDays(21));
+
+		return schedule;
+	}
+
+	/**
+	 * 21 teams and three 8-hr shifts with a fixed 7-week rotation
+	 * 
+	 * @return {@link WorkSchedule}
+	 * @throws Exception exception
+	 */
+	public static WorkSchedule create21TeamFixed() throws Exception {
+		WorkSchedule schedule = new WorkSchedule("21 Team Fixed 8 6D Plan", "21 teams and three 8-hr shifts");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+		Shift swing = schedule.createShift("Swing", "Swing shift", LocalTime.of(15, 0, 0), Duration.ofHours(8));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(23, 0, 0), Duration.ofHours(8));
+
+		Shift[] shifts = { day, swing, night };
+		String[] names = { "Day", "Swing", "Night" };
+		int team = 1;
+
+		for (int i = 0; i < shifts.length; i++) {
+			Rotation rotation = schedule.createRotation(names[i], names[i]);
+			rotation.addSegment(shifts[i], 6, 3);
+			rotation.addSegment(shifts[i], 5, 3);
+			rotation.addSegment(shifts[i], 6, 2);
+			rotation.addSegment(shifts[i], 6, 2);
+			rotation.addSegment(shifts[i], 6, 2);
+			rotation.addSegment(shifts[i], 6, 2);
+
+			for (int week = 0; week < 7; week++) {
+				schedule.createTeam("Team " + team, names[i] + " team", rotation, REFERENCE_DATE.plusDays(7 * week));
+				team++;
+			}
+		}
+
+		return schedule;
+	}
+
+	/**
+	 * Four teams and two 12-hr shifts with a slow 56-day rotation
+	 * 
+	 * @return {@link WorkSchedule}
+	 * @throws Exception exception
+	 */
+	public static WorkSchedule createPanama() throws Exception {
+		WorkSchedule schedule = new WorkSchedule("Panama", "Panama slow rotation plan");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+
+		Rotation rotation = schedule.createRotation("Panama",
+				"2 days on, 2 days off, 3 days on, 2 days off, 2 days on, 3 days off");
+
+		for (Shift shift : new Shift[] { day, night }) {
+			rotation.addSegment(shift, 2, 2);
+			rotation.addSegment(shift, 3, 2);
+			rotation.addSegment(shift, 2, 3);
+			rotation.addSegment(shift, 2, 2);
+			rotation.addSegment(shift, 3, 2);
+			rotation.addSegment(shift, 2, 3);
+		}
+
+		schedule.createTeam("Team 1", "First team", rotation, REFERENCE_DATE);
+		schedule.createTeam("Team 2", "Second team", rotation, REFERENCE_DATE.minusDays(28));
+		schedule.createTeam("Team 3", "Third team", rotation, REFERENCE_DATE.minusDays(7));
+		schedule.createTeam("Team 4", "Fourth team", rotation, REFERENCE_DATE.minusDays(35));
+
+		return schedule;
+	}
+
+	/**
+	 * Four teams with overlapping 14-hr day, 15.5-hr cross-cover and 14-hr night
+	 * shifts
+	 * 
+	 * @return {@link WorkSchedule}
+	 * @throws Exception exception
+	 */
+	public static WorkSchedule createICUInterns() throws Exception {
+		WorkSchedule schedule = new WorkSchedule("ICU Interns Plan", "ICU interns");
+
+		Shift crossover = schedule.createShift("Crossover", "Day shift #1 cross-over", LocalTime.of(7, 0, 0),
+				Duration.ofHours(15).plusMinutes(30));
+		Shift day = schedule.createShift("Day", "Day shift #2", LocalTime.of(7, 0, 0), Duration.ofHours(14));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 0, 0), Duration.ofHours(14));
+
+		Rotation rotation = schedule.createRotation("ICU", "ICU");
+		rotation.addSegment(day, 1, 0);
+		rotation.addSegment(crossover, 1, 0);
+		rotation.addSegment(night, 1, 1);
+
+		schedule.createTeam("Team 1", "First team", rotation, REFERENCE_DATE);
+		schedule.createTeam("Team 2", "Second team", rotation, REFERENCE_DATE.minusDays(3));
+		schedule.createTeam("Team 3", "Third team", rotation, REFERENCE_DATE.minusDays(2));
+		schedule.createTeam("Team 4", "Forth team", rotation, REFERENCE_DATE.minusDays(1));
+
+		return schedule;
+	}
+}
@@ -0,0 +1,98 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package org.point85.workschedule.benchmark;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.point85.workschedule.ShiftInstance;
+import org.point85.workschedule.WorkSchedule;
+
+/**
+ * Benchmark of {@link WorkSchedule#getShiftInstancesForDay(LocalDate)} and
+ * {@link WorkSchedule#getShiftInstancesForTime(LocalDateTime)}. Each call
+ * moves on to the next day (and hour) of a year so that every day of the
+ * rotations is visited.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShiftInstanceBenchmark {
+	@Param({ Scenarios.DNO, Scenarios.DUPONT, Scenarios.TEAM_FIXED_21, Scenarios.PANAMA, Scenarios.ICU_INTERNS })
+	public String scenario;
+
+	private WorkSchedule schedule;
+
+	// days and times of day to look up
+	private LocalDate[] days;
+	private LocalDateTime[] times;
+	private int next = 0;
+
+	@Setup
+	public void setUp() throws Exception {
+		schedule = Scenarios.create(scenario);
+		days = new LocalDate[365];
+		times = new LocalDateTime[365];
+
+		for (int i = 0; i < days.length; i++) {
+			days[i] = WorkingTimeBenchmark.FIRST_DAY.plusDays(i);
+			times[i] = LocalDateTime.of(days[i], LocalTime.of(i % 24, 30, 0));
+		}
+	}
+
+	private int nextIndex() {
+		int index = next;
+		next = (next + 1) % days.length;
+		return index;
+	}
+
+	@Benchmark
+	public List<ShiftInstance> getShiftInstancesForDay() throws Exception {
+		return schedule.getShiftInstancesForDay(days[nextIndex()]);
+	}
+
+	@Benchmark
+	public List<ShiftInstance> getShiftInstancesForTime() throws Exception {
+		return schedule.getShiftInstancesForTime(times[nextIndex()]);
+	}
+}
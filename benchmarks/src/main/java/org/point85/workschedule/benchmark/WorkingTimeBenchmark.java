@@ -0,0 +1,83 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package org.point85.workschedule.benchmark;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.point85.workschedule.WorkSchedule;
+
+/**
+ * Benchmark of {@link WorkSchedule#calculateWorkingTime(LocalDateTime, LocalDateTime)}
+ * over intervals of one day, one month and ten years.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorkingTimeBenchmark {
+	// first day after every team's rotation has started
+	static final LocalDate FIRST_DAY = LocalDate.of(2017, 1, 2);
+
+	@Param({ Scenarios.DNO, Scenarios.DUPONT, Scenarios.TEAM_FIXED_21, Scenarios.PANAMA, Scenarios.ICU_INTERNS })
+	public String scenario;
+
+	// one day, one month and ten years
+	@Param({ "P1D", "P30D", "P3652D" })
+	public String span;
+
+	private WorkSchedule schedule;
+	private LocalDateTime from;
+	private LocalDateTime to;
+
+	@Setup
+	public void setUp() throws Exception {
+		schedule = Scenarios.create(scenario);
+		from = LocalDateTime.of(FIRST_DAY, LocalTime.of(6, 30, 0));
+		to = from.plus(Duration.parse(span));
+	}
+
+	@Benchmark
+	public Duration calculateWorkingTime() throws Exception {
+		return schedule.calculateWorkingTime(from, to);
+	}
+}
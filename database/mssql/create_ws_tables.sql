@@ -148,3 +148,24 @@ CREATE TABLE [dbo].[NON_WORKING_PERIOD](
 ) ON [PRIMARY]
 GO
 
+/****** NON-WORKING RULE table ******/
+IF OBJECT_ID('dbo.NON_WORKING_RULE', 'U') IS NOT NULL 
+  DROP TABLE dbo.NON_WORKING_RULE; 
+GO
+
+CREATE TABLE [dbo].[NON_WORKING_RULE](
+	[RULE_KEY] [bigint] NOT NULL,
+	[NAME] [nvarchar](64) NULL,
+	[DESCRIPTION] [nvarchar](128) NULL,
+	[RULE_TYPE] [nvarchar](16) NULL,
+	[MONTH] [nvarchar](16) NULL,
+	[DAY_OF_MONTH] [smallint] NULL,
+	[DAY_OF_WEEK] [nvarchar](16) NULL,
+	[ORDINAL] [smallint] NULL,
+	[EASTER_OFFSET] [smallint] NULL,
+	[START_TIME] [time](7) NULL,
+	[DURATION] [bigint] NULL,
+	[WS_KEY] [int] NULL
+) ON [PRIMARY]
+GO
+
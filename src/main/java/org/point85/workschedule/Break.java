@@ -33,6 +33,8 @@ import java.time.LocalTime;
  *
  */
 public class Break extends TimePeriod {
+	// shift that the break is in
+	private transient Shift shift;
 
 	/**
 	 * Construct a period of time for a break
@@ -55,4 +57,33 @@ public class Break extends TimePeriod {
 	boolean isWorkingPeriod() {
 		return true;
 	}
+
+	void setShift(Shift shift) {
+		this.shift = shift;
+	}
+
+	@Override
+	WorkSchedule getOwner() {
+		return shift != null ? shift.getWorkSchedule() : null;
+	}
+
+	// a rename of or a change to a break of a shift without a work schedule is
+	// counted by the shift
+	@Override
+	void renamed() {
+		if (shift != null && shift.getWorkSchedule() == null) {
+			shift.renamed();
+		} else {
+			super.renamed();
+		}
+	}
+
+	@Override
+	void periodChanged() {
+		if (shift != null && shift.getWorkSchedule() == null) {
+			shift.periodChanged();
+		} else {
+			super.periodChanged();
+		}
+	}
 }
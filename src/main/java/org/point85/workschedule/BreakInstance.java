@@ -0,0 +1,121 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.time.LocalDateTime;
+
+/**
+ * Class BreakInstance is an instance of a {@link Break} taken during a
+ * {@link ShiftInstance}.
+ */
+public class BreakInstance implements Comparable<BreakInstance> {
+	// definition of the break
+	private final Break breakPeriod;
+
+	// shift instance that the break is taken in
+	private final ShiftInstance shiftInstance;
+
+	// start and end date and time of day
+	private final LocalDateTime startDateTime;
+	private final LocalDateTime endDateTime;
+
+	BreakInstance(Break breakPeriod, ShiftInstance shiftInstance, LocalDateTime startDateTime,
+			LocalDateTime endDateTime) {
+		this.breakPeriod = breakPeriod;
+		this.shiftInstance = shiftInstance;
+		this.startDateTime = startDateTime;
+		this.endDateTime = endDateTime;
+	}
+
+	/**
+	 * Get the break for this instance
+	 * 
+	 * @return {@link Break}
+	 */
+	public Break getBreak() {
+		return breakPeriod;
+	}
+
+	/**
+	 * Get the shift instance that the break is taken in
+	 * 
+	 * @return {@link ShiftInstance}
+	 */
+	public ShiftInstance getShiftInstance() {
+		return shiftInstance;
+	}
+
+	/**
+	 * Get the team taking the break
+	 * 
+	 * @return {@link Team}
+	 */
+	public Team getTeam() {
+		return shiftInstance.getTeam();
+	}
+
+	/**
+	 * Get the starting date and time of day
+	 * 
+	 * @return LocalDateTime
+	 */
+	public LocalDateTime getStartTime() {
+		return startDateTime;
+	}
+
+	/**
+	 * Get the end date and time of day. A break that would last beyond the end of
+	 * its shift ends with the shift.
+	 * 
+	 * @return LocalDateTime
+	 */
+	public LocalDateTime getEndTime() {
+		return endDateTime;
+	}
+
+	/**
+	 * Compare this break instance to another one by start time
+	 * 
+	 * @return -1 if less than, 0 if equal and 1 if greater than
+	 */
+	@Override
+	public int compareTo(BreakInstance other) {
+		return getStartTime().compareTo(other.getStartTime());
+	}
+
+	/**
+	 * Build a string representation of a break instance
+	 */
+	@Override
+	public String toString() {
+		String t = WorkSchedule.getMessage("team");
+		String b = WorkSchedule.getMessage("break");
+		String ps = WorkSchedule.getMessage("period.start");
+		String pe = WorkSchedule.getMessage("period.end");
+
+		return " " + t + ": " + getTeam().getName() + ", " + b + ": " + getBreak().getName() + ", " + ps + ": "
+				+ getStartTime() + ", " + pe + ": " + getEndTime();
+	}
+}
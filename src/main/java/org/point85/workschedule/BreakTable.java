@@ -0,0 +1,235 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class BreakTable is an immutable, pre-computed view of the breaks of a
+ * {@link Shift}. Each break is held as its starting and ending offset in
+ * seconds from the start of the shift, sorted by starting offset, so that the
+ * break in progress at an offset is found by a binary search. Overlapping
+ * breaks are merged for the cumulative break time, so the break seconds up to
+ * an offset are also found by a binary search.
+ */
+final class BreakTable {
+	private static final int SECONDS_PER_DAY = RotationTable.SECONDS_PER_DAY;
+
+	// version of the shift and its breaks that the table was built from
+	private final long stamp;
+
+	// breaks in starting offset order
+	private final Break[] breaks;
+
+	// starting and ending offsets of each break from the start of the shift,
+	// within the shift
+	private final int[] starts;
+	private final int[] ends;
+
+	// largest ending offset of the breaks up to each one
+	private final int[] reach;
+
+	// merged break intervals and the break seconds before each one, with one
+	// more entry than the number of intervals
+	private final int[] mergedStarts;
+	private final int[] mergedEnds;
+	private final long[] cumulative;
+
+	BreakTable(Shift shift, long stamp) {
+		this.stamp = stamp;
+
+		int shiftStart = shift.getStartSecond();
+		int shiftLength = (int) shift.getDuration().getSeconds();
+
+		List<Break> list = new ArrayList<>(shift.getBreaks());
+		int count = list.size();
+		Integer[] order = new Integer[count];
+		int[] offsets = new int[count];
+
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+
+			// a break that starts before the shift's time of day is after midnight
+			int offset = list.get(i).getStartSecond() - shiftStart;
+			offsets[i] = offset < 0 ? offset + SECONDS_PER_DAY : offset;
+		}
+
+		Arrays.sort(order, (a, b) -> Integer.compare(offsets[a], offsets[b]));
+
+		breaks = new Break[count];
+		starts = new int[count];
+		ends = new int[count];
+		reach = new int[count];
+
+		for (int i = 0; i < count; i++) {
+			Break breakPeriod = list.get(order[i]);
+			breaks[i] = breakPeriod;
+			starts[i] = Math.min(offsets[order[i]], shiftLength);
+			ends[i] = (int) Math.min(offsets[order[i]] + breakPeriod.getDuration().getSeconds(), shiftLength);
+			reach[i] = i > 0 ? Math.max(reach[i - 1], ends[i]) : ends[i];
+		}
+
+		// merge overlapping breaks
+		int[] mergeStart = new int[count];
+		int[] mergeEnd = new int[count];
+		int merged = 0;
+
+		for (int i = 0; i < count; i++) {
+			if (ends[i] <= starts[i]) {
+				continue;
+			}
+
+			if (merged > 0 && starts[i] <= mergeEnd[merged - 1]) {
+				mergeEnd[merged - 1] = Math.max(mergeEnd[merged - 1], ends[i]);
+			} else {
+				mergeStart[merged] = starts[i];
+				mergeEnd[merged] = ends[i];
+				merged++;
+			}
+		}
+
+		mergedStarts = Arrays.copyOf(mergeStart, merged);
+		mergedEnds = Arrays.copyOf(mergeEnd, merged);
+		cumulative = new long[merged + 1];
+
+		for (int i = 0; i < merged; i++) {
+			cumulative[i + 1] = cumulative[i] + mergedEnds[i] - mergedStarts[i];
+		}
+	}
+
+	/**
+	 * Get the version of the shift that this table was built from
+	 *
+	 * @return Stamp
+	 */
+	long getStamp() {
+		return stamp;
+	}
+
+	/**
+	 * Get the number of breaks
+	 *
+	 * @return Break count
+	 */
+	int size() {
+		return breaks.length;
+	}
+
+	/**
+	 * Get a break in starting offset order
+	 *
+	 * @param index Index of the break
+	 * @return {@link Break}
+	 */
+	Break getBreak(int index) {
+		return breaks[index];
+	}
+
+	/**
+	 * Get the starting offset of a break from the start of the shift
+	 *
+	 * @param index Index of the break
+	 * @return Offset in seconds
+	 */
+	int getStart(int index) {
+		return starts[index];
+	}
+
+	/**
+	 * Get the ending offset of a break from the start of the shift
+	 *
+	 * @param index Index of the break
+	 * @return Offset in seconds
+	 */
+	int getEnd(int index) {
+		return ends[index];
+	}
+
+	/**
+	 * Get the total break seconds in the shift, with overlapping breaks counted
+	 * once
+	 *
+	 * @return Break seconds
+	 */
+	long getTotalSeconds() {
+		return cumulative[mergedStarts.length];
+	}
+
+	/**
+	 * Get the break seconds from the start of the shift to the offset
+	 *
+	 * @param offset Seconds from the start of the shift
+	 * @return Break seconds
+	 */
+	long secondsTo(long offset) {
+		if (offset <= 0) {
+			return 0;
+		}
+
+		// last merged break starting before the offset
+		int index = upperBound(mergedStarts, offset - 1) - 1;
+
+		if (index < 0) {
+			return 0;
+		}
+		return cumulative[index] + Math.min(offset, mergedEnds[index]) - mergedStarts[index];
+	}
+
+	/**
+	 * Find the break in progress at the offset. A break includes its starting
+	 * offset but not its ending offset. Of overlapping breaks, the one that
+	 * started last is found.
+	 *
+	 * @param offset Seconds from the start of the shift
+	 * @return Index of the break, or -1 if none
+	 */
+	int indexAt(long offset) {
+		for (int i = upperBound(starts, offset) - 1; i >= 0 && reach[i] > offset; i--) {
+			if (ends[i] > offset) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	// number of values less than or equal to the key
+	private static int upperBound(int[] values, long key) {
+		int low = 0;
+		int high = values.length;
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if (values[mid] <= key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,300 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class CompiledSchedule is an immutable snapshot of a {@link WorkSchedule}
+ * created by {@link WorkSchedule#compile()}. Each team's rotation is held as an
+ * immutable table of the shift, its starting and ending seconds and its break
+ * offsets for each day of the cycle, and the non-working periods and rules are
+ * copied into a calendar of its own, so that the times found by the read
+ * methods do not change when the work schedule does. A compiled schedule can be
+ * shared between threads. The non-working rules are kept, and their periods are
+ * created for a year when it is first queried.
+ *
+ * The {@link Team} and {@link Shift} objects returned, including those of the
+ * shift instances, are the work schedule's own mutable objects. The times of a
+ * shift instance and of its breaks are those of the snapshot, but the names
+ * and other properties read from these objects are their current ones.
+ */
+public final class CompiledSchedule {
+	private static final int SECONDS_PER_DAY = RotationTable.SECONDS_PER_DAY;
+
+	// name of the compiled work schedule
+	private final String name;
+
+	// shifts of the work schedule and any other shifts used by the teams
+	private final Shift[] shifts;
+
+	// teams in the schedule
+	private final Team[] teams;
+
+	// epoch day of each team's rotation start
+	private final long[] rotationStarts;
+
+	// epoch second of midnight of each team's rotation start
+	private final long[] rotationSeconds;
+
+	// shift, times and breaks for each day of each team's rotation
+	private final RotationTable[] tables;
+
+	// non-working periods and rules, expanded for the years queried
+	private final NonWorkingCalendar nonWorkingCalendar;
+
+	CompiledSchedule(WorkSchedule schedule) throws Exception {
+		name = schedule.getName();
+
+		// teams
+		List<Team> teamList = schedule.getTeams();
+		int teamCount = teamList.size();
+
+		teams = teamList.toArray(new Team[teamCount]);
+		rotationStarts = new long[teamCount];
+		rotationSeconds = new long[teamCount];
+		tables = new RotationTable[teamCount];
+
+		// shifts, with those of the rotations that are not in the schedule's list
+		List<Shift> shiftList = new ArrayList<>(schedule.getShifts());
+		Map<Shift, Boolean> listed = new IdentityHashMap<>();
+
+		for (Shift shift : shiftList) {
+			listed.put(shift, Boolean.TRUE);
+		}
+
+		for (int i = 0; i < teamCount; i++) {
+			tables[i] = teams[i].getRotation().getTable();
+			rotationStarts[i] = teams[i].getRotationStart().toEpochDay();
+			rotationSeconds[i] = rotationStarts[i] * SECONDS_PER_DAY;
+
+			for (int day = 0; day < tables[i].getDayCount(); day++) {
+				Shift shift = tables[i].getShift(day);
+
+				if (shift != null && listed.put(shift, Boolean.TRUE) == null) {
+					shiftList.add(shift);
+				}
+			}
+		}
+		shifts = shiftList.toArray(new Shift[shiftList.size()]);
+
+		// a calendar of the non-working periods and rules as they are now
+		nonWorkingCalendar = new NonWorkingCalendar(schedule.getNonWorkingPeriods(), schedule.getNonWorkingRules(),
+				schedule.getNonWorkingStamp());
+	}
+
+	/**
+	 * Get the name of the compiled work schedule
+	 *
+	 * @return Name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Get the teams in the compiled work schedule
+	 *
+	 * @return Unmodifiable list of {@link Team}
+	 */
+	public List<Team> getTeams() {
+		return Collections.unmodifiableList(Arrays.asList(teams));
+	}
+
+	/**
+	 * Get the shifts in the compiled work schedule
+	 *
+	 * @return Unmodifiable list of {@link Shift}
+	 */
+	public List<Shift> getShifts() {
+		return Collections.unmodifiableList(Arrays.asList(shifts));
+	}
+
+	// day in the team's rotation cycle of this epoch day, or -1 if the
+	// rotation has no days
+	private int dayInCycle(int teamIndex, long epochDay) throws Exception {
+		int dayCount = tables[teamIndex].getDayCount();
+
+		if (dayCount == 0) {
+			return -1;
+		}
+
+		long deltaDays = epochDay - rotationStarts[teamIndex];
+
+		if (deltaDays < 0) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"),
+					LocalDate.ofEpochDay(rotationStarts[teamIndex]), LocalDate.ofEpochDay(epochDay));
+			throw new Exception(msg);
+		}
+
+		return (int) (deltaDays % dayCount);
+	}
+
+	/**
+	 * Get the list of shift instances for the specified date that start in that
+	 * date. No instances are returned for a date in a non-working period, as in
+	 * {@link WorkSchedule#getShiftInstancesForDay(LocalDate)}.
+	 *
+	 * @param day LocalDate
+	 * @return List of {@link ShiftInstance}
+	 * @throws Exception exception
+	 */
+	public List<ShiftInstance> getShiftInstancesForDay(LocalDate day) throws Exception {
+		List<ShiftInstance> workingShifts = new ArrayList<>();
+
+		long epochDay = day.toEpochDay();
+		boolean nonWorking = nonWorkingIndex(epochDay - 1, epochDay + 1).containsDay(epochDay);
+
+		for (int i = 0; i < teams.length; i++) {
+			int dayIndex = dayInCycle(i, epochDay);
+
+			if (dayIndex >= 0 && tables[i].getShift(dayIndex) != null && !nonWorking) {
+				workingShifts.add(createInstance(i, dayIndex, epochDay));
+			}
+		}
+
+		Collections.sort(workingShifts);
+
+		return workingShifts;
+	}
+
+	/**
+	 * Get the list of shift instances that are in progress at the specified date
+	 * and time of day, with the same rules as
+	 * {@link WorkSchedule#getShiftInstancesForTime(LocalDateTime)}
+	 *
+	 * @param dateTime Date and time of day
+	 * @return List of {@link ShiftInstance}
+	 * @throws Exception exception
+	 */
+	public List<ShiftInstance> getShiftInstancesForTime(LocalDateTime dateTime) throws Exception {
+		List<ShiftInstance> workingShifts = new ArrayList<>();
+
+		long epochDay = dateTime.toLocalDate().toEpochDay();
+		int secondOfDay = dateTime.toLocalTime().toSecondOfDay();
+		int nano = dateTime.getNano();
+		NonWorkingIndex nonWorkingIndex = nonWorkingIndex(epochDay - 1, epochDay + 1);
+
+		for (int i = 0; i < teams.length; i++) {
+			RotationTable table = tables[i];
+
+			// the prior day (if in the rotation) and then this day
+			for (long day = Math.max(epochDay - 1, rotationStarts[i]); day <= epochDay; day++) {
+				int dayIndex = dayInCycle(i, day);
+
+				if (dayIndex < 0 || table.getShift(dayIndex) == null || nonWorkingIndex.containsDay(day)) {
+					continue;
+				}
+
+				// seconds from midnight of the instance's starting day
+				long second = (epochDay - day) * SECONDS_PER_DAY + secondOfDay;
+				long end = table.getEndSecond(dayIndex);
+
+				if (second >= table.getStartSecond(dayIndex) && (second < end || (second == end && nano == 0))) {
+					workingShifts.add(createInstance(i, dayIndex, day));
+				}
+			}
+		}
+
+		Collections.sort(workingShifts);
+
+		return workingShifts;
+	}
+
+	// instance of the team's shift on the day in its cycle, starting on the
+	// epoch day, with the times and breaks of the snapshot
+	private ShiftInstance createInstance(int teamIndex, int dayIndex, long epochDay) {
+		RotationTable table = tables[teamIndex];
+		int start = table.getStartSecond(dayIndex);
+
+		LocalDateTime startDateTime = LocalDateTime.of(LocalDate.ofEpochDay(epochDay), LocalTime.ofSecondOfDay(start));
+		Duration duration = Duration.ofSeconds(table.getEndSecond(dayIndex) - start);
+
+		return new ShiftInstance(table.getShift(dayIndex), startDateTime, teams[teamIndex], duration,
+				table.getBreakTable(dayIndex));
+	}
+
+	/**
+	 * Calculate the scheduled working time between the specified dates and times of
+	 * day. Each team's working time in a non-working period is removed by the
+	 * second, as in
+	 * {@link WorkSchedule#calculateWorkingTime(LocalDateTime, LocalDateTime)}.
+	 *
+	 * @param from Starting date and time
+	 * @param to   Ending date and time
+	 * @return Working time duration
+	 * @throws Exception exception
+	 */
+	public Duration calculateWorkingTime(LocalDateTime from, LocalDateTime to) throws Exception {
+		if (from.isAfter(to)) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), to, from);
+			throw new Exception(msg);
+		}
+
+		long fromSecond = WorkSchedule.toEpochSecond(from);
+		long toSecond = WorkSchedule.toEpochSecond(to);
+
+		// remove the teams' time in non-working periods
+		long sum = workingSecondsTo(toSecond) - workingSecondsTo(fromSecond) - nonWorkingCalendar
+				.getIndex(fromSecond, toSecond).getIntervals().measure(fromSecond, toSecond, this::workingSecondsTo);
+
+		return Duration.ofSeconds(sum);
+	}
+
+	// working seconds of all teams from their rotation starts to the epoch second
+	private long workingSecondsTo(long second) {
+		return RotationTable.workingSecondsTo(tables, rotationSeconds, second);
+	}
+
+	/**
+	 * Calculate the non-working time between the specified dates and times of day.
+	 *
+	 * @param from Starting date and time
+	 * @param to   Ending date and time
+	 * @return Non-working time duration
+	 * @throws Exception exception
+	 */
+	public Duration calculateNonWorkingTime(LocalDateTime from, LocalDateTime to) throws Exception {
+		long fromSecond = WorkSchedule.toEpochSecond(from);
+		long toSecond = WorkSchedule.toEpochSecond(to);
+
+		return Duration.ofSeconds(nonWorkingCalendar.getIndex(fromSecond, toSecond).overlapSeconds(fromSecond, toSecond));
+	}
+
+	// index of the non-working periods covering the epoch days
+	private NonWorkingIndex nonWorkingIndex(long fromDay, long toDay) {
+		return nonWorkingCalendar.getIndex(fromDay * SECONDS_PER_DAY, (toDay + 1) * SECONDS_PER_DAY);
+	}
+}
@@ -0,0 +1,93 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Class CoverageSegment is an interval of a {@link CoverageTimeline} in which
+ * the number of teams on shift does not change.
+ */
+public class CoverageSegment {
+	// starting and ending epoch seconds in the calculation time zone (UTC)
+	private final long startSecond;
+	private final long endSecond;
+
+	// number of teams on shift
+	private final int headCount;
+
+	CoverageSegment(long startSecond, long endSecond, int headCount) {
+		this.startSecond = startSecond;
+		this.endSecond = endSecond;
+		this.headCount = headCount;
+	}
+
+	/**
+	 * Get the starting date and time of day of the segment
+	 * 
+	 * @return LocalDateTime
+	 */
+	public LocalDateTime getStart() {
+		return LocalDateTime.ofEpochSecond(startSecond, 0, ZoneOffset.UTC);
+	}
+
+	/**
+	 * Get the ending date and time of day of the segment, which is not included
+	 * in it
+	 * 
+	 * @return LocalDateTime
+	 */
+	public LocalDateTime getEnd() {
+		return LocalDateTime.ofEpochSecond(endSecond, 0, ZoneOffset.UTC);
+	}
+
+	/**
+	 * Get the length of the segment
+	 * 
+	 * @return Duration
+	 */
+	public Duration getDuration() {
+		return Duration.ofSeconds(endSecond - startSecond);
+	}
+
+	/**
+	 * Get the number of teams on shift in the segment
+	 * 
+	 * @return Head count
+	 */
+	public int getHeadCount() {
+		return headCount;
+	}
+
+	/**
+	 * Build a string representation of the segment
+	 */
+	@Override
+	public String toString() {
+		return "[" + getStart() + ", " + getEnd() + "): " + headCount;
+	}
+}
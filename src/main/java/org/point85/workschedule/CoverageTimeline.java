@@ -0,0 +1,286 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Class CoverageTimeline is the number of teams on shift over an interval of
+ * time, stored as a piecewise-constant sequence of segments. It is built by
+ * {@link WorkSchedule#getCoverage(LocalDateTime, LocalDateTime)} in one sweep
+ * over the starting and ending times of the shift instances. Gaps are the
+ * segments with no team on shift and overlaps, such as handovers, are those
+ * with more than one team on shift.
+ */
+public class CoverageTimeline {
+	// segment boundaries in epoch seconds, one more than the number of segments
+	private final long[] boundaries;
+
+	// number of teams on shift in each segment
+	private final int[] headCounts;
+
+	private CoverageTimeline(long[] boundaries, int[] headCounts) {
+		this.boundaries = boundaries;
+		this.headCounts = headCounts;
+	}
+
+	/**
+	 * Sweep the shift transitions into a timeline. Every instance that is on
+	 * shift in the interval must start after the first second.
+	 *
+	 * @param transitions Transitions in time order after the first second
+	 * @param first       Epoch second that the transitions are after
+	 * @param from        Starting epoch second of the timeline
+	 * @param to          Ending epoch second of the timeline
+	 * @return {@link CoverageTimeline}
+	 */
+	static CoverageTimeline sweep(Iterator<ShiftTransition> transitions, long first, long from, long to) {
+		long[] bounds = new long[16];
+		int[] counts = new int[16];
+		int size = 0;
+
+		int headCount = 0;
+		ShiftTransition next = transitions.hasNext() ? transitions.next() : null;
+
+		while (next != null && next.getEpochSecond() < to) {
+			long second = next.getEpochSecond();
+			int before = headCount;
+
+			// all transitions at the same second
+			while (next != null && next.getEpochSecond() == second) {
+				headCount += change(next, first);
+				next = transitions.hasNext() ? transitions.next() : null;
+			}
+
+			if (second <= from) {
+				continue;
+			}
+
+			if (size == 0) {
+				// head count at the start of the interval
+				bounds[size] = from;
+				counts[size] = before;
+				size++;
+			}
+
+			if (headCount != counts[size - 1]) {
+				if (size == bounds.length) {
+					bounds = Arrays.copyOf(bounds, 2 * size);
+					counts = Arrays.copyOf(counts, 2 * size);
+				}
+				bounds[size] = second;
+				counts[size] = headCount;
+				size++;
+			}
+		}
+
+		if (size == 0) {
+			bounds[size] = from;
+			counts[size] = headCount;
+			size++;
+		}
+
+		long[] boundaries = Arrays.copyOf(bounds, size + 1);
+		boundaries[size] = to;
+
+		return new CoverageTimeline(boundaries, Arrays.copyOf(counts, size));
+	}
+
+	// change in the head count for a shift start or end
+	private static int change(ShiftTransition transition, long first) {
+		switch (transition.getType()) {
+		case SHIFT_START:
+			return 1;
+		case SHIFT_END:
+			// the start of an instance at or before the first second is not seen
+			long start = WorkSchedule.toEpochSecond(transition.getShiftInstance().getStartTime());
+			return start > first ? -1 : 0;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Get the starting date and time of day of the timeline
+	 * 
+	 * @return LocalDateTime
+	 */
+	public LocalDateTime getStart() {
+		return segment(0).getStart();
+	}
+
+	/**
+	 * Get the ending date and time of day of the timeline
+	 * 
+	 * @return LocalDateTime
+	 */
+	public LocalDateTime getEnd() {
+		return segment(headCounts.length - 1).getEnd();
+	}
+
+	private CoverageSegment segment(int index) {
+		return new CoverageSegment(boundaries[index], boundaries[index + 1], headCounts[index]);
+	}
+
+	/**
+	 * Get the segments of the timeline in time order. Adjacent segments have
+	 * different head counts.
+	 * 
+	 * @return List of {@link CoverageSegment}
+	 */
+	public List<CoverageSegment> getSegments() {
+		List<CoverageSegment> segments = new ArrayList<>(headCounts.length);
+
+		for (int i = 0; i < headCounts.length; i++) {
+			segments.add(segment(i));
+		}
+		return segments;
+	}
+
+	/**
+	 * Get the segments with no team on shift
+	 * 
+	 * @return List of {@link CoverageSegment}
+	 */
+	public List<CoverageSegment> getGaps() {
+		List<CoverageSegment> segments = new ArrayList<>();
+
+		for (int i = 0; i < headCounts.length; i++) {
+			if (headCounts[i] == 0 && boundaries[i + 1] > boundaries[i]) {
+				segments.add(segment(i));
+			}
+		}
+		return segments;
+	}
+
+	/**
+	 * Get the segments with more than one team on shift
+	 * 
+	 * @return List of {@link CoverageSegment}
+	 */
+	public List<CoverageSegment> getOverlaps() {
+		List<CoverageSegment> segments = new ArrayList<>();
+
+		for (int i = 0; i < headCounts.length; i++) {
+			if (headCounts[i] > 1 && boundaries[i + 1] > boundaries[i]) {
+				segments.add(segment(i));
+			}
+		}
+		return segments;
+	}
+
+	/**
+	 * Get the number of teams on shift at the specified date and time of day
+	 * 
+	 * @param dateTime Date and time of day in the timeline
+	 * @return Head count, or 0 if outside the timeline
+	 */
+	public int getHeadCountAt(LocalDateTime dateTime) {
+		long second = WorkSchedule.toEpochSecond(dateTime);
+
+		if (second < boundaries[0] || second >= boundaries[headCounts.length]) {
+			return 0;
+		}
+
+		// last boundary at or before the second
+		int index = Arrays.binarySearch(boundaries, 0, headCounts.length, second);
+		return headCounts[index >= 0 ? index : -index - 2];
+	}
+
+	/**
+	 * Get the smallest number of teams on shift in the timeline
+	 * 
+	 * @return Minimum head count
+	 */
+	public int getMinimumHeadCount() {
+		return Arrays.stream(headCounts).min().getAsInt();
+	}
+
+	/**
+	 * Get the largest number of teams on shift in the timeline
+	 * 
+	 * @return Maximum head count
+	 */
+	public int getMaximumHeadCount() {
+		return Arrays.stream(headCounts).max().getAsInt();
+	}
+
+	/**
+	 * Get the time weighted average number of teams on shift
+	 * 
+	 * @return Average head count
+	 */
+	public double getAverageHeadCount() {
+		long total = boundaries[headCounts.length] - boundaries[0];
+
+		if (total == 0) {
+			return headCounts[0];
+		}
+
+		double sum = 0;
+
+		for (int i = 0; i < headCounts.length; i++) {
+			sum += (double) headCounts[i] * (boundaries[i + 1] - boundaries[i]);
+		}
+		return sum / total;
+	}
+
+	/**
+	 * Get the total time with no team on shift
+	 * 
+	 * @return Duration
+	 */
+	public Duration getGapTime() {
+		long sum = 0;
+
+		for (int i = 0; i < headCounts.length; i++) {
+			if (headCounts[i] == 0) {
+				sum += boundaries[i + 1] - boundaries[i];
+			}
+		}
+		return Duration.ofSeconds(sum);
+	}
+
+	/**
+	 * Get the total time with more than one team on shift
+	 * 
+	 * @return Duration
+	 */
+	public Duration getOverlapTime() {
+		long sum = 0;
+
+		for (int i = 0; i < headCounts.length; i++) {
+			if (headCounts[i] > 1) {
+				sum += boundaries[i + 1] - boundaries[i];
+			}
+		}
+		return Duration.ofSeconds(sum);
+	}
+}
@@ -0,0 +1,214 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class HyperperiodTable is an immutable table of the shifts worked by all
+ * teams of a work schedule over one hyperperiod. Each team repeats with the
+ * length of its rotation, so from the day on which the last team's rotation
+ * starts the whole schedule repeats with the least common multiple of the
+ * rotation lengths. For each day offset in that period the table holds the
+ * teams and shifts starting on the day in starting time order, and their total
+ * scheduled seconds.
+ *
+ * If the hyperperiod is longer than the limit that the table is built with, no
+ * days are held and the caller must use the teams' rotations instead.
+ */
+final class HyperperiodTable {
+	// version stamps of the schedule that the table was built from
+	private final long periodStamp;
+	private final long scheduleStamp;
+
+	// number of days in the hyperperiod, or 0 if over the limit
+	private final int dayCount;
+
+	// first epoch day on which every team's rotation has started
+	private final long baseDay;
+
+	// teams and their shifts starting on each day offset, in starting time order
+	private final Team[][] teams;
+	private final Shift[][] shifts;
+
+	// total seconds of the shifts starting on each day offset
+	private final long[] seconds;
+
+	HyperperiodTable(List<Team> teamList, int maxDays, long periodStamp, long scheduleStamp) {
+		this.periodStamp = periodStamp;
+		this.scheduleStamp = scheduleStamp;
+
+		List<Team> rotating = new ArrayList<>();
+		List<RotationTable> tables = new ArrayList<>();
+		long length = 1;
+		long base = Long.MIN_VALUE;
+
+		for (Team team : teamList) {
+			RotationTable table = team.getRotation().getTable();
+			int days = table.getDayCount();
+
+			if (days == 0) {
+				// never works
+				continue;
+			}
+
+			rotating.add(team);
+			tables.add(table);
+			base = Math.max(base, team.getRotationStart().toEpochDay());
+
+			length = length / gcd(length, days) * days;
+
+			if (length > maxDays) {
+				break;
+			}
+		}
+
+		baseDay = base;
+
+		if (length > maxDays) {
+			dayCount = 0;
+			teams = null;
+			shifts = null;
+			seconds = null;
+			return;
+		}
+
+		dayCount = (int) length;
+		teams = new Team[dayCount][];
+		shifts = new Shift[dayCount][];
+		seconds = new long[dayCount];
+
+		List<Integer> working = new ArrayList<>();
+
+		for (int offset = 0; offset < dayCount; offset++) {
+			working.clear();
+
+			for (int i = 0; i < rotating.size(); i++) {
+				if (tables.get(i).getShift(dayIndex(rotating.get(i), tables.get(i), offset)) != null) {
+					working.add(i);
+				}
+			}
+
+			// stable sort keeps the teams' order for shifts starting together
+			final int day = offset;
+			Collections.sort(working, (a, b) -> Integer.compare(
+					tables.get(a).getStartSecond(dayIndex(rotating.get(a), tables.get(a), day)),
+					tables.get(b).getStartSecond(dayIndex(rotating.get(b), tables.get(b), day))));
+
+			teams[offset] = new Team[working.size()];
+			shifts[offset] = new Shift[working.size()];
+
+			for (int j = 0; j < working.size(); j++) {
+				int i = working.get(j);
+				Shift shift = tables.get(i).getShift(dayIndex(rotating.get(i), tables.get(i), offset));
+
+				teams[offset][j] = rotating.get(i);
+				shifts[offset][j] = shift;
+				seconds[offset] += shift.getDuration().getSeconds();
+			}
+		}
+	}
+
+	private static long gcd(long a, long b) {
+		while (b != 0) {
+			long r = a % b;
+			a = b;
+			b = r;
+		}
+		return a;
+	}
+
+	// day in the team's rotation for the day offset from the base day
+	private int dayIndex(Team team, RotationTable table, int offset) {
+		long deltaDays = baseDay + offset - team.getRotationStart().toEpochDay();
+		return (int) (deltaDays % table.getDayCount());
+	}
+
+	/**
+	 * Check whether the table was built from the current version of the schedule
+	 *
+	 * @param periodStamp   Version of the shifts and rotations
+	 * @param scheduleStamp Version of the teams
+	 * @return True if current
+	 */
+	boolean isCurrent(long periodStamp, long scheduleStamp) {
+		return this.periodStamp == periodStamp && this.scheduleStamp == scheduleStamp;
+	}
+
+	/**
+	 * Get the number of days in the hyperperiod
+	 *
+	 * @return Day count, or 0 if the hyperperiod is longer than the limit
+	 */
+	int getDayCount() {
+		return dayCount;
+	}
+
+	/**
+	 * Get the day offset in the hyperperiod of the epoch day
+	 *
+	 * @param epochDay Epoch day
+	 * @return Day offset, or -1 if the table does not cover the day
+	 */
+	int getOffset(long epochDay) {
+		if (dayCount == 0 || epochDay < baseDay) {
+			return -1;
+		}
+		// the difference is not negative, but overflows if no team has a rotation
+		return (int) Long.remainderUnsigned(epochDay - baseDay, dayCount);
+	}
+
+	/**
+	 * Get the total seconds of the shifts starting on the day offset
+	 *
+	 * @param offset Day offset in the hyperperiod
+	 * @return Scheduled seconds
+	 */
+	long getSeconds(int offset) {
+		return seconds[offset];
+	}
+
+	/**
+	 * Create the shift instances starting on the day, in starting time order
+	 *
+	 * @param day    Date
+	 * @param offset Day offset of the date in the hyperperiod
+	 * @return List of {@link ShiftInstance}
+	 */
+	List<ShiftInstance> createInstances(LocalDate day, int offset) {
+		Shift[] dayShifts = shifts[offset];
+		List<ShiftInstance> instances = new ArrayList<>(dayShifts.length);
+
+		for (int j = 0; j < dayShifts.length; j++) {
+			LocalDateTime startDateTime = LocalDateTime.of(day, dayShifts[j].getStart());
+			instances.add(new ShiftInstance(dayShifts[j], startDateTime, teams[offset][j]));
+		}
+		return instances;
+	}
+}
@@ -0,0 +1,251 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.util.Arrays;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Class IntervalSet is an immutable set of disjoint, half-open intervals of
+ * epoch seconds held as sorted arrays of starts and ends. Adjoining intervals
+ * are merged, so each boundary is a change between in and out of the set.
+ *
+ * The measure of a set can be weighted by a cumulative function, for example a
+ * team's working seconds up to a second, to get the working time in the set
+ * without listing the working intervals themselves. The working time net of
+ * the non-working periods is then the working time less this measure over the
+ * non-working set, which is the measure of the working intervals intersected
+ * with the complement of the set. So only the union of intervals (by
+ * {@link #of(long[], long[])}) and the weighted measure are provided, not a
+ * general intersection or difference of two sets.
+ */
+final class IntervalSet {
+	// set with no intervals
+	static final IntervalSet EMPTY = new IntervalSet(new long[0], new long[0]);
+
+	// interval starts and ends in ascending order
+	private final long[] starts;
+	private final long[] ends;
+
+	private IntervalSet(long[] starts, long[] ends) {
+		this.starts = starts;
+		this.ends = ends;
+	}
+
+	/**
+	 * Create the union of intervals in any order, which may overlap
+	 *
+	 * @param starts Starting seconds
+	 * @param ends   Ending seconds, one for each start
+	 * @return {@link IntervalSet}
+	 */
+	static IntervalSet of(long[] starts, long[] ends) {
+		int count = starts.length;
+		Integer[] order = new Integer[count];
+
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Long.compare(starts[a], starts[b]));
+
+		Builder builder = new Builder(count);
+
+		for (int i : order) {
+			builder.add(starts[i], ends[i]);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Get the number of disjoint intervals
+	 *
+	 * @return Interval count
+	 */
+	int size() {
+		return starts.length;
+	}
+
+	/**
+	 * Get the starting second of an interval
+	 *
+	 * @param index Interval index
+	 * @return Epoch second
+	 */
+	long start(int index) {
+		return starts[index];
+	}
+
+	/**
+	 * Get the ending second of an interval
+	 *
+	 * @param index Interval index
+	 * @return Epoch second
+	 */
+	long end(int index) {
+		return ends[index];
+	}
+
+	/**
+	 * Check to see if the second is in an interval
+	 *
+	 * @param second Epoch second
+	 * @return True if in the set
+	 */
+	boolean contains(long second) {
+		int index = firstEndingAfter(second);
+		return index < starts.length && starts[index] <= second;
+	}
+
+	/**
+	 * Get the index of the first interval that ends after the specified second
+	 *
+	 * @param second Epoch second
+	 * @return Index of the interval, or the interval count if none
+	 */
+	int firstEndingAfter(long second) {
+		int low = 0;
+		int high = ends.length;
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if (ends[mid] > second) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Get the index of the first interval that ends after the specified second,
+	 * searching forward from a cursor. This is cheaper than a binary search when
+	 * the seconds are visited in ascending order.
+	 *
+	 * @param second Epoch second
+	 * @param cursor Index returned for an earlier (or the same) second
+	 * @return Index of the interval, or the interval count if none
+	 */
+	int firstEndingAfter(long second, int cursor) {
+		int index = cursor;
+
+		while (index < ends.length && ends[index] <= second) {
+			index++;
+		}
+		return index;
+	}
+
+	/**
+	 * Get the index of the last interval that starts before the specified second
+	 *
+	 * @param second Epoch second
+	 * @return Index of the interval, or -1 if none
+	 */
+	int lastStartingBefore(long second) {
+		int low = 0;
+		int high = starts.length;
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if (starts[mid] < second) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low - 1;
+	}
+
+	/**
+	 * Get the measure of the part of this set between two seconds, weighted by a
+	 * non-decreasing cumulative function. Each interval contributes the increase
+	 * of the function over it.
+	 *
+	 * @param from       Starting epoch second
+	 * @param to         Ending epoch second
+	 * @param cumulative Weight from a fixed origin up to a second
+	 * @return Weighted measure
+	 */
+	long measure(long from, long to, LongUnaryOperator cumulative) {
+		return measure(from, to, cumulative, firstEndingAfter(from));
+	}
+
+	/**
+	 * Get the measure of the part of this set between two seconds, weighted by a
+	 * non-decreasing cumulative function
+	 *
+	 * @param from       Starting epoch second
+	 * @param to         Ending epoch second
+	 * @param cumulative Weight from a fixed origin up to a second
+	 * @param first      Index of the first interval ending after the starting
+	 *                   second
+	 * @return Weighted measure
+	 */
+	long measure(long from, long to, LongUnaryOperator cumulative, int first) {
+		long sum = 0;
+
+		for (int i = first; i < starts.length && starts[i] < to; i++) {
+			long start = Math.max(starts[i], from);
+			long end = Math.min(ends[i], to);
+
+			if (end > start) {
+				sum += cumulative.applyAsLong(end) - cumulative.applyAsLong(start);
+			}
+		}
+		return sum;
+	}
+
+	// collects intervals in ascending order of start, merging overlaps
+	private static final class Builder {
+		private final long[] starts;
+		private final long[] ends;
+		private int count = 0;
+
+		private Builder(int capacity) {
+			starts = new long[capacity];
+			ends = new long[capacity];
+		}
+
+		private void add(long start, long end) {
+			if (end <= start) {
+				return;
+			}
+
+			if (count > 0 && start <= ends[count - 1]) {
+				ends[count - 1] = Math.max(ends[count - 1], end);
+			} else {
+				starts[count] = start;
+				ends[count] = end;
+				count++;
+			}
+		}
+
+		private IntervalSet build() {
+			return count > 0 ? new IntervalSet(Arrays.copyOf(starts, count), Arrays.copyOf(ends, count)) : EMPTY;
+		}
+	}
+}
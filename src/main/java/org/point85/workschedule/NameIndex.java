@@ -0,0 +1,99 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package org.point85.workschedule;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class NameIndex is a hash index by name of a list of named objects, kept
+ * alongside the list so that a lookup or a check for a duplicate name takes
+ * constant time. The list remains the owner of the objects and their order.
+ * The index is rebuilt from the list when the list's size has changed (e.g.
+ * after the list is modified directly or loaded by the persistence provider) or
+ * when an object of the owner's work schedule has been renamed. As with
+ * {@link List#contains(Object)}, the first object with a name is found.
+ *
+ * @param <T> Type of named object
+ */
+final class NameIndex<T extends Named> {
+	// object whose work schedule's renames invalidate the index
+	private final Named owner;
+
+	// objects by name
+	private final Map<String, T> byName = new HashMap<>();
+
+	// list size and rename count when the index was last in step with the list
+	private int size = -1;
+	private int renames = -1;
+
+	NameIndex(Named owner) {
+		this.owner = owner;
+	}
+
+	// rebuild the index if it is out of step with the list
+	private void refresh(List<T> list) {
+		int renameCount = owner.getRenameCount();
+
+		if (size == list.size() && renames == renameCount) {
+			return;
+		}
+
+		byName.clear();
+
+		for (T named : list) {
+			byName.putIfAbsent(named.getName(), named);
+		}
+		size = list.size();
+		renames = renameCount;
+	}
+
+	/**
+	 * Find the object with the specified name
+	 *
+	 * @param list List of objects
+	 * @param name Name
+	 * @return Named object, or null if not found
+	 */
+	synchronized T get(List<T> list, String name) {
+		refresh(list);
+		return byName.get(name);
+	}
+
+	/**
+	 * Record an object that has just been appended to the list
+	 *
+	 * @param list  List of objects
+	 * @param named Named object
+	 */
+	synchronized void added(List<T> list, T named) {
+		if (size == list.size() - 1 && renames == owner.getRenameCount()) {
+			byName.putIfAbsent(named.getName(), named);
+			size++;
+		}
+	}
+}
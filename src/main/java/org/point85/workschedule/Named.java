@@ -41,6 +41,10 @@ abstract class Named {
 	
 	// database primary key
 	private Long primaryKey;
+
+	// number of renames counted by this object while it has no owning work
+	// schedule
+	private transient int unownedRenameCount;
 	
 	protected Named() {
 		
@@ -72,9 +76,38 @@ abstract class Named {
 		if (name == null) {
 			throw new Exception(WorkSchedule.getMessage("name.not.defined"));
 		}
+
+		if (this.name != null && !this.name.equals(name)) {
+			renamed();
+		}
 		this.name = name;
 	}
 
+	// work schedule that this object belongs to, or null if none
+	WorkSchedule getOwner() {
+		return null;
+	}
+
+	// count a rename with the owning work schedule, or with this object if it
+	// has none
+	void renamed() {
+		WorkSchedule owner = getOwner();
+
+		if (owner != null) {
+			owner.nameChanged();
+		} else {
+			unownedRenameCount++;
+		}
+	}
+
+	// number of renames counted by the owning work schedule, or by this object
+	// if it has none, so that the name indexes held by this object can tell
+	// when a key has changed
+	int getRenameCount() {
+		WorkSchedule owner = getOwner();
+		return owner != null ? owner.getNameChangeCount() : unownedRenameCount;
+	}
+
 	/**
 	 * Get description
 	 * 
@@ -0,0 +1,178 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Class NonWorkingCalendar is an immutable snapshot of the non-working periods
+ * and rules of a work schedule at one version. The periods are held as epoch
+ * seconds and the rules are kept, so that the periods of the rules can be
+ * expanded for any year when first queried. The index of the periods is built
+ * for a horizon of years around the queried interval and is rebuilt with a
+ * wider horizon when a query falls outside of it, so the result of a query
+ * does not depend on the queries made before it.
+ */
+final class NonWorkingCalendar {
+	// seconds in a year of 366 days
+	private static final long YEAR_SECONDS = 366L * RotationTable.SECONDS_PER_DAY;
+
+	// range of years that the rules are expanded for
+	private static final int MIN_RULE_YEAR = 1;
+	private static final int MAX_RULE_YEAR = 9999;
+
+	// starting and ending epoch seconds of the non-working periods
+	private final long[] periodStarts;
+	private final long[] periodEnds;
+
+	// recurring non-working periods
+	private final NonWorkingRule[] rules;
+
+	// version of the work schedule's non-working periods and rules
+	private final long stamp;
+
+	// index over the horizon queried so far, null until first needed
+	private volatile NonWorkingIndex index;
+
+	NonWorkingCalendar(Collection<NonWorkingPeriod> periods, Collection<NonWorkingRule> rules, long stamp)
+			throws Exception {
+		this.stamp = stamp;
+		this.rules = rules.toArray(new NonWorkingRule[rules.size()]);
+
+		periodStarts = new long[periods.size()];
+		periodEnds = new long[periods.size()];
+		int i = 0;
+
+		for (NonWorkingPeriod period : periods) {
+			periodStarts[i] = WorkSchedule.toEpochSecond(period.getStartDateTime());
+			periodEnds[i] = WorkSchedule.toEpochSecond(period.getEndDateTime());
+			i++;
+		}
+	}
+
+	/**
+	 * Get the version of the non-working periods and rules that this calendar
+	 * was built from
+	 *
+	 * @return Stamp
+	 */
+	long getStamp() {
+		return stamp;
+	}
+
+	/**
+	 * Get the index of the non-working periods, with the periods of the rules
+	 * expanded for at least the years from a year before to a year after the
+	 * interval. The horizon of years only grows, so the periods of the years
+	 * already queried are kept.
+	 *
+	 * @param fromSecond Starting epoch second
+	 * @param toSecond   Ending epoch second
+	 * @return {@link NonWorkingIndex}
+	 */
+	NonWorkingIndex getIndex(long fromSecond, long toSecond) {
+		NonWorkingIndex current = index;
+
+		long from = Math.min(fromSecond, toSecond);
+		long to = Math.max(fromSecond, toSecond);
+
+		if (current != null && current.covers(from, to)) {
+			return current;
+		}
+
+		if (rules.length == 0) {
+			current = new NonWorkingIndex(periodStarts, periodEnds, periodStarts.length, Long.MIN_VALUE,
+					Long.MAX_VALUE, stamp);
+		} else {
+			int firstYear = yearOf(Math.max(from, Long.MIN_VALUE + YEAR_SECONDS) - YEAR_SECONDS);
+			int lastYear = yearOf(Math.min(to, Long.MAX_VALUE - YEAR_SECONDS) + YEAR_SECONDS);
+
+			if (current != null) {
+				firstYear = Math.min(firstYear, yearOf(current.getHorizonStart()));
+				lastYear = Math.max(lastYear, yearOf(current.getHorizonEnd() - 1));
+			}
+			current = expand(firstYear, lastYear);
+		}
+		index = current;
+
+		return current;
+	}
+
+	// index of the periods and the periods of the rules for the years, with
+	// the periods of the year before that end after the start of the horizon
+	private NonWorkingIndex expand(int firstYear, int lastYear) {
+		int capacity = periodStarts.length + 2 * rules.length * (lastYear - firstYear + 2);
+		long[] starts = new long[capacity];
+		long[] ends = new long[capacity];
+
+		System.arraycopy(periodStarts, 0, starts, 0, periodStarts.length);
+		System.arraycopy(periodEnds, 0, ends, 0, periodEnds.length);
+		int count = periodStarts.length;
+
+		// no rule periods outside of the years of the rules
+		long horizonStart = firstYear <= MIN_RULE_YEAR ? Long.MIN_VALUE
+				: LocalDate.of(firstYear, 1, 1).toEpochDay() * RotationTable.SECONDS_PER_DAY;
+		long horizonEnd = lastYear >= MAX_RULE_YEAR ? Long.MAX_VALUE
+				: LocalDate.of(lastYear + 1, 1, 1).toEpochDay() * RotationTable.SECONDS_PER_DAY;
+
+		// a period of the year before can run into the horizon
+		int previousYear = Math.max(firstYear - 1, MIN_RULE_YEAR);
+
+		for (NonWorkingRule rule : rules) {
+			for (int year = previousYear; year <= lastYear; year++) {
+				for (LocalDate date : rule.getDates(year)) {
+					LocalDateTime start = LocalDateTime.of(date, rule.getStartTime());
+					long end = WorkSchedule.toEpochSecond(start.plus(rule.getDuration()));
+
+					if (end <= horizonStart) {
+						continue;
+					}
+
+					if (count == starts.length) {
+						starts = Arrays.copyOf(starts, 2 * count + 1);
+						ends = Arrays.copyOf(ends, 2 * count + 1);
+					}
+					starts[count] = WorkSchedule.toEpochSecond(start);
+					ends[count] = end;
+					count++;
+				}
+			}
+		}
+
+		return new NonWorkingIndex(starts, ends, count, horizonStart, horizonEnd, stamp);
+	}
+
+	// year of the epoch second, limited to the years of the rules
+	private static int yearOf(long second) {
+		long day = Math.floorDiv(second, RotationTable.SECONDS_PER_DAY);
+		long minDay = LocalDate.of(MIN_RULE_YEAR, 1, 1).toEpochDay();
+		long maxDay = LocalDate.of(MAX_RULE_YEAR, 12, 31).toEpochDay();
+
+		return LocalDate.ofEpochDay(Math.max(Math.min(day, maxDay), minDay)).getYear();
+	}
+}
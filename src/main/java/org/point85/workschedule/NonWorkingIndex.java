@@ -0,0 +1,366 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.util.Arrays;
+
+/**
+ * Class NonWorkingIndex is an immutable, sorted index of non-working periods.
+ * The periods are held as epoch seconds and epoch days ordered by their start.
+ * Together with the running maximum of the period ends, this allows a binary
+ * search to answer whether a date or an instant is in any (possibly
+ * overlapping) non-working period, and to find the first period that overlaps
+ * an interval. Recurring periods are only expanded for a horizon of years, so
+ * the index also records the horizon that it covers.
+ */
+final class NonWorkingIndex {
+	// period starts and ends in epoch seconds, sorted by start
+	private final long[] starts;
+	private final long[] ends;
+
+	// maximum period end up to and including each period
+	private final long[] maxEnds;
+
+	// starting and ending epoch days of each period
+	private final long[] startDays;
+	private final long[] maxEndDays;
+
+	// union of the periods' dates as disjoint spans of epoch days, with both
+	// the starting and ending days included and adjacent spans joined
+	private final long[] spanStartDays;
+	private final long[] spanEndDays;
+
+	// union of the periods as disjoint intervals
+	private final IntervalSet intervals;
+
+	// epoch seconds covered by the expanded recurring periods
+	private final long horizonStart;
+	private final long horizonEnd;
+
+	// version of the work schedule's non-working periods and rules
+	private final long stamp;
+
+	NonWorkingIndex(long[] periodStarts, long[] periodEnds, int count, long horizonStart, long horizonEnd,
+			long stamp) {
+		this.horizonStart = horizonStart;
+		this.horizonEnd = horizonEnd;
+		this.stamp = stamp;
+
+		// sort by start
+		Integer[] order = new Integer[count];
+
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Long.compare(periodStarts[a], periodStarts[b]));
+
+		starts = new long[count];
+		ends = new long[count];
+		maxEnds = new long[count];
+		startDays = new long[count];
+		maxEndDays = new long[count];
+
+		for (int i = 0; i < count; i++) {
+			starts[i] = periodStarts[order[i]];
+			ends[i] = periodEnds[order[i]];
+			startDays[i] = Math.floorDiv(starts[i], RotationTable.SECONDS_PER_DAY);
+
+			long endDay = Math.floorDiv(ends[i], RotationTable.SECONDS_PER_DAY);
+			maxEnds[i] = i > 0 ? Math.max(maxEnds[i - 1], ends[i]) : ends[i];
+			maxEndDays[i] = i > 0 ? Math.max(maxEndDays[i - 1], endDay) : endDay;
+		}
+
+		long[] spanStarts = new long[count];
+		long[] spanEnds = new long[count];
+		int spans = 0;
+
+		for (int i = 0; i < count; i++) {
+			long endDay = Math.max(Math.floorDiv(ends[i], RotationTable.SECONDS_PER_DAY), startDays[i]);
+
+			if (spans > 0 && startDays[i] <= spanEnds[spans - 1] + 1) {
+				spanEnds[spans - 1] = Math.max(spanEnds[spans - 1], endDay);
+			} else {
+				spanStarts[spans] = startDays[i];
+				spanEnds[spans] = endDay;
+				spans++;
+			}
+		}
+		spanStartDays = Arrays.copyOf(spanStarts, spans);
+		spanEndDays = Arrays.copyOf(spanEnds, spans);
+
+		intervals = IntervalSet.of(starts, ends);
+	}
+
+	/**
+	 * Get the version of the non-working periods and rules that this index was
+	 * built from
+	 *
+	 * @return Stamp
+	 */
+	long getStamp() {
+		return stamp;
+	}
+
+	/**
+	 * Get the first epoch second covered by the recurring periods
+	 *
+	 * @return Epoch second
+	 */
+	long getHorizonStart() {
+		return horizonStart;
+	}
+
+	/**
+	 * Get the epoch second after the last one covered by the recurring periods
+	 *
+	 * @return Epoch second
+	 */
+	long getHorizonEnd() {
+		return horizonEnd;
+	}
+
+	/**
+	 * Check whether the recurring periods are expanded for the interval
+	 *
+	 * @param from Starting epoch second
+	 * @param to   Ending epoch second
+	 * @return True if covered
+	 */
+	boolean covers(long from, long to) {
+		return from >= horizonStart && to <= horizonEnd;
+	}
+
+	/**
+	 * Get the number of indexed periods
+	 *
+	 * @return Period count
+	 */
+	int size() {
+		return starts.length;
+	}
+
+	// index of the last value less than or equal to the key, or -1
+	private static int floorIndex(long[] values, long key) {
+		int low = 0;
+		int high = values.length - 1;
+
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+
+			if (values[mid] <= key) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return high;
+	}
+
+	/**
+	 * Check to see if the day is in a non-working period. As with
+	 * {@link NonWorkingPeriod#isInPeriod(java.time.LocalDate)}, both the starting
+	 * and ending dates of a period are included.
+	 *
+	 * @param epochDay Epoch day
+	 * @return True if in a non-working period
+	 */
+	boolean containsDay(long epochDay) {
+		int index = floorIndex(startDays, epochDay);
+		return index >= 0 && maxEndDays[index] >= epochDay;
+	}
+
+	/**
+	 * Get the first day on or after the specified day that is not in a
+	 * non-working period. A whole span of consecutive non-working days is
+	 * skipped by one binary search.
+	 *
+	 * @param epochDay Epoch day
+	 * @return Epoch day
+	 */
+	long nextWorkingDay(long epochDay) {
+		int index = floorIndex(spanStartDays, epochDay);
+		return (index >= 0 && spanEndDays[index] >= epochDay) ? spanEndDays[index] + 1 : epochDay;
+	}
+
+	/**
+	 * Get the last day on or before the specified day that is not in a
+	 * non-working period. A whole span of consecutive non-working days is
+	 * skipped by one binary search.
+	 *
+	 * @param epochDay Epoch day
+	 * @return Epoch day
+	 */
+	long previousWorkingDay(long epochDay) {
+		int index = floorIndex(spanStartDays, epochDay);
+		return (index >= 0 && spanEndDays[index] >= epochDay) ? spanStartDays[index] - 1 : epochDay;
+	}
+
+	/**
+	 * Check to see if the instant is in a non-working period
+	 *
+	 * @param second Epoch second
+	 * @return True if in a non-working period
+	 */
+	boolean contains(long second) {
+		int index = floorIndex(starts, second);
+		return index >= 0 && maxEnds[index] > second;
+	}
+
+	/**
+	 * Get the index of the first period that ends after the specified second
+	 *
+	 * @param second Epoch second
+	 * @return Index of the period, or the period count if none
+	 */
+	int firstEndingAfter(long second) {
+		int low = 0;
+		int high = maxEnds.length;
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+
+			if (maxEnds[mid] > second) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Get the index of the first period that ends after the specified second,
+	 * searching forward from a cursor. This is cheaper than a binary search when
+	 * the seconds are visited in ascending order.
+	 *
+	 * @param second Epoch second
+	 * @param cursor Index returned for an earlier (or the same) second
+	 * @return Index of the period, or the period count if none
+	 */
+	int firstEndingAfter(long second, int cursor) {
+		int index = cursor;
+
+		while (index < maxEnds.length && maxEnds[index] <= second) {
+			index++;
+		}
+		return index;
+	}
+
+	/**
+	 * Calculate the non-working seconds between the specified epoch seconds
+	 *
+	 * @param fromSeconds Starting epoch second
+	 * @param toSeconds   Ending epoch second
+	 * @return Non-working seconds
+	 */
+	long overlapSeconds(long fromSeconds, long toSeconds) {
+		return overlapSeconds(fromSeconds, toSeconds, firstEndingAfter(fromSeconds));
+	}
+
+	/**
+	 * Calculate the non-working seconds between the specified epoch seconds
+	 *
+	 * @param fromSeconds Starting epoch second
+	 * @param toSeconds   Ending epoch second
+	 * @param first       Index of the first period ending after the starting
+	 *                    second
+	 * @return Non-working seconds
+	 */
+	long overlapSeconds(long fromSeconds, long toSeconds, int first) {
+		long sum = 0;
+
+		for (int i = first; i < starts.length; i++) {
+			long startSeconds = starts[i];
+			long endSeconds = ends[i];
+
+			if (fromSeconds >= endSeconds) {
+				// look at next period
+				continue;
+			}
+
+			if (toSeconds <= startSeconds) {
+				// done with periods
+				break;
+			}
+
+			// found a period, check edge conditions
+			sum += Math.min(toSeconds, endSeconds) - Math.max(fromSeconds, startSeconds);
+
+			if (toSeconds <= endSeconds) {
+				break;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Get the union of the periods as disjoint intervals of epoch seconds
+	 *
+	 * @return {@link IntervalSet}
+	 */
+	IntervalSet getIntervals() {
+		return intervals;
+	}
+
+	/**
+	 * Get the first start or end of a disjoint non-working interval after the
+	 * specified second
+	 *
+	 * @param second Epoch second
+	 * @return {@link ShiftTransition}, or null if none
+	 */
+	ShiftTransition nextTransition(long second) {
+		int index = intervals.firstEndingAfter(second);
+
+		if (index >= intervals.size()) {
+			return null;
+		}
+
+		if (intervals.start(index) > second) {
+			return new ShiftTransition(intervals.start(index), TransitionType.NON_WORKING_START, null, null);
+		}
+		return new ShiftTransition(intervals.end(index), TransitionType.NON_WORKING_END, null, null);
+	}
+
+	/**
+	 * Get the last start or end of a disjoint non-working interval before the
+	 * specified second
+	 *
+	 * @param second Epoch second
+	 * @return {@link ShiftTransition}, or null if none
+	 */
+	ShiftTransition previousTransition(long second) {
+		int index = intervals.lastStartingBefore(second);
+
+		if (index < 0) {
+			return null;
+		}
+
+		if (intervals.end(index) < second) {
+			return new ShiftTransition(intervals.end(index), TransitionType.NON_WORKING_END, null, null);
+		}
+		return new ShiftTransition(intervals.start(index), TransitionType.NON_WORKING_START, null, null);
+	}
+}
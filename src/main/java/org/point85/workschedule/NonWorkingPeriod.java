@@ -82,6 +82,10 @@ public class NonWorkingPeriod extends Named implements Comparable<NonWorkingPeri
 		}
 
 		this.startDateTime = startDateTime;
+
+		if (workSchedule != null) {
+			workSchedule.nonWorkingPeriodMoved();
+		}
 	}
 
 	/**
@@ -118,6 +122,10 @@ public class NonWorkingPeriod extends Named implements Comparable<NonWorkingPeri
 		}
 
 		this.duration = duration;
+
+		if (workSchedule != null) {
+			workSchedule.nonWorkingPeriodsChanged();
+		}
 	}
 
 	/**
@@ -164,6 +172,11 @@ public class NonWorkingPeriod extends Named implements Comparable<NonWorkingPeri
 		this.workSchedule = workSchedule;
 	}
 
+	@Override
+	WorkSchedule getOwner() {
+		return workSchedule;
+	}
+
 	/**
 	 * Check to see if this day is contained in the non-working period
 	 * 
@@ -0,0 +1,366 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.text.MessageFormat;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.MonthDay;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class NonWorkingRule represents a named, recurring non-working period. For
+ * example a holiday on a fixed date or on the nth day of the week in a month, a
+ * weekly maintenance window or a holiday relative to Easter. The periods of a
+ * rule are not stored. They are created for a year when first needed by a query
+ * of the work schedule and are then kept for later queries.
+ */
+public class NonWorkingRule extends Named {
+	// largest number of days from Easter Sunday
+	private static final int MAX_EASTER_OFFSET = 365;
+
+	// owning work schedule
+	private WorkSchedule workSchedule;
+
+	// how the dates recur
+	private NonWorkingRuleType type;
+
+	// month of a fixed date or of a day of the week in a month
+	private Month month;
+
+	// fixed day of month
+	private int dayOfMonth;
+
+	// day of the week and occurrence of it in the month (-1 for the last)
+	private DayOfWeek dayOfWeek;
+	private int ordinal;
+
+	// days from Easter Sunday
+	private int easterOffset;
+
+	// starting time of day
+	private LocalTime startTime;
+
+	// duration of each period
+	private Duration duration;
+
+	// periods created for each year
+	private final transient Map<Integer, List<NonWorkingPeriod>> periodsByYear = new ConcurrentHashMap<>();
+
+	/**
+	 * Default constructor
+	 */
+	public NonWorkingRule() {
+		super();
+	}
+
+	private NonWorkingRule(String name, String description, NonWorkingRuleType type, LocalTime startTime,
+			Duration duration) throws Exception {
+		super(name, description);
+
+		if (startTime == null) {
+			throw new Exception(WorkSchedule.getMessage("start.not.defined"));
+		}
+
+		if (duration == null || duration.getSeconds() == 0) {
+			throw new Exception(WorkSchedule.getMessage("duration.not.defined"));
+		}
+
+		this.type = type;
+		this.startTime = startTime;
+		this.duration = duration;
+	}
+
+	// the same month and day every year. February 29 is skipped in other years.
+	static NonWorkingRule fixedDate(String name, String description, MonthDay monthDay, LocalTime startTime,
+			Duration duration) throws Exception {
+		if (monthDay == null) {
+			throw new Exception(WorkSchedule.getMessage("start.not.defined"));
+		}
+
+		NonWorkingRule rule = new NonWorkingRule(name, description, NonWorkingRuleType.FIXED_DATE, startTime,
+				duration);
+		rule.month = monthDay.getMonth();
+		rule.dayOfMonth = monthDay.getDayOfMonth();
+		return rule;
+	}
+
+	// the nth (1 to 5) or last (-1) day of the week in the month every year. A
+	// year without a fifth such day is skipped.
+	static NonWorkingRule weekdayOfMonth(String name, String description, Month month, DayOfWeek dayOfWeek,
+			int ordinal, LocalTime startTime, Duration duration) throws Exception {
+		if (month == null || dayOfWeek == null) {
+			throw new Exception(WorkSchedule.getMessage("start.not.defined"));
+		}
+
+		if (ordinal != -1 && (ordinal < 1 || ordinal > 5)) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("invalid.weekday.ordinal"), ordinal);
+			throw new Exception(msg);
+		}
+
+		NonWorkingRule rule = new NonWorkingRule(name, description, NonWorkingRuleType.WEEKDAY_OF_MONTH, startTime,
+				duration);
+		rule.month = month;
+		rule.dayOfWeek = dayOfWeek;
+		rule.ordinal = ordinal;
+		return rule;
+	}
+
+	// the day of the week every week
+	static NonWorkingRule weekly(String name, String description, DayOfWeek dayOfWeek, LocalTime startTime,
+			Duration duration) throws Exception {
+		if (dayOfWeek == null) {
+			throw new Exception(WorkSchedule.getMessage("start.not.defined"));
+		}
+
+		NonWorkingRule rule = new NonWorkingRule(name, description, NonWorkingRuleType.WEEKLY, startTime, duration);
+		rule.dayOfWeek = dayOfWeek;
+		return rule;
+	}
+
+	// the days before (negative) or after (positive) Easter Sunday every year,
+	// up to a year away
+	static NonWorkingRule easter(String name, String description, int easterOffset, LocalTime startTime,
+			Duration duration) throws Exception {
+		if (Math.abs(easterOffset) > MAX_EASTER_OFFSET) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("invalid.easter.offset"), easterOffset,
+					MAX_EASTER_OFFSET);
+			throw new Exception(msg);
+		}
+
+		NonWorkingRule rule = new NonWorkingRule(name, description, NonWorkingRuleType.EASTER, startTime, duration);
+		rule.easterOffset = easterOffset;
+		return rule;
+	}
+
+	/**
+	 * Get how the dates of the rule recur
+	 * 
+	 * @return {@link NonWorkingRuleType}
+	 */
+	public NonWorkingRuleType getType() {
+		return type;
+	}
+
+	/**
+	 * Get the month and day of a fixed date rule
+	 * 
+	 * @return MonthDay, or null for another type of rule
+	 */
+	public MonthDay getMonthDay() {
+		return type == NonWorkingRuleType.FIXED_DATE ? MonthDay.of(month, dayOfMonth) : null;
+	}
+
+	/**
+	 * Get the month of a fixed date or a day of the week in a month rule
+	 * 
+	 * @return Month, or null for another type of rule
+	 */
+	public Month getMonth() {
+		return month;
+	}
+
+	/**
+	 * Get the day of the week of a weekly or a day of the week in a month rule
+	 * 
+	 * @return DayOfWeek, or null for another type of rule
+	 */
+	public DayOfWeek getDayOfWeek() {
+		return dayOfWeek;
+	}
+
+	/**
+	 * Get the occurrence of the day of the week in the month, from 1 to 5 or -1
+	 * for the last
+	 * 
+	 * @return Ordinal
+	 */
+	public int getOrdinal() {
+		return ordinal;
+	}
+
+	/**
+	 * Get the number of days from Easter Sunday of an Easter rule
+	 * 
+	 * @return Day offset
+	 */
+	public int getEasterOffset() {
+		return easterOffset;
+	}
+
+	/**
+	 * Get the starting time of day of each period
+	 * 
+	 * @return Start time
+	 */
+	public LocalTime getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * Get the duration of each period
+	 * 
+	 * @return Duration
+	 */
+	public Duration getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Get the work schedule that owns this rule
+	 * 
+	 * @return {@link WorkSchedule}
+	 */
+	public WorkSchedule getWorkSchedule() {
+		return workSchedule;
+	}
+
+	void setWorkSchedule(WorkSchedule workSchedule) {
+		this.workSchedule = workSchedule;
+	}
+
+	@Override
+	WorkSchedule getOwner() {
+		return workSchedule;
+	}
+
+	/**
+	 * Get the non-working periods of this rule that start in the year. The
+	 * periods are created on the first call for the year and are shared by later
+	 * calls.
+	 * 
+	 * @param year Year
+	 * @return Unmodifiable list of {@link NonWorkingPeriod} in starting date
+	 *         order
+	 * @throws Exception exception
+	 */
+	public List<NonWorkingPeriod> getPeriods(int year) throws Exception {
+		List<NonWorkingPeriod> periods = periodsByYear.get(year);
+
+		if (periods == null) {
+			periods = new ArrayList<>();
+
+			for (LocalDate date : getDates(year)) {
+				periods.add(new NonWorkingPeriod(getName(), getDescription(), LocalDateTime.of(date, startTime),
+						duration));
+			}
+			periods = Collections.unmodifiableList(periods);
+			periodsByYear.put(year, periods);
+		}
+		return periods;
+	}
+
+	// starting dates of the periods in the year
+	List<LocalDate> getDates(int year) {
+		List<LocalDate> dates = new ArrayList<>();
+
+		switch (type) {
+		case FIXED_DATE:
+			MonthDay monthDay = getMonthDay();
+
+			if (monthDay.isValidYear(year)) {
+				dates.add(monthDay.atYear(year));
+			}
+			break;
+
+		case WEEKDAY_OF_MONTH:
+			LocalDate first = LocalDate.of(year, month, 1);
+
+			if (ordinal < 0) {
+				dates.add(first.with(TemporalAdjusters.lastInMonth(dayOfWeek)));
+			} else {
+				LocalDate date = first.with(TemporalAdjusters.dayOfWeekInMonth(ordinal, dayOfWeek));
+
+				if (date.getMonth() == month) {
+					dates.add(date);
+				}
+			}
+			break;
+
+		case WEEKLY:
+			LocalDate day = LocalDate.of(year, 1, 1).with(TemporalAdjusters.nextOrSame(dayOfWeek));
+
+			while (day.getYear() == year) {
+				dates.add(day);
+				day = day.plusWeeks(1);
+			}
+			break;
+
+		case EASTER:
+			// an offset of up to a year can move the date into the year before or
+			// after
+			for (int y = year - 1; y <= year + 1; y++) {
+				LocalDate date = easterSunday(y).plusDays(easterOffset);
+
+				if (date.getYear() == year) {
+					dates.add(date);
+				}
+			}
+			break;
+
+		default:
+			break;
+		}
+		return dates;
+	}
+
+	// date of Easter Sunday in the Gregorian calendar (anonymous algorithm)
+	static LocalDate easterSunday(int year) {
+		int a = year % 19;
+		int b = year / 100;
+		int c = year % 100;
+		int d = b / 4;
+		int e = b % 4;
+		int f = (b + 8) / 25;
+		int g = (b - f + 1) / 3;
+		int h = (19 * a + b - d - g + 15) % 30;
+		int i = c / 4;
+		int k = c % 4;
+		int l = (32 + 2 * e + 2 * i - h - k) % 7;
+		int m = (a + 11 * h + 22 * l) / 451;
+		int month = (h + l - 7 * m + 114) / 31;
+		int day = (h + l - 7 * m + 114) % 31 + 1;
+
+		return LocalDate.of(year, month, day);
+	}
+
+	/**
+	 * Build a string representation of this non-working rule
+	 */
+	@Override
+	public String toString() {
+		return super.toString() + ", " + type + ", " + WorkSchedule.getMessage("period.start") + ": " + startTime + " ("
+				+ duration + ")";
+	}
+}
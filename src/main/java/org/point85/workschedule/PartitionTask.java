@@ -0,0 +1,133 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * Class PartitionTask evaluates a range of indexes, such as teams, days or
+ * buckets, by splitting it in halves on a fork/join pool until a part holds no
+ * more than the grain size. The results of the parts are merged from left to
+ * right, so the result does not depend on the order in which the parts run.
+ *
+ * @param <T> Type of the result
+ */
+final class PartitionTask<T> extends RecursiveTask<T> {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Evaluation of a part of the range
+	 *
+	 * @param <T> Type of the result
+	 */
+	interface Part<T> {
+		/**
+		 * Evaluate the indexes from low (inclusive) to high (exclusive)
+		 *
+		 * @param low  First index
+		 * @param high Index after the last one
+		 * @return Result
+		 * @throws Exception exception
+		 */
+		T evaluate(int low, int high) throws Exception;
+	}
+
+	// range of indexes
+	private final int low;
+	private final int high;
+
+	// largest range that is not split
+	private final int grain;
+
+	// evaluation of a part and merging of two adjacent results
+	private final Part<T> part;
+	private final BinaryOperator<T> merge;
+
+	private PartitionTask(int low, int high, int grain, Part<T> part, BinaryOperator<T> merge) {
+		this.low = low;
+		this.high = high;
+		this.grain = grain;
+		this.part = part;
+		this.merge = merge;
+	}
+
+	@Override
+	protected T compute() {
+		if (high - low <= grain) {
+			try {
+				return part.evaluate(low, high);
+			} catch (Exception e) {
+				throw new CompletionException(e);
+			}
+		}
+
+		int mid = (low + high) >>> 1;
+
+		PartitionTask<T> left = new PartitionTask<>(low, mid, grain, part, merge);
+		left.fork();
+		T right = new PartitionTask<>(mid, high, grain, part, merge).compute();
+
+		return merge.apply(left.join(), right);
+	}
+
+	/**
+	 * Evaluate the range on the pool, or in the calling thread if the range is
+	 * not larger than the grain size
+	 *
+	 * @param pool  Fork/join pool
+	 * @param low   First index
+	 * @param high  Index after the last one
+	 * @param grain Largest range that is not split, at least 1
+	 * @param part  Evaluation of a part
+	 * @param merge Merging of the results of two adjacent parts, left first
+	 * @return Result
+	 * @throws Exception exception
+	 */
+	static <T> T invoke(ForkJoinPool pool, int low, int high, int grain, Part<T> part, BinaryOperator<T> merge)
+			throws Exception {
+		if (high - low <= grain) {
+			return part.evaluate(low, high);
+		}
+
+		try {
+			return pool.invoke(new PartitionTask<>(low, high, grain, part, merge));
+		} catch (CompletionException e) {
+			// the exception may have been wrapped again when passed between threads
+			Throwable cause = e;
+
+			while (cause instanceof CompletionException && cause.getCause() != null) {
+				cause = cause.getCause();
+			}
+
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw e;
+		}
+	}
+}
@@ -42,8 +42,13 @@ public class Rotation extends Named implements Comparable<Rotation> {
 	// working periods in the rotation
 	private List<RotationSegment> rotationSegments = new ArrayList<>();
 
-	// list of working and non-working days
-	private transient List<TimePeriod> periods;
+	// working and non-working days with the pre-computed working time for one
+	// cycle of the rotation
+	private transient volatile RotationTable table;
+
+	// number of changes made to the segments while the rotation has no owning
+	// work schedule
+	private transient int unownedChangeCount;
 
 	// name of the day off time period
 	private static final String DAY_OFF_NAME = "DAY_OFF";
@@ -84,33 +89,82 @@ public class Rotation extends Named implements Comparable<Rotation> {
 	}
 
 	/**
-	 * Get the shifts and off-shifts in the rotation
+	 * Get the shifts and off-shifts in the rotation. The list is rebuilt after a
+	 * segment is added, removed or changed, or after a shift's start or duration
+	 * is changed.
 	 * 
-	 * @return List of periods
+	 * @return Unmodifiable list of periods
 	 */
 	public List<TimePeriod> getPeriods() {
-		if (periods == null) {
-			periods = new ArrayList<>();
+		return getTable().getPeriods();
+	}
 
-			// sort by sequence number
-			Collections.sort(rotationSegments);
+	// expand the segments into working and non-working days
+	private List<TimePeriod> expandPeriods() {
+		List<TimePeriod> periods = new ArrayList<>();
 
-			for (RotationSegment segment : rotationSegments) {
-				// add the on days
-				if (segment.getStartingShift() != null) {
-					for (int i = 0; i < segment.getDaysOn(); i++) {
-						periods.add(segment.getStartingShift());
-					}
+		// sort by sequence number
+		List<RotationSegment> segments = new ArrayList<>(rotationSegments);
+		Collections.sort(segments);
+
+		for (RotationSegment segment : segments) {
+			// add the on days
+			if (segment.getStartingShift() != null) {
+				for (int i = 0; i < segment.getDaysOn(); i++) {
+					periods.add(segment.getStartingShift());
 				}
+			}
+
+			// add the off days
+			for (int i = 0; i < segment.getDaysOff(); i++) {
+				periods.add(Rotation.DAY_OFF);
+			}
+		}
+		return periods;
+	}
 
-				// add the off days
-				for (int i = 0; i < segment.getDaysOff(); i++) {
-					periods.add(Rotation.DAY_OFF);
+	// version of the segments and shifts of the work schedule, with the segment
+	// count for segments added to or removed from the list directly. Without a
+	// work schedule, the rotation and its shifts are versioned by themselves.
+	private long getStamp() {
+		int version;
+
+		if (workSchedule != null) {
+			version = workSchedule.getPeriodChangeCount();
+		} else {
+			version = unownedChangeCount;
+
+			for (RotationSegment segment : rotationSegments) {
+				if (segment.getStartingShift() != null) {
+					version += segment.getStartingShift().getPeriodChangeCount();
 				}
 			}
 		}
+		return ((long) version << 32) | rotationSegments.size();
+	}
+
+	// get the pre-computed working time table for one cycle, rebuilding it if
+	// the rotation or the work schedule's list of shifts has changed
+	RotationTable getTable() {
+		RotationTable current = table;
+		long stamp = getStamp();
+		List<Shift> scheduleShifts = workSchedule != null ? workSchedule.getShifts() : Collections.emptyList();
+
+		if (current == null || current.getStamp() != stamp || current.getShiftCount() != scheduleShifts.size()) {
+			current = new RotationTable(expandPeriods(), scheduleShifts, stamp);
+			table = current;
+		}
+		return current;
+	}
 
-		return periods;
+	// mark the expanded periods and the shift instances of the work schedule as
+	// out of date
+	void segmentsChanged() {
+		if (workSchedule != null) {
+			workSchedule.periodChanged();
+		} else {
+			unownedChangeCount++;
+		}
 	}
 
 	/**
@@ -120,7 +174,7 @@ public class Rotation extends Named implements Comparable<Rotation> {
 	 */
 
 	public int getDayCount() {
-		return getPeriods().size();
+		return getTable().getDayCount();
 	}
 
 	/**
@@ -129,7 +183,7 @@ public class Rotation extends Named implements Comparable<Rotation> {
 	 * @return Duration
 	 */
 	public Duration getDuration() {
-		return Duration.ofDays(getPeriods().size());
+		return getTable().getDuration();
 	}
 
 	/**
@@ -138,14 +192,7 @@ public class Rotation extends Named implements Comparable<Rotation> {
 	 * @return Duration of working time
 	 */
 	public Duration getWorkingTime() {
-		Duration sum = Duration.ZERO;
-
-		for (TimePeriod period : getPeriods()) {
-			if (period.isWorkingPeriod()) {
-				sum = sum.plus(period.getDuration());
-			}
-		}
-		return sum;
+		return getTable().getWorkingTime();
 	}
 
 	/**
@@ -174,9 +221,31 @@ public class Rotation extends Named implements Comparable<Rotation> {
 		RotationSegment segment = new RotationSegment(startingShift, daysOn, daysOff, this);
 		rotationSegments.add(segment);
 		segment.setSequence(rotationSegments.size());
+		segmentsChanged();
+
+		if (startingShift.getWorkSchedule() != null) {
+			startingShift.getWorkSchedule().shiftUsed(segment);
+		}
 		return segment;
 	}
 
+	/**
+	 * Remove a working period from this rotation
+	 * 
+	 * @param segment {@link RotationSegment} to remove
+	 */
+	public void removeSegment(RotationSegment segment) {
+		if (rotationSegments.remove(segment)) {
+			segmentsChanged();
+
+			Shift shift = segment.getStartingShift();
+
+			if (shift != null && shift.getWorkSchedule() != null) {
+				shift.getWorkSchedule().shiftUnused(shift, segment);
+			}
+		}
+	}
+
 	/**
 	 * Get the work schedule that owns this rotation
 	 * 
@@ -188,6 +257,15 @@ public class Rotation extends Named implements Comparable<Rotation> {
 
 	void setWorkSchedule(WorkSchedule workSchedule) {
 		this.workSchedule = workSchedule;
+
+		// the table is now versioned by the new schedule
+		table = null;
+		segmentsChanged();
+	}
+
+	@Override
+	WorkSchedule getOwner() {
+		return workSchedule;
 	}
 
 	@Override
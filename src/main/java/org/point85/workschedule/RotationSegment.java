@@ -66,6 +66,13 @@ public class RotationSegment implements Comparable<RotationSegment> {
 		this.rotation = rotation;
 	}
 
+	// notify the rotation to rebuild its periods
+	private void changed() {
+		if (rotation != null) {
+			rotation.segmentsChanged();
+		}
+	}
+
 	/**
 	 * Get the starting shift
 	 * 
@@ -82,7 +89,18 @@ public class RotationSegment implements Comparable<RotationSegment> {
 	 *            {@link Shift}
 	 */
 	public void setStartingShift(Shift startingShift) {
+		Shift previous = this.startingShift;
 		this.startingShift = startingShift;
+		changed();
+
+		// update the shifts' usage
+		if (previous != null && previous.getWorkSchedule() != null) {
+			previous.getWorkSchedule().shiftUnused(previous, this);
+		}
+
+		if (startingShift != null && startingShift.getWorkSchedule() != null) {
+			startingShift.getWorkSchedule().shiftUsed(this);
+		}
 	}
 
 	/**
@@ -102,6 +120,7 @@ public class RotationSegment implements Comparable<RotationSegment> {
 	 */
 	public void setDaysOn(int daysOn) {
 		this.daysOn = daysOn;
+		changed();
 	}
 
 	/**
@@ -121,6 +140,7 @@ public class RotationSegment implements Comparable<RotationSegment> {
 	 */
 	public void setDaysOff(int daysOff) {
 		this.daysOff = daysOff;
+		changed();
 	}
 
 	/**
@@ -168,6 +188,7 @@ public class RotationSegment implements Comparable<RotationSegment> {
 	 */
 	public void setSequence(int sequence) {
 		this.sequence = sequence;
+		changed();
 	}
 
 	/**
@@ -0,0 +1,483 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class RotationTable is an immutable, pre-computed view of one cycle of a
+ * {@link Rotation}. For each day in the cycle it holds the working shift's
+ * starting and ending second (relative to midnight of that day) together with
+ * the cumulative working seconds up to the start of that day. Time after
+ * midnight of a shift that crosses midnight is credited to the following day,
+ * and from the last day of the cycle to the first day of the next cycle.
+ *
+ * The working time up to any second measured from the start of the rotation
+ * can then be computed in constant time. The table is shared by all teams on the
+ * rotation and is safe to publish between threads.
+ */
+final class RotationTable {
+	static final int SECONDS_PER_DAY = 86400;
+
+	// version of the rotation that the table was built from
+	private final long stamp;
+
+	// unmodifiable list of working and non-working days
+	private final List<TimePeriod> periods;
+
+	// length of the cycle and the working time in it
+	private final Duration duration;
+	private final Duration workingTime;
+
+	// working shift for each day, null for a day off
+	private final Shift[] shifts;
+
+	// index of each day's shift in the work schedule's list of shifts, -1 for a
+	// day off or a shift not in the list
+	private final int[] shiftIndexes;
+
+	// size of the work schedule's list of shifts that the indexes refer to
+	private final int shiftCount;
+
+	// starting second of day of each day's shift
+	private final int[] starts;
+
+	// ending second of each day's shift, relative to midnight of that day. Can
+	// be greater than SECONDS_PER_DAY for a shift that crosses midnight.
+	private final int[] ends;
+
+	// working seconds from the start of the cycle to midnight of each day,
+	// one more entry than the number of days
+	private final long[] cumulative;
+
+	// working seconds before midnight on the first day of the cycle that spill
+	// over from the last day of the previous cycle
+	private final int wrapSeconds;
+
+	// days from each day to the next working day and back to the previous one
+	// (including the day itself), wrapping around the cycle. -1 if no day is
+	// worked.
+	private final int[] daysToNext;
+	private final int[] daysToPrevious;
+
+	// breaks of each day's shift, null for a day off
+	private final BreakTable[] breakTables;
+
+	// break seconds of the shifts starting before each day, one more entry than
+	// the number of days
+	private final long[] breakCumulative;
+
+	RotationTable(List<TimePeriod> periods, List<Shift> scheduleShifts, long stamp) {
+		int dayCount = periods.size();
+
+		this.stamp = stamp;
+		this.periods = Collections.unmodifiableList(new ArrayList<>(periods));
+		this.duration = Duration.ofDays(dayCount);
+
+		shifts = new Shift[dayCount];
+		starts = new int[dayCount];
+		ends = new int[dayCount];
+		cumulative = new long[dayCount + 1];
+
+		Duration working = Duration.ZERO;
+
+		for (int i = 0; i < dayCount; i++) {
+			TimePeriod period = periods.get(i);
+
+			if (period.isWorkingPeriod()) {
+				Shift shift = (Shift) period;
+				shifts[i] = shift;
+				starts[i] = period.getStartSecond();
+				ends[i] = starts[i] + (int) period.getDuration().getSeconds();
+				working = working.plus(period.getDuration());
+			}
+		}
+		workingTime = working;
+
+		// ordinal of each shift in the work schedule, first occurrence wins
+		Map<Shift, Integer> ordinals = new IdentityHashMap<>();
+
+		for (int i = scheduleShifts.size() - 1; i >= 0; i--) {
+			ordinals.put(scheduleShifts.get(i), i);
+		}
+		shiftCount = scheduleShifts.size();
+		shiftIndexes = new int[dayCount];
+
+		for (int i = 0; i < dayCount; i++) {
+			Integer ordinal = shifts[i] != null ? ordinals.get(shifts[i]) : null;
+			shiftIndexes[i] = ordinal != null ? ordinal : -1;
+		}
+
+		wrapSeconds = dayCount > 0 ? spillSeconds(dayCount - 1) : 0;
+
+		daysToNext = new int[dayCount];
+		daysToPrevious = new int[dayCount];
+		Arrays.fill(daysToNext, -1);
+		Arrays.fill(daysToPrevious, -1);
+
+		// two passes to wrap around the cycle
+		int lastWorking = -1;
+
+		for (int i = 0; i < 2 * dayCount; i++) {
+			if (shifts[i % dayCount] != null) {
+				lastWorking = i;
+			}
+
+			if (lastWorking >= 0 && i >= dayCount) {
+				daysToPrevious[i - dayCount] = i - lastWorking;
+			}
+		}
+
+		int nextWorking = -1;
+
+		for (int i = 2 * dayCount - 1; i >= 0; i--) {
+			if (shifts[i % dayCount] != null) {
+				nextWorking = i;
+			}
+
+			if (nextWorking >= 0 && i < dayCount) {
+				daysToNext[i] = nextWorking - i;
+			}
+		}
+
+		for (int i = 0; i < dayCount; i++) {
+			cumulative[i + 1] = cumulative[i] + workingSecondsInDay(i, SECONDS_PER_DAY);
+		}
+
+		breakTables = new BreakTable[dayCount];
+		breakCumulative = new long[dayCount + 1];
+
+		for (int i = 0; i < dayCount; i++) {
+			long breakSeconds = 0;
+
+			if (shifts[i] != null) {
+				breakTables[i] = shifts[i].getBreakTable();
+				breakSeconds = breakTables[i].getTotalSeconds();
+			}
+			breakCumulative[i + 1] = breakCumulative[i] + breakSeconds;
+		}
+	}
+
+	/**
+	 * Get the version of the rotation that this table was built from
+	 *
+	 * @return Stamp
+	 */
+	long getStamp() {
+		return stamp;
+	}
+
+	/**
+	 * Get the working and non-working days of the cycle
+	 *
+	 * @return Unmodifiable list of periods
+	 */
+	List<TimePeriod> getPeriods() {
+		return periods;
+	}
+
+	/**
+	 * Get the length of the cycle
+	 *
+	 * @return Duration
+	 */
+	Duration getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Get the total working time in the cycle
+	 *
+	 * @return Duration of working time
+	 */
+	Duration getWorkingTime() {
+		return workingTime;
+	}
+
+	/**
+	 * Get the number of days in the cycle
+	 *
+	 * @return Day count
+	 */
+	int getDayCount() {
+		return shifts.length;
+	}
+
+	/**
+	 * Get the working seconds in one cycle
+	 *
+	 * @return Working seconds
+	 */
+	long getWorkingSeconds() {
+		return cumulative[shifts.length];
+	}
+
+	/**
+	 * Get the working shift for the day in the cycle
+	 *
+	 * @param dayIndex Zero-based day in the cycle
+	 * @return {@link Shift} or null if a day off
+	 */
+	Shift getShift(int dayIndex) {
+		return shifts[dayIndex];
+	}
+
+	/**
+	 * Get the index of the working shift for the day in the cycle in the work
+	 * schedule's list of shifts
+	 *
+	 * @param dayIndex Zero-based day in the cycle
+	 * @return Index of the {@link Shift}, or -1 if a day off
+	 */
+	int getShiftIndex(int dayIndex) {
+		return shiftIndexes[dayIndex];
+	}
+
+	/**
+	 * Get the size of the work schedule's list of shifts when the table was built
+	 *
+	 * @return Shift count
+	 */
+	int getShiftCount() {
+		return shiftCount;
+	}
+
+	/**
+	 * Get the starting second of day of the working shift for the day in the
+	 * cycle
+	 *
+	 * @param dayIndex Zero-based day in the cycle
+	 * @return Second of day
+	 */
+	int getStartSecond(int dayIndex) {
+		return starts[dayIndex];
+	}
+
+	/**
+	 * Get the ending second of the working shift for the day in the cycle,
+	 * relative to midnight of that day
+	 *
+	 * @param dayIndex Zero-based day in the cycle
+	 * @return Ending second, greater than a day's seconds if the shift crosses
+	 *         midnight
+	 */
+	int getEndSecond(int dayIndex) {
+		return ends[dayIndex];
+	}
+
+	/**
+	 * Get the number of days from the day in the cycle to the next working day,
+	 * which is 0 if the day is worked
+	 *
+	 * @param dayIndex Zero-based day in the cycle
+	 * @return Day count, or -1 if no day in the cycle is worked
+	 */
+	int getDaysToNextShift(int dayIndex) {
+		return daysToNext[dayIndex];
+	}
+
+	/**
+	 * Get the number of days from the day in the cycle back to the previous
+	 * working day, which is 0 if the day is worked
+	 *
+	 * @param dayIndex Zero-based day in the cycle
+	 * @return Day count, or -1 if no day in the cycle is worked
+	 */
+	int getDaysToPreviousShift(int dayIndex) {
+		return daysToPrevious[dayIndex];
+	}
+
+	/**
+	 * Get the breaks of the working shift for the day in the cycle
+	 *
+	 * @param dayIndex Zero-based day in the cycle
+	 * @return {@link BreakTable} or null if a day off
+	 */
+	BreakTable getBreakTable(int dayIndex) {
+		return breakTables[dayIndex];
+	}
+
+	// working seconds after midnight for this day's shift
+	private int spillSeconds(int dayIndex) {
+		int spill = ends[dayIndex] - SECONDS_PER_DAY;
+		return (shifts[dayIndex] != null && spill > 0) ? spill : 0;
+	}
+
+	// working seconds from midnight to the second of day in this day
+	private long workingSecondsInDay(int dayIndex, int secondOfDay) {
+		long sum = 0;
+
+		// spill-over from the prior day
+		int spill = dayIndex > 0 ? spillSeconds(dayIndex - 1) : wrapSeconds;
+		sum += Math.min(secondOfDay, spill);
+
+		// this day's shift up to midnight
+		if (shifts[dayIndex] != null) {
+			int end = Math.min(secondOfDay, Math.min(ends[dayIndex], SECONDS_PER_DAY));
+
+			if (end > starts[dayIndex]) {
+				sum += end - starts[dayIndex];
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Get the working seconds from the start of the rotation to the specified
+	 * second. The rotation is assumed to be repeating forever, but no time is
+	 * worked before it starts.
+	 *
+	 * @param second Seconds from midnight of the rotation's starting day
+	 * @return Working seconds
+	 */
+	long workingSecondsTo(long second) {
+		int dayCount = shifts.length;
+
+		if (second <= 0 || dayCount == 0) {
+			return 0;
+		}
+
+		long cycleSeconds = (long) dayCount * SECONDS_PER_DAY;
+		long cycles = second / cycleSeconds;
+		long inCycle = second % cycleSeconds;
+
+		int dayIndex = (int) (inCycle / SECONDS_PER_DAY);
+		int secondOfDay = (int) (inCycle % SECONDS_PER_DAY);
+
+		long sum = cycles * getWorkingSeconds() + cumulative[dayIndex] + workingSecondsInDay(dayIndex, secondOfDay);
+
+		// nothing spills over into the first day of the first cycle
+		return sum - Math.min(second, wrapSeconds);
+	}
+
+	/**
+	 * Get the working seconds of several rotations, each from its own starting
+	 * second, up to the specified epoch second
+	 *
+	 * @param tables          Table of each rotation
+	 * @param rotationSeconds Epoch second of midnight of each rotation's starting
+	 *                        day
+	 * @param second          Epoch second
+	 * @return Working seconds
+	 */
+	static long workingSecondsTo(RotationTable[] tables, long[] rotationSeconds, long second) {
+		long sum = 0;
+
+		for (int i = 0; i < tables.length; i++) {
+			sum += tables[i].workingSecondsTo(second - rotationSeconds[i]);
+		}
+		return sum;
+	}
+
+	/**
+	 * Get the first second at which the working time from the start of the
+	 * rotation reaches the target, the inverse of {@link #workingSecondsTo(long)}.
+	 * Whole cycles are skipped arithmetically and the second is then found by a
+	 * binary search within one cycle.
+	 *
+	 * @param target Working seconds from the start of the rotation
+	 * @return Seconds from midnight of the rotation's starting day, or -1 if no
+	 *         time is worked in the rotation
+	 */
+	long secondAtWorking(long target) {
+		if (target <= 0) {
+			return 0;
+		}
+
+		long cycleWorking = getWorkingSeconds();
+
+		if (cycleWorking == 0) {
+			return -1;
+		}
+
+		// the last whole cycle that ends short of the target
+		long cycleSeconds = (long) shifts.length * SECONDS_PER_DAY;
+		long cycles = (target + wrapSeconds - 1) / cycleWorking;
+
+		long low = cycles * cycleSeconds;
+		long high = low + cycleSeconds;
+
+		while (low < high) {
+			long mid = (low + high) >>> 1;
+
+			if (workingSecondsTo(mid) >= target) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Get the break seconds from the start of the rotation to the specified
+	 * second, the break time taken in the shifts worked up to then. Whole cycles
+	 * and days come from the cumulative break time, and the shifts in progress
+	 * are searched in their break tables.
+	 *
+	 * @param second Seconds from midnight of the rotation's starting day
+	 * @return Break seconds
+	 */
+	long breakSecondsTo(long second) {
+		int dayCount = shifts.length;
+
+		if (second <= 0 || dayCount == 0) {
+			return 0;
+		}
+
+		long cycleSeconds = (long) dayCount * SECONDS_PER_DAY;
+		long cycles = second / cycleSeconds;
+		long inCycle = second % cycleSeconds;
+
+		int dayIndex = (int) (inCycle / SECONDS_PER_DAY);
+		int secondOfDay = (int) (inCycle % SECONDS_PER_DAY);
+
+		long sum = cycles * breakCumulative[dayCount] + breakCumulative[dayIndex];
+
+		// this day's shift up to the second
+		if (breakTables[dayIndex] != null) {
+			sum += breakTables[dayIndex].secondsTo(secondOfDay - starts[dayIndex]);
+		}
+
+		// less the prior day's breaks that are still to come
+		if (cycles > 0 || dayIndex > 0) {
+			int prior = dayIndex > 0 ? dayIndex - 1 : dayCount - 1;
+			BreakTable breaks = breakTables[prior];
+
+			if (breaks != null) {
+				sum -= breaks.getTotalSeconds()
+						- breaks.secondsTo((long) secondOfDay + SECONDS_PER_DAY - starts[prior]);
+			}
+		}
+		return sum;
+	}
+}
+
@@ -43,6 +43,12 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 	// breaks
 	private List<Break> breaks = new ArrayList<>();
 
+	// name index of the breaks
+	private final transient NameIndex<Break> breakNames = new NameIndex<>(this);
+
+	// breaks as offsets from the start of the shift
+	private transient volatile BreakTable breakTable;
+
 	/**
 	 * Default constructor
 	 */
@@ -70,11 +76,25 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 	 *            {@link Break}
 	 */
 	public void addBreak(Break breakPeriod) {
-		if (!this.breaks.contains(breakPeriod)) {
+		if (getBreak(breakPeriod.getName()) == null) {
 			this.breaks.add(breakPeriod);
+			breakPeriod.setShift(this);
+			breakNames.added(breaks, breakPeriod);
+			periodChanged();
 		}
 	}
 
+	/**
+	 * Get the break with the specified name
+	 * 
+	 * @param name
+	 *            Name of break
+	 * @return {@link Break}, or null if not found
+	 */
+	public Break getBreak(String name) {
+		return breakNames.get(breaks, name);
+	}
+
 	/**
 	 * Remove a break from this shift
 	 * 
@@ -84,6 +104,8 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 	public void removeBreak(Break breakPeriod) {
 		if (this.breaks.contains(breakPeriod)) {
 			this.breaks.remove(breakPeriod);
+			breakPeriod.setShift(null);
+			periodChanged();
 		}
 	}
 
@@ -108,16 +130,6 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 		return period;
 	}
 
-	private int toRoundedSecond(LocalTime time) {
-		int second = time.toSecondOfDay();
-
-		if (time.getNano() > 500E+06) {
-			second++;
-		}
-
-		return second;
-	}
-
 	/**
 	 * Calculate the working time between the specified times of day. The shift
 	 * must not span midnight.
@@ -148,9 +160,7 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 	 *             exception
 	 */
 	public boolean spansMidnight() throws Exception {
-		int startSecond = toRoundedSecond(getStart());
-		int endSecond = toRoundedSecond(getEnd());
-		return endSecond <= startSecond ? true : false;
+		return getEndSecond() <= getStartSecond();
 	}
 
 	/**
@@ -168,17 +178,33 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 	 *             exception
 	 */
 	public Duration calculateWorkingTime(LocalTime from, LocalTime to, boolean beforeMidnight) throws Exception {
-		Duration duration = Duration.ZERO;
+		return Duration.ofSeconds(calculateWorkingSeconds(toRoundedSecond(from), toRoundedSecond(to), beforeMidnight));
+	}
 
-		int startSecond = toRoundedSecond(getStart());
-		int endSecond = toRoundedSecond(getEnd());
-		int fromSecond = toRoundedSecond(from);
-		int toSecond = toRoundedSecond(to);
+	/**
+	 * Calculate the working seconds between the specified seconds of day. This is
+	 * the same as {@link #calculateWorkingTime(LocalTime, LocalTime, boolean)}
+	 * without creating any objects.
+	 * 
+	 * @param fromSecondOfDay
+	 *            Starting second of day
+	 * @param toSecondOfDay
+	 *            Ending second of day
+	 * @param beforeMidnight
+	 *            If true, and a shift spans midnight, calculate the time before
+	 *            midnight. Otherwise calculate the time after midnight.
+	 * @return Working seconds
+	 */
+	public long calculateWorkingSeconds(int fromSecondOfDay, int toSecondOfDay, boolean beforeMidnight) {
+		int startSecond = getStartSecond();
+		int endSecond = getEndSecond();
+		int fromSecond = fromSecondOfDay;
+		int toSecond = toSecondOfDay;
 
 		int delta = toSecond - fromSecond;
 
 		// check for 24 hour shift
-		if (delta == 0 && fromSecond == startSecond && getDuration().toHours() == 24) {
+		if (delta == 0 && fromSecond == startSecond && getDuration().getSeconds() == 86400) {
 			delta = 86400;
 		}
 
@@ -186,7 +212,7 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 			delta = 86400 + toSecond - fromSecond;
 		}
 
-		if (spansMidnight()) {
+		if (endSecond <= startSecond) {
 			// adjust for shift crossing midnight
 			if (fromSecond < startSecond && fromSecond < endSecond) {
 				if (!beforeMidnight) {
@@ -214,9 +240,7 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 			toSecond = endSecond;
 		}
 
-		duration = Duration.ofSeconds(toSecond - fromSecond);
-
-		return duration;
+		return toSecond - fromSecond;
 	}
 
 	/**
@@ -276,6 +300,19 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 		return sum;
 	}
 
+	// get the pre-computed break offsets, rebuilding them if a break or the
+	// shift has changed
+	BreakTable getBreakTable() {
+		BreakTable current = breakTable;
+		long stamp = ((long) getPeriodChangeCount() << 32) | breaks.size();
+
+		if (current == null || current.getStamp() != stamp) {
+			current = new BreakTable(this, stamp);
+			breakTable = current;
+		}
+		return current;
+	}
+
 	/**
 	 * Get the work schedule that owns this shift
 	 * 
@@ -287,6 +324,15 @@ public class Shift extends TimePeriod implements Comparable<Shift> {
 
 	void setWorkSchedule(WorkSchedule workSchedule) {
 		this.workSchedule = workSchedule;
+
+		// the break table is now versioned by the new schedule
+		breakTable = null;
+		periodChanged();
+	}
+
+	@Override
+	WorkSchedule getOwner() {
+		return workSchedule;
 	}
 
 	/**
@@ -24,7 +24,10 @@ SOFTWARE.
 
 package org.point85.workschedule;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Class ShiftInstance is an instance of a {@link Shift}. A shift instance is
@@ -43,12 +46,23 @@ public class ShiftInstance implements Comparable<ShiftInstance> {
 	// start date and time of day
 	private LocalDateTime startDateTime;
 
+	// duration and breaks of a compiled schedule's snapshot, null to use the
+	// shift's current ones
+	private Duration duration;
+	private BreakTable breakTable;
+
 	ShiftInstance(Shift shift, LocalDateTime startDateTime, Team team) {
 		this.shift = shift;
 		this.startDateTime = startDateTime;
 		this.team = team;
 	}
 
+	ShiftInstance(Shift shift, LocalDateTime startDateTime, Team team, Duration duration, BreakTable breakTable) {
+		this(shift, startDateTime, team);
+		this.duration = duration;
+		this.breakTable = breakTable;
+	}
+
 	/**
 	 * Get the shift for this instance
 	 * 
@@ -73,7 +87,25 @@ public class ShiftInstance implements Comparable<ShiftInstance> {
 	 * @return LocalDateTime
 	 */
 	public LocalDateTime getEndTime() {
-		return startDateTime.plus(shift.getDuration());
+		return startDateTime.plus(duration != null ? duration : shift.getDuration());
+	}
+
+	/**
+	 * Get the instances of the shift's breaks taken during this shift instance,
+	 * in starting time order. A break that would last beyond the end of the
+	 * shift ends with the shift.
+	 * 
+	 * @return List of {@link BreakInstance}
+	 */
+	public List<BreakInstance> getBreakInstances() {
+		BreakTable breaks = breakTable != null ? breakTable : shift.getBreakTable();
+		List<BreakInstance> instances = new ArrayList<>(breaks.size());
+
+		for (int i = 0; i < breaks.size(); i++) {
+			instances.add(new BreakInstance(breaks.getBreak(i), this, startDateTime.plusSeconds(breaks.getStart(i)),
+					startDateTime.plusSeconds(breaks.getEnd(i))));
+		}
+		return instances;
 	}
 
 	/**
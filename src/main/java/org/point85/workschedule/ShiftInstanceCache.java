@@ -0,0 +1,125 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package org.point85.workschedule;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class ShiftInstanceCache is a bounded cache of the shift instances of a work
+ * schedule by epoch day, evicting the least recently used day when full. The
+ * cached lists are unmodifiable. The cache is cleared when the version stamps
+ * of the schedule passed with a lookup differ from those of the cached days.
+ */
+final class ShiftInstanceCache {
+	// maximum number of days held
+	private final int capacity;
+
+	// instances by epoch day in access order
+	private final Map<Long, List<ShiftInstance>> days;
+
+	// version stamps of the schedule for the cached days
+	private long periodStamp = -1;
+	private long scheduleStamp = -1;
+	private long nonWorkingStamp = -1;
+
+	// lookup counters
+	private long hits = 0;
+	private long misses = 0;
+
+	ShiftInstanceCache(int capacity) {
+		this.capacity = capacity;
+		this.days = new LinkedHashMap<Long, List<ShiftInstance>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, List<ShiftInstance>> eldest) {
+				return size() > ShiftInstanceCache.this.capacity;
+			}
+		};
+	}
+
+	// clear the days if the schedule has changed
+	private void validate(long periodStamp, long scheduleStamp, long nonWorkingStamp) {
+		if (this.periodStamp != periodStamp || this.scheduleStamp != scheduleStamp
+				|| this.nonWorkingStamp != nonWorkingStamp) {
+			days.clear();
+			this.periodStamp = periodStamp;
+			this.scheduleStamp = scheduleStamp;
+			this.nonWorkingStamp = nonWorkingStamp;
+		}
+	}
+
+	/**
+	 * Get the cached instances for the day
+	 *
+	 * @param epochDay        Epoch day
+	 * @param periodStamp     Version of the shifts and rotations
+	 * @param scheduleStamp   Version of the teams and non-working periods
+	 * @param nonWorkingStamp Version of the non-working periods and rules
+	 * @return Unmodifiable list of {@link ShiftInstance}, or null if not cached
+	 */
+	synchronized List<ShiftInstance> get(long epochDay, long periodStamp, long scheduleStamp, long nonWorkingStamp) {
+		validate(periodStamp, scheduleStamp, nonWorkingStamp);
+
+		List<ShiftInstance> instances = days.get(epochDay);
+
+		if (instances != null) {
+			hits++;
+		} else {
+			misses++;
+		}
+		return instances;
+	}
+
+	/**
+	 * Cache the instances for the day
+	 *
+	 * @param epochDay        Epoch day
+	 * @param instances       Unmodifiable list of {@link ShiftInstance}
+	 * @param periodStamp     Version of the shifts and rotations
+	 * @param scheduleStamp   Version of the teams and non-working periods
+	 * @param nonWorkingStamp Version of the non-working periods and rules
+	 */
+	synchronized void put(long epochDay, List<ShiftInstance> instances, long periodStamp, long scheduleStamp,
+			long nonWorkingStamp) {
+		validate(periodStamp, scheduleStamp, nonWorkingStamp);
+		days.put(epochDay, instances);
+	}
+
+	int getCapacity() {
+		return capacity;
+	}
+
+	synchronized long getHits() {
+		return hits;
+	}
+
+	synchronized long getMisses() {
+		return misses;
+	}
+}
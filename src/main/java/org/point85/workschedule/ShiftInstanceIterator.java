@@ -0,0 +1,153 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.text.MessageFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Class ShiftInstanceIterator generates the shift instances of one or more
+ * teams day by day, ordered by starting time. Only the instances for the
+ * current day are held in memory. Instances that start on a date in a
+ * non-working period are skipped.
+ */
+final class ShiftInstanceIterator implements Iterator<ShiftInstance> {
+	// teams and their rotation tables
+	private final Team[] teams;
+	private final RotationTable[] tables;
+
+	// non-working periods, or null for none
+	private final NonWorkingIndex nonWorkingIndex;
+
+	// next day to generate and the last day
+	private long nextDay;
+	private final long lastDay;
+
+	// instances for the current day
+	private final List<ShiftInstance> dayInstances = new ArrayList<>();
+	private int position = 0;
+
+	private ShiftInstanceIterator(List<Team> teamList, LocalDate from, LocalDate to, NonWorkingIndex nonWorkingIndex)
+			throws Exception {
+		if (from.isAfter(to)) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), from, to);
+			throw new Exception(msg);
+		}
+
+		int count = teamList.size();
+		this.teams = teamList.toArray(new Team[count]);
+		this.tables = new RotationTable[count];
+
+		for (int i = 0; i < count; i++) {
+			tables[i] = teams[i].getRotation().getTable();
+
+			if (tables[i].getDayCount() > 0 && from.isBefore(teams[i].getRotationStart())) {
+				String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"),
+						teams[i].getRotationStart(), from);
+				throw new Exception(msg);
+			}
+		}
+
+		this.nonWorkingIndex = nonWorkingIndex;
+		this.nextDay = from.toEpochDay();
+		this.lastDay = to.toEpochDay();
+	}
+
+	/**
+	 * Create a lazily evaluated, ordered stream of shift instances
+	 *
+	 * @param teams           Teams working the instances
+	 * @param from            Starting date
+	 * @param to              Ending date (inclusive)
+	 * @param nonWorkingIndex Non-working periods to skip, or null
+	 * @return Stream of {@link ShiftInstance}
+	 * @throws Exception exception
+	 */
+	static Stream<ShiftInstance> stream(List<Team> teams, LocalDate from, LocalDate to,
+			NonWorkingIndex nonWorkingIndex) throws Exception {
+		Iterator<ShiftInstance> iterator = new ShiftInstanceIterator(teams, from, to, nonWorkingIndex);
+		int characteristics = Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.SORTED;
+
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, characteristics), false);
+	}
+
+	// generate the instances for the next day that has any
+	private void advance() {
+		while (position >= dayInstances.size() && nextDay <= lastDay) {
+			dayInstances.clear();
+			position = 0;
+
+			long epochDay = nextDay++;
+
+			if (nonWorkingIndex != null && nonWorkingIndex.containsDay(epochDay)) {
+				continue;
+			}
+
+			LocalDate day = LocalDate.ofEpochDay(epochDay);
+
+			for (int i = 0; i < teams.length; i++) {
+				int dayCount = tables[i].getDayCount();
+
+				if (dayCount == 0) {
+					continue;
+				}
+
+				long deltaDays = epochDay - teams[i].getRotationStart().toEpochDay();
+				Shift shift = tables[i].getShift((int) (deltaDays % dayCount));
+
+				if (shift != null) {
+					dayInstances.add(new ShiftInstance(shift, LocalDateTime.of(day, shift.getStart()), teams[i]));
+				}
+			}
+
+			// same day instances in starting time order
+			Collections.sort(dayInstances);
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		advance();
+		return position < dayInstances.size();
+	}
+
+	@Override
+	public ShiftInstance next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return dayInstances.get(position++);
+	}
+}
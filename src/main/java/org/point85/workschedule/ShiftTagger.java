@@ -0,0 +1,192 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Class ShiftTagger assigns time stamps in ascending order to the shift
+ * instance in progress at each time stamp, for example to tag machine events
+ * with their shift and team. A cursor is advanced over the starting and ending
+ * times of the instances, so each time stamp is tagged in amortized constant
+ * time. An instance includes its starting time but not its ending time. If
+ * instances of more than one team are in progress, the one that started last
+ * is chosen. Instances that start on a date in a non-working period are not
+ * tagged.
+ * 
+ * A tagger is created by {@link WorkSchedule#createShiftTagger()} and does not
+ * see later changes to the schedule. It is not safe for use by more than one
+ * thread.
+ */
+public class ShiftTagger {
+	private static final long MILLIS_PER_SECOND = 1000;
+
+	// teams working the instances
+	private final List<Team> teams;
+
+	// non-working periods and rules of the schedule
+	private final NonWorkingCalendar nonWorkingCalendar;
+
+	// shift and non-working period transitions from the cursor position
+	private Iterator<ShiftTransition> transitions;
+
+	// next transition not applied yet, or null if none
+	private ShiftTransition next;
+
+	// last time stamp tagged, in epoch milliseconds
+	private long lastMilli = Long.MIN_VALUE;
+
+	// instances in progress in starting time order and their ids, -1 if not
+	// tagged yet
+	private final List<ShiftInstance> active = new ArrayList<>();
+	private final List<Integer> activeIds = new ArrayList<>();
+
+	// tagged instances by id
+	private final List<ShiftInstance> instances = new ArrayList<>();
+
+	ShiftTagger(List<Team> teams, NonWorkingCalendar nonWorkingCalendar) {
+		this.teams = new ArrayList<>(teams);
+		this.nonWorkingCalendar = nonWorkingCalendar;
+	}
+
+	// move the cursor to the time stamp
+	private void advanceTo(long epochMilli) {
+		if (transitions == null || epochMilli < lastMilli) {
+			// start over, an instance in progress started within the prior day
+			long after = Math.floorDiv(epochMilli, MILLIS_PER_SECOND) - RotationTable.SECONDS_PER_DAY - 1;
+			transitions = TransitionIterator.stream(teams, after, nonWorkingCalendar).iterator();
+			next = transitions.hasNext() ? transitions.next() : null;
+			active.clear();
+			activeIds.clear();
+		}
+		lastMilli = epochMilli;
+
+		while (next != null && next.getEpochSecond() * MILLIS_PER_SECOND <= epochMilli) {
+			if (next.getType() == TransitionType.SHIFT_START) {
+				active.add(next.getShiftInstance());
+				activeIds.add(-1);
+			} else if (next.getType() == TransitionType.SHIFT_END) {
+				// not present if it started before the cursor was positioned
+				for (int i = 0; i < active.size(); i++) {
+					if (active.get(i) == next.getShiftInstance()) {
+						active.remove(i);
+						activeIds.remove(i);
+						break;
+					}
+				}
+			}
+			next = transitions.hasNext() ? transitions.next() : null;
+		}
+	}
+
+	// id of the instance in progress at the cursor, or -1 if none
+	private int tagAt(long epochMilli) {
+		advanceTo(epochMilli);
+
+		int last = active.size() - 1;
+
+		if (last < 0) {
+			return -1;
+		}
+
+		int id = activeIds.get(last);
+
+		if (id < 0) {
+			id = instances.size();
+			instances.add(active.get(last));
+			activeIds.set(last, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Get the shift instance in progress at the specified time stamp. Time stamps
+	 * are expected in ascending order. An earlier time stamp is allowed, but
+	 * moves the cursor back to it at a higher cost.
+	 * 
+	 * @param epochMilli Milliseconds from the epoch in the calculation time zone
+	 *                   (UTC)
+	 * @return {@link ShiftInstance}, or null if no instance is in progress
+	 */
+	public ShiftInstance tag(long epochMilli) {
+		int id = tagAt(epochMilli);
+		return id >= 0 ? instances.get(id) : null;
+	}
+
+	/**
+	 * Get the shift instance in progress at the specified date and time of day
+	 * 
+	 * @param dateTime Date and time of day
+	 * @return {@link ShiftInstance}, or null if no instance is in progress
+	 */
+	public ShiftInstance tag(LocalDateTime dateTime) {
+		long epochMilli = dateTime.toEpochSecond(ZoneOffset.UTC) * MILLIS_PER_SECOND
+				+ dateTime.getNano() / 1000000;
+		return tag(epochMilli);
+	}
+
+	/**
+	 * Tag an array of ascending time stamps with the ids of the shift instances
+	 * in progress. The instance for an id is obtained with
+	 * {@link #getInstance(int)}.
+	 * 
+	 * @param epochMillis Milliseconds from the epoch in the calculation time zone
+	 *                    (UTC)
+	 * @return Instance id for each time stamp, or -1 if no instance is in
+	 *         progress
+	 */
+	public int[] tag(long[] epochMillis) {
+		int[] ids = new int[epochMillis.length];
+
+		for (int i = 0; i < epochMillis.length; i++) {
+			ids[i] = tagAt(epochMillis[i]);
+		}
+		return ids;
+	}
+
+	/**
+	 * Get a shift instance by its id
+	 * 
+	 * @param id Id returned by {@link #tag(long[])}
+	 * @return {@link ShiftInstance}
+	 */
+	public ShiftInstance getInstance(int id) {
+		return instances.get(id);
+	}
+
+	/**
+	 * Get the number of distinct shift instances tagged so far, which is one more
+	 * than the largest id
+	 * 
+	 * @return Instance count
+	 */
+	public int getInstanceCount() {
+		return instances.size();
+	}
+}
@@ -0,0 +1,142 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package org.point85.workschedule;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Class ShiftTransition is a point in time at which a shift instance or one of
+ * its breaks starts or ends, or at which a non-working period of the work
+ * schedule starts or ends. Overlapping and adjoining non-working periods are
+ * treated as one.
+ */
+public class ShiftTransition implements Comparable<ShiftTransition> {
+	// epoch second in the calculation time zone (UTC)
+	private final long epochSecond;
+
+	// kind of boundary
+	private final TransitionType type;
+
+	// shift instance, or null for a non-working period boundary
+	private final ShiftInstance instance;
+
+	// break, or null if not a break boundary
+	private final Break breakPeriod;
+
+	ShiftTransition(long epochSecond, TransitionType type, ShiftInstance instance, Break breakPeriod) {
+		this.epochSecond = epochSecond;
+		this.type = type;
+		this.instance = instance;
+		this.breakPeriod = breakPeriod;
+	}
+
+	long getEpochSecond() {
+		return epochSecond;
+	}
+
+	/**
+	 * Get the date and time of day of the transition
+	 * 
+	 * @return LocalDateTime
+	 */
+	public LocalDateTime getTime() {
+		return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+	}
+
+	/**
+	 * Get the kind of transition
+	 * 
+	 * @return {@link TransitionType}
+	 */
+	public TransitionType getType() {
+		return type;
+	}
+
+	/**
+	 * Get the shift instance that starts or ends, or whose break starts or ends
+	 * 
+	 * @return {@link ShiftInstance}, or null for a non-working period boundary
+	 */
+	public ShiftInstance getShiftInstance() {
+		return instance;
+	}
+
+	/**
+	 * Get the break that starts or ends
+	 * 
+	 * @return {@link Break}, or null if not a break boundary
+	 */
+	public Break getBreak() {
+		return breakPeriod;
+	}
+
+	/**
+	 * Get the team of the shift instance
+	 * 
+	 * @return {@link Team}, or null for a non-working period boundary
+	 */
+	public Team getTeam() {
+		return instance != null ? instance.getTeam() : null;
+	}
+
+	/**
+	 * Compare this transition to another by time, then by type and then by team
+	 * name
+	 * 
+	 * @return -1 if less than, 0 if equal and 1 if greater than
+	 */
+	@Override
+	public int compareTo(ShiftTransition other) {
+		int result = Long.compare(epochSecond, other.epochSecond);
+
+		if (result == 0) {
+			result = type.compareTo(other.type);
+		}
+
+		if (result == 0 && instance != null && other.instance != null) {
+			result = getTeam().getName().compareTo(other.getTeam().getName());
+		}
+		return result;
+	}
+
+	/**
+	 * Build a string representation of a transition
+	 */
+	@Override
+	public String toString() {
+		String text = getTime() + " " + type;
+
+		if (instance != null) {
+			text += "," + instance;
+		}
+
+		if (breakPeriod != null) {
+			text += ", " + breakPeriod.getName();
+		}
+		return text;
+	}
+}
@@ -0,0 +1,204 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package org.point85.workschedule;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class ShiftUsage is a reverse index of a work schedule from each shift to the
+ * rotation segments that start with it, and from each rotation to the teams on
+ * it. It is built from the schedule's rotations and teams when first needed and
+ * then kept up to date as segments are added, removed or changed and as teams
+ * are created, deleted or moved to another rotation. Objects are held by
+ * identity since their names can change. Entries are checked against their
+ * owners when read, so a segment or team removed from its list directly is not
+ * reported.
+ */
+final class ShiftUsage {
+	// segments starting with each shift
+	private final Map<Shift, List<RotationSegment>> segmentsByShift = new IdentityHashMap<>();
+
+	// teams on each rotation
+	private final Map<Rotation, List<Team>> teamsByRotation = new IdentityHashMap<>();
+
+	ShiftUsage(List<Rotation> rotations, List<Team> teams) {
+		Map<Rotation, Boolean> indexed = new IdentityHashMap<>();
+		List<Rotation> all = new ArrayList<>(rotations);
+
+		for (Team team : teams) {
+			if (team.getRotation() != null) {
+				all.add(team.getRotation());
+			}
+			addTeam(team);
+		}
+
+		for (Rotation rotation : all) {
+			if (indexed.put(rotation, Boolean.TRUE) == null) {
+				for (RotationSegment segment : rotation.getRotationSegments()) {
+					addSegment(segment);
+				}
+			}
+		}
+	}
+
+	// add to the list if not already in it
+	private static <T> void addTo(List<T> list, T item) {
+		for (T existing : list) {
+			if (existing == item) {
+				return;
+			}
+		}
+		list.add(item);
+	}
+
+	// remove from the list by identity
+	private static <T> void removeFrom(List<T> list, T item) {
+		for (int i = 0; i < list.size(); i++) {
+			if (list.get(i) == item) {
+				list.remove(i);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Record a segment that starts with its shift
+	 * 
+	 * @param segment {@link RotationSegment}
+	 */
+	void addSegment(RotationSegment segment) {
+		Shift shift = segment.getStartingShift();
+
+		if (shift != null) {
+			addTo(segmentsByShift.computeIfAbsent(shift, key -> new ArrayList<>()), segment);
+		}
+	}
+
+	/**
+	 * Record that a segment no longer starts with a shift
+	 * 
+	 * @param shift   Previous starting {@link Shift}
+	 * @param segment {@link RotationSegment}
+	 */
+	void removeSegment(Shift shift, RotationSegment segment) {
+		List<RotationSegment> segments = segmentsByShift.get(shift);
+
+		if (segments != null) {
+			removeFrom(segments, segment);
+		}
+	}
+
+	/**
+	 * Record a team on its rotation
+	 * 
+	 * @param team {@link Team}
+	 */
+	void addTeam(Team team) {
+		if (team.getRotation() != null) {
+			addTo(teamsByRotation.computeIfAbsent(team.getRotation(), key -> new ArrayList<>()), team);
+		}
+	}
+
+	/**
+	 * Record that a team is no longer on a rotation
+	 * 
+	 * @param team     {@link Team}
+	 * @param rotation Previous {@link Rotation}
+	 */
+	void removeTeam(Team team, Rotation rotation) {
+		List<Team> teams = teamsByRotation.get(rotation);
+
+		if (teams != null) {
+			removeFrom(teams, team);
+		}
+	}
+
+	/**
+	 * Forget a deleted shift
+	 * 
+	 * @param shift {@link Shift}
+	 */
+	void removeShift(Shift shift) {
+		segmentsByShift.remove(shift);
+	}
+
+	/**
+	 * Get the rotation segments that start with the shift
+	 * 
+	 * @param shift {@link Shift}
+	 * @return List of {@link RotationSegment}
+	 */
+	List<RotationSegment> getSegments(Shift shift) {
+		List<RotationSegment> segments = segmentsByShift.get(shift);
+
+		if (segments == null) {
+			return Collections.emptyList();
+		}
+
+		List<RotationSegment> current = new ArrayList<>();
+
+		for (RotationSegment segment : segments) {
+			Rotation rotation = segment.getRotation();
+
+			if (segment.getStartingShift() == shift && rotation != null
+					&& rotation.getRotationSegments().contains(segment)) {
+				current.add(segment);
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Get the teams of the work schedule on a rotation with a segment that starts
+	 * with the shift
+	 * 
+	 * @param shift    {@link Shift}
+	 * @param schedule Owning {@link WorkSchedule}
+	 * @return List of {@link Team}
+	 */
+	List<Team> getTeams(Shift shift, WorkSchedule schedule) {
+		List<Team> current = new ArrayList<>();
+
+		for (RotationSegment segment : getSegments(shift)) {
+			List<Team> teams = teamsByRotation.get(segment.getRotation());
+
+			if (teams == null) {
+				continue;
+			}
+
+			for (Team team : teams) {
+				if (team.getRotation() == segment.getRotation() && schedule.getTeam(team.getName()) == team) {
+					addTo(current, team);
+				}
+			}
+		}
+		return current;
+	}
+}
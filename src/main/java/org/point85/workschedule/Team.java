@@ -29,7 +29,11 @@ import java.text.MessageFormat;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Class Team is a named group of individuals who rotate through a shift
@@ -78,6 +82,10 @@ public class Team extends Named implements Comparable<Team> {
 	 */
 	public void setRotationStart(LocalDate rotationStart) {
 		this.rotationStart = rotationStart;
+
+		if (workSchedule != null) {
+			workSchedule.teamsChanged();
+		}
 	}
 
 	private long getDayFrom() {
@@ -100,7 +108,12 @@ public class Team extends Named implements Comparable<Team> {
 	 *            {@link Rotation}
 	 */
 	public void setRotation(Rotation rotation) {
+		Rotation previous = this.rotation;
 		this.rotation = rotation;
+
+		if (workSchedule != null) {
+			workSchedule.teamRotationChanged(this, previous, rotation);
+		}
 	}
 
 	/**
@@ -193,6 +206,296 @@ public class Team extends Named implements Comparable<Team> {
 		return instance;
 	}
 
+	/**
+	 * Add this team's shift instances that contain the specified date and time
+	 * of day. As with {@link Shift#isInShift(java.time.LocalTime)}, both the
+	 * starting and ending times of an instance are included. Since a shift lasts
+	 * 24 hours or less, only the instances that start on the prior day and on
+	 * that date can contain it. No instance is added before the rotation start.
+	 * 
+	 * @param dateTime
+	 *            Date and time of day
+	 * @param nonWorkingIndex
+	 *            Instances starting on a date in these periods are skipped
+	 * @param instances
+	 *            List to add the instances to
+	 */
+	void addShiftInstancesAt(LocalDateTime dateTime, NonWorkingIndex nonWorkingIndex, List<ShiftInstance> instances) {
+		RotationTable table = getRotation().getTable();
+		int dayCount = table.getDayCount();
+
+		if (dayCount == 0) {
+			return;
+		}
+
+		LocalDate date = dateTime.toLocalDate();
+		long deltaDays = date.toEpochDay() - getDayFrom();
+
+		if (deltaDays < 0) {
+			// not started yet
+			return;
+		}
+
+		int secondOfDay = dateTime.toLocalTime().toSecondOfDay();
+		int nano = dateTime.getNano();
+
+		// the prior day (if in the rotation) and then this day
+		for (long day = Math.max(deltaDays - 1, 0); day <= deltaDays; day++) {
+			int dayIndex = (int) (day % dayCount);
+			Shift shift = table.getShift(dayIndex);
+
+			if (shift == null) {
+				continue;
+			}
+
+			// seconds from midnight of the instance's starting day
+			long second = (deltaDays - day) * RotationTable.SECONDS_PER_DAY + secondOfDay;
+			long end = table.getEndSecond(dayIndex);
+
+			if (second < table.getStartSecond(dayIndex) || second > end || (second == end && nano > 0)) {
+				continue;
+			}
+
+			LocalDate startDate = date.minusDays(deltaDays - day);
+
+			if (nonWorkingIndex.containsDay(startDate.toEpochDay())) {
+				continue;
+			}
+			instances.add(new ShiftInstance(shift, LocalDateTime.of(startDate, shift.getStart()), this));
+		}
+	}
+
+	/**
+	 * Get a lazily generated stream of this team's shift instances that start
+	 * between the specified dates, in starting time order. Non-working periods of
+	 * the work schedule are not considered.
+	 * 
+	 * @param from Starting date
+	 * @param to   Ending date (inclusive)
+	 * @return Stream of {@link ShiftInstance}
+	 * @throws Exception exception
+	 */
+	public Stream<ShiftInstance> streamShiftInstances(LocalDate from, LocalDate to) throws Exception {
+		return ShiftInstanceIterator.stream(Collections.singletonList(this), from, to, null);
+	}
+
+	// epoch day of the first working day on or after the epoch day, or
+	// Long.MAX_VALUE if none
+	private long nextShiftDay(long epochDay, RotationTable table) {
+		int dayCount = table.getDayCount();
+
+		if (dayCount == 0) {
+			return Long.MAX_VALUE;
+		}
+
+		long day = Math.max(epochDay, getDayFrom());
+		int days = table.getDaysToNextShift((int) ((day - getDayFrom()) % dayCount));
+
+		return days >= 0 ? day + days : Long.MAX_VALUE;
+	}
+
+	// epoch day of the last working day on or before the epoch day, or
+	// Long.MIN_VALUE if none
+	private long previousShiftDay(long epochDay, RotationTable table) {
+		int dayCount = table.getDayCount();
+
+		if (dayCount == 0 || epochDay < getDayFrom()) {
+			return Long.MIN_VALUE;
+		}
+
+		int days = table.getDaysToPreviousShift((int) ((epochDay - getDayFrom()) % dayCount));
+
+		return (days >= 0 && epochDay - days >= getDayFrom()) ? epochDay - days : Long.MIN_VALUE;
+	}
+
+	/**
+	 * Add the start, break and end transitions of this team's shift instance
+	 * that starts on the specified day, if there is one
+	 * 
+	 * @param epochDay
+	 *            Epoch day
+	 * @param table
+	 *            This team's rotation table
+	 * @param transitions
+	 *            List to add the transitions to
+	 */
+	void addTransitions(long epochDay, RotationTable table, List<ShiftTransition> transitions) {
+		int dayCount = table.getDayCount();
+
+		if (dayCount == 0 || epochDay < getDayFrom()) {
+			return;
+		}
+
+		int dayIndex = (int) ((epochDay - getDayFrom()) % dayCount);
+		Shift shift = table.getShift(dayIndex);
+
+		if (shift == null) {
+			return;
+		}
+
+		LocalDateTime startDateTime = LocalDateTime.of(LocalDate.ofEpochDay(epochDay), shift.getStart());
+		ShiftInstance instance = new ShiftInstance(shift, startDateTime, this);
+
+		long midnight = epochDay * RotationTable.SECONDS_PER_DAY;
+		int startSecond = table.getStartSecond(dayIndex);
+
+		transitions.add(new ShiftTransition(midnight + startSecond, TransitionType.SHIFT_START, instance, null));
+
+		// break offsets are clipped to the shift as for its break instances
+		BreakTable breaks = table.getBreakTable(dayIndex);
+		long shiftStart = midnight + startSecond;
+
+		for (int i = 0; i < breaks.size(); i++) {
+			Break breakPeriod = breaks.getBreak(i);
+
+			transitions.add(new ShiftTransition(shiftStart + breaks.getStart(i), TransitionType.BREAK_START, instance,
+					breakPeriod));
+			transitions.add(new ShiftTransition(shiftStart + breaks.getEnd(i), TransitionType.BREAK_END, instance,
+					breakPeriod));
+		}
+
+		transitions.add(new ShiftTransition(midnight + table.getEndSecond(dayIndex), TransitionType.SHIFT_END,
+				instance, null));
+	}
+
+	/**
+	 * Find this team's first transition after the epoch second. Only the
+	 * instances that start on the prior day, that day and the following working
+	 * days up to the earliest transition found are examined, and the next
+	 * working day is looked up in the rotation table. Consecutive non-working
+	 * days are skipped together by a binary search of the non-working index.
+	 * 
+	 * @param second
+	 *            Epoch second
+	 * @param nonWorkingIndex
+	 *            Instances starting on a date in these periods are skipped, or
+	 *            null
+	 * @param transitions
+	 *            List to reuse for the transitions of each day
+	 * @return {@link ShiftTransition}, or null if none
+	 */
+	ShiftTransition nextTransition(long second, NonWorkingIndex nonWorkingIndex, List<ShiftTransition> transitions) {
+		RotationTable table = getRotation().getTable();
+		ShiftTransition next = null;
+
+		// an instance starting on the prior day can still be running
+		long day = nextShiftDay(Math.floorDiv(second, RotationTable.SECONDS_PER_DAY) - 1, table);
+
+		while (day != Long.MAX_VALUE) {
+			if (next != null && day * RotationTable.SECONDS_PER_DAY > next.getEpochSecond()) {
+				// later instances start after it
+				break;
+			}
+
+			if (nonWorkingIndex != null && nonWorkingIndex.containsDay(day)) {
+				// skip the non-working days as a whole
+				day = nextShiftDay(nonWorkingIndex.nextWorkingDay(day), table);
+				continue;
+			}
+
+			transitions.clear();
+			addTransitions(day, table, transitions);
+
+			for (ShiftTransition transition : transitions) {
+				if (transition.getEpochSecond() > second && (next == null || transition.compareTo(next) < 0)) {
+					next = transition;
+				}
+			}
+			day = nextShiftDay(day + 1, table);
+		}
+		return next;
+	}
+
+	/**
+	 * Find this team's last transition before the epoch second. An instance
+	 * ends less than two days after midnight of its starting day, so the search
+	 * stops at the first working day that cannot reach the latest transition
+	 * found. Consecutive non-working days are skipped together as in
+	 * {@link #nextTransition(long, NonWorkingIndex, List)}.
+	 * 
+	 * @param second
+	 *            Epoch second
+	 * @param nonWorkingIndex
+	 *            Instances starting on a date in these periods are skipped, or
+	 *            null
+	 * @param transitions
+	 *            List to reuse for the transitions of each day
+	 * @return {@link ShiftTransition}, or null if none
+	 */
+	ShiftTransition previousTransition(long second, NonWorkingIndex nonWorkingIndex,
+			List<ShiftTransition> transitions) {
+		RotationTable table = getRotation().getTable();
+		ShiftTransition previous = null;
+
+		long day = previousShiftDay(Math.floorDiv(second, RotationTable.SECONDS_PER_DAY), table);
+
+		while (day != Long.MIN_VALUE) {
+			if (previous != null && (day + 2) * RotationTable.SECONDS_PER_DAY <= previous.getEpochSecond()) {
+				// earlier instances end before it
+				break;
+			}
+
+			if (nonWorkingIndex != null && nonWorkingIndex.containsDay(day)) {
+				// skip the non-working days as a whole
+				day = previousShiftDay(nonWorkingIndex.previousWorkingDay(day), table);
+				continue;
+			}
+
+			transitions.clear();
+			addTransitions(day, table, transitions);
+
+			for (ShiftTransition transition : transitions) {
+				if (transition.getEpochSecond() < second && (previous == null || transition.compareTo(previous) > 0)) {
+					previous = transition;
+				}
+			}
+			day = previousShiftDay(day - 1, table);
+		}
+		return previous;
+	}
+
+	/**
+	 * Get this team's first shift or break transition after the specified date
+	 * and time of day, rounded to the nearest second as in the other
+	 * calculations. Non-working periods of the work schedule are not
+	 * considered.
+	 * 
+	 * @param dateTime
+	 *            Date and time of day
+	 * @return {@link ShiftTransition}, or null if none
+	 */
+	public ShiftTransition nextTransition(LocalDateTime dateTime) {
+		return nextTransition(WorkSchedule.toEpochSecond(dateTime), null, new ArrayList<>());
+	}
+
+	/**
+	 * Get this team's last shift or break transition before the specified date
+	 * and time of day, rounded to the nearest second as in the other
+	 * calculations. Non-working periods of the work schedule are not
+	 * considered.
+	 * 
+	 * @param dateTime
+	 *            Date and time of day
+	 * @return {@link ShiftTransition}, or null if none
+	 */
+	public ShiftTransition previousTransition(LocalDateTime dateTime) {
+		return previousTransition(WorkSchedule.toEpochSecond(dateTime), null, new ArrayList<>());
+	}
+
+	/**
+	 * Get a lazily generated, unbounded stream of this team's shift and break
+	 * transitions after the specified date and time of day (rounded to the
+	 * nearest second), in time order. Non-working periods of the work schedule
+	 * are not considered.
+	 * 
+	 * @param dateTime
+	 *            Date and time of day
+	 * @return Stream of {@link ShiftTransition}
+	 */
+	public Stream<ShiftTransition> streamTransitions(LocalDateTime dateTime) {
+		return TransitionIterator.stream(Collections.singletonList(this), WorkSchedule.toEpochSecond(dateTime), null);
+	}
+
 	/**
 	 * Check to see if this day is a day off
 	 * 
@@ -221,7 +524,10 @@ public class Team extends Named implements Comparable<Team> {
 	}
 
 	/**
-	 * Calculate the schedule working time between the specified dates and times
+	 * Calculate the schedule working time between the specified dates and times.
+	 * The working time is computed in constant time from the rotation's
+	 * cumulative working time, no matter how long the interval is. No time is
+	 * worked before the rotation start.
 	 * 
 	 * @param from
 	 *            Starting date and time of day
@@ -237,76 +543,258 @@ public class Team extends Named implements Comparable<Team> {
 			throw new Exception(msg);
 		}
 
-		Duration sum = Duration.ZERO;
+		long seconds = workingSecondsTo(WorkSchedule.toEpochSecond(to))
+				- workingSecondsTo(WorkSchedule.toEpochSecond(from));
+
+		return Duration.ofSeconds(seconds);
+	}
+
+	// working seconds from the rotation start to the epoch second
+	long workingSecondsTo(long epochSecond) {
+		long second = epochSecond - getDayFrom() * RotationTable.SECONDS_PER_DAY;
+		return getRotation().getTable().workingSecondsTo(second);
+	}
+
+	/**
+	 * Calculate the schedule working time between the specified dates and times,
+	 * less the time on break. Like the working time, it is computed from the
+	 * rotation's cumulative break time, and the breaks of a shift in progress are
+	 * found by a binary search of its break offsets. Non-working periods of the
+	 * work schedule are not considered.
+	 * 
+	 * @param from
+	 *            Starting date and time of day
+	 * @param to
+	 *            Ending date and time of day
+	 * @return Duration of net working time
+	 * @throws Exception
+	 *             exception
+	 */
+	public Duration calculateNetWorkingTime(LocalDateTime from, LocalDateTime to) throws Exception {
+		if (from.isAfter(to)) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), to, from);
+			throw new Exception(msg);
+		}
+
+		long seconds = netWorkingSecondsTo(WorkSchedule.toEpochSecond(to))
+				- netWorkingSecondsTo(WorkSchedule.toEpochSecond(from));
 
-		LocalDate thisDate = from.toLocalDate();
-		LocalTime thisTime = from.toLocalTime();
-		LocalDate toDate = to.toLocalDate();
-		LocalTime toTime = to.toLocalTime();
-		int dayCount = getRotation().getDayCount();
+		return Duration.ofSeconds(seconds);
+	}
 
-		// get the working shift from yesterday
-		Shift lastShift = null;
+	// break seconds from the rotation start to the epoch second
+	long breakSecondsTo(long epochSecond) {
+		long second = epochSecond - getDayFrom() * RotationTable.SECONDS_PER_DAY;
+		return getRotation().getTable().breakSecondsTo(second);
+	}
 
-		LocalDate yesterday = thisDate.plusDays(-1);
-		ShiftInstance yesterdayInstance = getShiftInstanceForDay(yesterday);
+	// working seconds less break seconds from the rotation start to the epoch
+	// second
+	long netWorkingSecondsTo(long epochSecond) {
+		return workingSecondsTo(epochSecond) - breakSecondsTo(epochSecond);
+	}
 
-		if (yesterdayInstance != null) {
-			lastShift = yesterdayInstance.getShift();
+	/**
+	 * Calculate this team's working seconds between the specified epoch seconds,
+	 * as {@link #calculateWorkingTime(LocalDateTime, LocalDateTime)} does for
+	 * dates and times in the calculation time zone (UTC).
+	 * 
+	 * @param fromEpochSec
+	 *            Starting epoch second
+	 * @param toEpochSec
+	 *            Ending epoch second
+	 * @return Working seconds
+	 * @throws Exception
+	 *             exception
+	 */
+	public long workingSeconds(long fromEpochSec, long toEpochSec) throws Exception {
+		if (fromEpochSec > toEpochSec) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"),
+					LocalDateTime.ofEpochSecond(toEpochSec, 0, ZoneOffset.UTC),
+					LocalDateTime.ofEpochSecond(fromEpochSec, 0, ZoneOffset.UTC));
+			throw new Exception(msg);
 		}
+		return workingSecondsTo(toEpochSec) - workingSecondsTo(fromEpochSec);
+	}
 
-		// step through each day until done
-		while (thisDate.compareTo(toDate) < 1) {
-			if (lastShift != null && lastShift.spansMidnight()) {
-				// check for days in the middle of the time period
-				boolean lastDay = thisDate.compareTo(toDate) == 0 ? true : false;
-				
-				if (!lastDay || (lastDay && !toTime.equals(LocalTime.MIDNIGHT))) {
-					// add time after midnight in this day
-					int afterMidnightSecond = lastShift.getEnd().toSecondOfDay();
-					int fromSecond = thisTime.toSecondOfDay();
-
-					if (afterMidnightSecond > fromSecond) {
-						sum = sum.plusSeconds(afterMidnightSecond - fromSecond);
-					}
-				}
-			}
+	/**
+	 * Check whether this team is working in the second starting at the specified
+	 * epoch second. Non-working periods of the work schedule are not considered.
+	 * 
+	 * @param epochSec
+	 *            Epoch second
+	 * @return True if working
+	 */
+	public boolean isWorking(long epochSec) {
+		return workingSecondsTo(epochSec + 1) > workingSecondsTo(epochSec);
+	}
+
+	/**
+	 * Get the shift that this team is on at the specified epoch second, as an
+	 * index into the work schedule's list of shifts. A shift instance includes
+	 * its starting second but not its ending second, so the index is not -1 if
+	 * and only if {@link #isWorking(long)} is true. Non-working periods of the
+	 * work schedule are not considered.
+	 * 
+	 * @param epochSec
+	 *            Epoch second
+	 * @return Index of the {@link Shift}, or -1 if not on shift
+	 */
+	public int shiftIndexAt(long epochSec) {
+		long day = instanceDayAt(epochSec, null);
+
+		if (day == Long.MIN_VALUE || workSchedule == null) {
+			return -1;
+		}
+		return shiftIndexOnDay(day);
+	}
 
-			// today's shift
-			ShiftInstance instance = getShiftInstanceForDay(thisDate);
+	// index in the work schedule's list of shifts of the shift worked on the
+	// epoch day, or -1 for a day off or before the rotation start
+	int shiftIndexOnDay(long epochDay) {
+		Rotation rotation = getRotation();
 
-			Duration duration = null;
+		if (rotation.getWorkSchedule() != workSchedule) {
+			// the table's indexes refer to another schedule's shifts
+			Shift shift = shiftOnDay(epochDay);
+			return shift != null ? workSchedule.getShifts().indexOf(shift) : -1;
+		}
 
-			if (instance != null) {
-				lastShift = instance.getShift();
-				// check for last date
-				if (thisDate.compareTo(toDate) == 0) {
-					duration = lastShift.calculateWorkingTime(thisTime, toTime, true);
-				} else {
-					duration = lastShift.calculateWorkingTime(thisTime, LocalTime.MAX, true);
-				}
-				sum = sum.plus(duration);
-			} else {
-				lastShift = null;
+		RotationTable table = rotation.getTable();
+		int dayCount = table.getDayCount();
+
+		if (dayCount == 0 || epochDay < getDayFrom()) {
+			return -1;
+		}
+		return table.getShiftIndex((int) ((epochDay - getDayFrom()) % dayCount));
+	}
+
+	// epoch day on which the shift instance in progress at the epoch second
+	// started, or Long.MIN_VALUE if none. Instances starting on a date in a
+	// non-working period are skipped.
+	long instanceDayAt(long second, NonWorkingIndex nonWorkingIndex) {
+		RotationTable table = getRotation().getTable();
+		int dayCount = table.getDayCount();
+
+		if (dayCount == 0) {
+			return Long.MIN_VALUE;
+		}
+
+		long epochDay = Math.floorDiv(second, RotationTable.SECONDS_PER_DAY);
+
+		// this day and then the prior day
+		for (long day = epochDay; day >= epochDay - 1 && day >= getDayFrom(); day--) {
+			int dayIndex = (int) ((day - getDayFrom()) % dayCount);
+
+			if (table.getShift(dayIndex) == null) {
+				continue;
 			}
 
-			int n = 1;
-			if (getDayInRotation(thisDate) == dayCount) {
-				// move ahead by the rotation count if possible
-				LocalDate rotationEndDate = thisDate.plusDays(dayCount);
+			long secondOfDay = second - day * RotationTable.SECONDS_PER_DAY;
 
-				if (rotationEndDate.compareTo(toDate) < 0) {
-					n = dayCount;
-					sum = sum.plus(getRotation().getWorkingTime());
-				}
+			if (secondOfDay >= table.getStartSecond(dayIndex) && secondOfDay < table.getEndSecond(dayIndex)
+					&& (nonWorkingIndex == null || !nonWorkingIndex.containsDay(day))) {
+				return day;
 			}
+		}
+		return Long.MIN_VALUE;
+	}
 
-			// move ahead n days starting at midnight
-			thisDate = thisDate.plusDays(n);
-			thisTime = LocalTime.MIDNIGHT;
-		} // end day loop
+	// break in progress at the epoch second in the shift instance then in
+	// progress, or null if none. A break includes its starting second but not
+	// its ending second.
+	BreakInstance breakInstanceAt(long second, NonWorkingIndex nonWorkingIndex) {
+		long day = instanceDayAt(second, nonWorkingIndex);
 
-		return sum;
+		if (day == Long.MIN_VALUE) {
+			return null;
+		}
+
+		Shift shift = shiftOnDay(day);
+		BreakTable breaks = shift.getBreakTable();
+		int index = breaks.indexAt(second - day * RotationTable.SECONDS_PER_DAY - shift.getStartSecond());
+
+		if (index < 0) {
+			return null;
+		}
+
+		LocalDateTime start = LocalDateTime.of(LocalDate.ofEpochDay(day), shift.getStart());
+		ShiftInstance instance = new ShiftInstance(shift, start, this);
+
+		return new BreakInstance(breaks.getBreak(index), instance, start.plusSeconds(breaks.getStart(index)),
+				start.plusSeconds(breaks.getEnd(index)));
+	}
+
+	// shift worked on the epoch day, or null for a day off or before the
+	// rotation start
+	Shift shiftOnDay(long epochDay) {
+		RotationTable table = getRotation().getTable();
+		int dayCount = table.getDayCount();
+
+		if (dayCount == 0 || epochDay < getDayFrom()) {
+			return null;
+		}
+		return table.getShift((int) ((epochDay - getDayFrom()) % dayCount));
+	}
+
+	/**
+	 * Calculate the date and time at which the specified working time has been
+	 * worked by this team, starting at the specified date and time. This is the
+	 * inverse of {@link #calculateWorkingTime(LocalDateTime, LocalDateTime)},
+	 * computed from the rotation's cumulative working time without stepping
+	 * through the days in between. Non-working periods of the work schedule are
+	 * not considered.
+	 * 
+	 * @param start
+	 *            Starting date and time of day
+	 * @param work
+	 *            Working time to add
+	 * @return Earliest date and time at which the working time is reached
+	 * @throws Exception
+	 *             exception
+	 */
+	public LocalDateTime addWorkingTime(LocalDateTime start, Duration work) throws Exception {
+		long workSeconds = WorkSchedule.toWorkingSeconds(work);
+
+		if (workSeconds == 0) {
+			return start;
+		}
+
+		long second = WorkSchedule.toEpochSecond(start);
+		long end = secondAtWorking(workingSecondsTo(second) + workSeconds);
+
+		if (end == Long.MAX_VALUE) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("no.working.time"), work);
+			throw new Exception(msg);
+		}
+		return LocalDateTime.ofEpochSecond(end, 0, ZoneOffset.UTC);
+	}
+
+	// first epoch second at which the working seconds from the rotation start
+	// reach the target, or Long.MAX_VALUE if never
+	long secondAtWorking(long target) {
+		long second = getRotation().getTable().secondAtWorking(target);
+		return second >= 0 ? getDayFrom() * RotationTable.SECONDS_PER_DAY + second : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Create a bitmap of this team's working time for fast point-in-time and
+	 * range queries. The bitmap holds one bit per slot of the specified
+	 * granularity over one rotation cycle plus the work schedule's non-working
+	 * periods, so a year of one-minute slots takes about 64 KB.
+	 * 
+	 * @param granularity
+	 *            Time covered by each bit, a whole number of seconds that
+	 *            divides a day evenly
+	 * @return {@link WorkingTimeBitmap}
+	 * @throws Exception
+	 *             exception
+	 */
+	public WorkingTimeBitmap createWorkingBitmap(Duration granularity) throws Exception {
+		NonWorkingCalendar calendar = workSchedule != null ? workSchedule.getNonWorkingCalendar()
+				: new NonWorkingCalendar(Collections.<NonWorkingPeriod>emptyList(),
+						Collections.<NonWorkingRule>emptyList(), 0);
+		return new WorkingTimeBitmap(this, granularity, calendar);
 	}
 
 	/**
@@ -322,6 +810,11 @@ public class Team extends Named implements Comparable<Team> {
 		this.workSchedule = workSchedule;
 	}
 
+	@Override
+	WorkSchedule getOwner() {
+		return workSchedule;
+	}
+
 	/**
 	 * Compare one team to another
 	 */
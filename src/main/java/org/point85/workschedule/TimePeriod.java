@@ -36,13 +36,21 @@ import java.time.LocalTime;
  */
 abstract class TimePeriod extends Named {
 	private static final int SECONDS_PER_DAY = 24 * 60 * 60;
-	
+
 	// starting time of day
 	private LocalTime startTime;
 
 	// length of time period
 	private Duration duration;
 
+	// starting and ending second of day rounded to the nearest second, -1 until
+	// calculated
+	private transient int startSecond = -1;
+	private transient int endSecond = -1;
+
+	// number of changes made to this period while it has no owning work schedule
+	private transient int unownedChangeCount;
+
 	protected TimePeriod() {
 		super();
 	}
@@ -77,7 +85,14 @@ abstract class TimePeriod extends Named {
 		if (duration.getSeconds() > SECONDS_PER_DAY) {
 			throw new Exception(WorkSchedule.getMessage("duration.not.allowed"));
 		}
+		Duration previous = this.duration;
 		this.duration = duration;
+		this.endSecond = -1;
+
+		// a period being constructed is not in any table yet
+		if (previous != null) {
+			periodChanged();
+		}
 	}
 
 	/**
@@ -100,7 +115,14 @@ abstract class TimePeriod extends Named {
 		if (startTime == null) {
 			throw new Exception(WorkSchedule.getMessage("start.not.defined"));
 		}
+		LocalTime previous = this.startTime;
 		this.startTime = startTime;
+		this.startSecond = -1;
+		this.endSecond = -1;
+
+		if (previous != null) {
+			periodChanged();
+		}
 	}
 
 	/**
@@ -113,6 +135,43 @@ abstract class TimePeriod extends Named {
 		return startTime.plus(duration);
 	}
 
+	// second of day of the time rounded to the nearest second
+	static int toRoundedSecond(LocalTime time) {
+		int second = time.toSecondOfDay();
+
+		if (time.getNano() > 500E+06) {
+			second++;
+		}
+
+		return second;
+	}
+
+	/**
+	 * Get the period start as a second of day, rounded to the nearest second.
+	 * The value is cached until the start is changed.
+	 * 
+	 * @return Starting second of day
+	 */
+	int getStartSecond() {
+		if (startSecond < 0) {
+			startSecond = toRoundedSecond(startTime);
+		}
+		return startSecond;
+	}
+
+	/**
+	 * Get the period end as a second of day, rounded to the nearest second.
+	 * The value is cached until the start or duration is changed.
+	 * 
+	 * @return Ending second of day
+	 */
+	int getEndSecond() {
+		if (endSecond < 0) {
+			endSecond = toRoundedSecond(startTime.plus(duration));
+		}
+		return endSecond;
+	}
+
 	// breaks are considered to be in the shift's working period
 	abstract boolean isWorkingPeriod();
 
@@ -134,4 +193,23 @@ abstract class TimePeriod extends Named {
 
 		return text;
 	}
+
+	// count a change to this period with its owning work schedule, or with the
+	// period itself if it has none
+	void periodChanged() {
+		WorkSchedule owner = getOwner();
+
+		if (owner != null) {
+			owner.periodChanged();
+		} else {
+			unownedChangeCount++;
+		}
+	}
+
+	// number of changes made to the period or to its owning work schedule's
+	// periods, for the tables built from it
+	int getPeriodChangeCount() {
+		WorkSchedule owner = getOwner();
+		return owner != null ? owner.getPeriodChangeCount() : unownedChangeCount;
+	}
 }
@@ -0,0 +1,88 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Class TrackedList is a modifiable view of a list that reports every change
+ * made through it, so that an index built from the list can be invalidated when
+ * an object is added, removed or replaced directly rather than by a method of
+ * the owner. Replacing one object by another does not change the list's size,
+ * so the size alone cannot tell that the list has changed.
+ *
+ * @param <E> Type of element
+ */
+final class TrackedList<E> extends AbstractList<E> implements RandomAccess {
+	// list that is viewed
+	private final List<E> list;
+
+	// called after each change
+	private final Runnable listener;
+
+	TrackedList(List<E> list, Runnable listener) {
+		this.list = list;
+		this.listener = listener;
+	}
+
+	// true if this is a view of the list
+	boolean isViewOf(List<E> other) {
+		return list == other;
+	}
+
+	@Override
+	public E get(int index) {
+		return list.get(index);
+	}
+
+	@Override
+	public int size() {
+		return list.size();
+	}
+
+	@Override
+	public E set(int index, E element) {
+		E previous = list.set(index, element);
+		listener.run();
+		return previous;
+	}
+
+	@Override
+	public void add(int index, E element) {
+		list.add(index, element);
+		modCount++;
+		listener.run();
+	}
+
+	@Override
+	public E remove(int index) {
+		E removed = list.remove(index);
+		modCount++;
+		listener.run();
+		return removed;
+	}
+}
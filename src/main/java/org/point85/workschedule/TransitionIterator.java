@@ -0,0 +1,201 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package org.point85.workschedule;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Class TransitionIterator generates the shift, break and non-working period
+ * transitions of one or more teams after an instant, day by day in time order.
+ * Since a shift lasts 24 hours or less, a transition is handed out once the
+ * instances of all days that could precede it have been generated. Instances
+ * that start on a date in a non-working period are skipped. The iteration is
+ * unbounded if any team has a working day, and the periods of the non-working
+ * rules are expanded for later years as the iteration reaches them.
+ */
+final class TransitionIterator implements Iterator<ShiftTransition> {
+	// teams and their rotation tables
+	private final Team[] teams;
+	private final RotationTable[] tables;
+
+	// non-working periods and rules, or null for none
+	private final NonWorkingCalendar calendar;
+
+	// non-working periods over the horizon reached so far, or null for none
+	private NonWorkingIndex nonWorkingIndex;
+
+	// disjoint non-working intervals
+	private IntervalSet nonWorking;
+
+	// transitions must be after this epoch second
+	private final long after;
+
+	// true if any team has a working day
+	private final boolean unbounded;
+
+	// next day to generate
+	private long nextDay;
+
+	// next non-working boundary, even for an interval start and odd for its end
+	private int boundary;
+
+	// generated transitions not handed out yet
+	private final PriorityQueue<ShiftTransition> pending = new PriorityQueue<>();
+
+	// transitions of one instance
+	private final List<ShiftTransition> dayTransitions = new ArrayList<>();
+
+	private TransitionIterator(List<Team> teamList, long after, NonWorkingCalendar calendar) {
+		int count = teamList.size();
+		this.teams = teamList.toArray(new Team[count]);
+		this.tables = new RotationTable[count];
+
+		boolean working = false;
+
+		for (int i = 0; i < count; i++) {
+			tables[i] = teams[i].getRotation().getTable();
+
+			if (tables[i].getDayCount() > 0 && tables[i].getDaysToNextShift(0) >= 0) {
+				working = true;
+			}
+		}
+
+		this.unbounded = working;
+		this.calendar = calendar;
+		this.nonWorkingIndex = calendar != null ? calendar.getIndex(after, after) : null;
+		this.nonWorking = nonWorkingIndex != null ? nonWorkingIndex.getIntervals() : IntervalSet.EMPTY;
+		this.after = after;
+
+		// an instance starting on the prior day can still be running
+		this.nextDay = Math.floorDiv(after, RotationTable.SECONDS_PER_DAY) - 1;
+		this.boundary = 2 * nonWorking.firstEndingAfter(after);
+	}
+
+	/**
+	 * Create a lazily evaluated, ordered stream of transitions
+	 *
+	 * @param teams           Teams working the shift instances
+	 * @param after           Transitions are after this epoch second
+	 * @param calendar        Non-working periods and rules, or null
+	 * @return Stream of {@link ShiftTransition}
+	 */
+	static Stream<ShiftTransition> stream(List<Team> teams, long after, NonWorkingCalendar calendar) {
+		Iterator<ShiftTransition> iterator = new TransitionIterator(teams, after, calendar);
+		int characteristics = Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.SORTED;
+
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, characteristics), false);
+	}
+
+	// true if no more transitions will be generated
+	private boolean exhausted() {
+		return !unbounded && boundary >= 2 * nonWorking.size();
+	}
+
+	// widen the non-working periods to a day outside of their horizon
+	private void widen(long epochDay) {
+		long midnight = epochDay * RotationTable.SECONDS_PER_DAY;
+		long nextMidnight = midnight + RotationTable.SECONDS_PER_DAY;
+
+		if (calendar == null || nonWorkingIndex.covers(midnight, nextMidnight)) {
+			return;
+		}
+
+		nonWorkingIndex = calendar.getIndex(midnight, nextMidnight);
+		nonWorking = nonWorkingIndex.getIntervals();
+
+		// the boundaries before midnight have been generated
+		int interval = nonWorking.firstEndingAfter(midnight - 1);
+		boolean started = interval < nonWorking.size() && nonWorking.start(interval) < midnight;
+		boundary = 2 * interval + (started ? 1 : 0);
+	}
+
+	// generate the transitions of the instances starting on the day and the
+	// non-working boundaries in it
+	private void generate(long epochDay) {
+		widen(epochDay);
+
+		if (nonWorkingIndex == null || !nonWorkingIndex.containsDay(epochDay)) {
+			for (int i = 0; i < teams.length; i++) {
+				dayTransitions.clear();
+				teams[i].addTransitions(epochDay, tables[i], dayTransitions);
+
+				for (ShiftTransition transition : dayTransitions) {
+					if (transition.getEpochSecond() > after) {
+						pending.add(transition);
+					}
+				}
+			}
+		}
+
+		long nextMidnight = (epochDay + 1) * RotationTable.SECONDS_PER_DAY;
+
+		while (boundary < 2 * nonWorking.size()) {
+			int interval = boundary >> 1;
+			boolean start = (boundary & 1) == 0;
+			long second = start ? nonWorking.start(interval) : nonWorking.end(interval);
+
+			if (second >= nextMidnight) {
+				break;
+			}
+
+			if (second > after) {
+				TransitionType type = start ? TransitionType.NON_WORKING_START : TransitionType.NON_WORKING_END;
+				pending.add(new ShiftTransition(second, type, null, null));
+			}
+			boundary++;
+		}
+	}
+
+	// generate days until the earliest pending transition cannot be preceded
+	private void advance() {
+		while (!exhausted() && (pending.isEmpty()
+				|| pending.peek().getEpochSecond() >= nextDay * RotationTable.SECONDS_PER_DAY)) {
+			generate(nextDay++);
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		advance();
+		return !pending.isEmpty();
+	}
+
+	@Override
+	public ShiftTransition next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return pending.poll();
+	}
+}
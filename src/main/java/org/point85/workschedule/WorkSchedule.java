@@ -26,22 +26,47 @@ package org.point85.workschedule;
 
 import java.text.DecimalFormat;
 import java.text.MessageFormat;
+import java.time.DayOfWeek;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.Month;
+import java.time.MonthDay;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.Stream;
 
 /**
  * Class WorkSchedule represents a named group of teams who collectively work
  * one or more shifts with off-shift periods. A work schedule can have periods
  * of non-working time.
  * 
+ * A non-working period is applied by one of two rules. The methods that return
+ * shift instances or their transitions, coverage and tags leave out a whole
+ * shift instance that starts on a date in a non-working period and keep one
+ * that starts on another date, even while it runs into the period. The methods
+ * that calculate working time or check whether a team is working remove the
+ * seconds in a non-working period, whatever date the instance started on. For
+ * a night shift starting on a holiday, the instance is not returned, but its
+ * hours after the holiday are working time.
+ * 
  * @author Kent Randall
  *
  */
@@ -55,6 +80,20 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 	// cached UTC time zone for working time calculations
 	private static final ZoneId ZONE_ID = ZoneId.of("Z");
 
+	// default smallest amount of work, in team days or team buckets, that is
+	// evaluated in parallel
+	private static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+
+	// seconds in a year of 366 days
+	private static final long YEAR_SECONDS = 366L * RotationTable.SECONDS_PER_DAY;
+
+	// time zone of the Instant and ZonedDateTime calculations, not persisted
+	private transient volatile ZoneId zoneId = ZONE_ID;
+
+	// offsets of the time zone over the horizon queried so far, null until
+	// first needed
+	private transient volatile ZoneOffsetTable zoneOffsets;
+
 	// list of teams
 	private List<Team> teams = new ArrayList<>();
 
@@ -67,6 +106,55 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 	// holidays and planned downtime
 	private List<NonWorkingPeriod> nonWorkingPeriods = new ArrayList<>();
 
+	// recurring holidays and planned downtime
+	private List<NonWorkingRule> nonWorkingRules = new ArrayList<>();
+
+	// views of the non-working lists that report direct changes
+	private transient TrackedList<NonWorkingPeriod> nonWorkingPeriodView;
+	private transient TrackedList<NonWorkingRule> nonWorkingRuleView;
+
+	// non-working periods and rules at their current version, with an index
+	// expanded for a horizon of years
+	private transient volatile NonWorkingCalendar nonWorkingCalendar;
+
+	// name indexes of the teams, shifts, rotations and non-working periods
+	private final transient NameIndex<Team> teamNames = new NameIndex<>(this);
+	private final transient NameIndex<Shift> shiftNames = new NameIndex<>(this);
+	private final transient NameIndex<Rotation> rotationNames = new NameIndex<>(this);
+	private final transient NameIndex<NonWorkingPeriod> periodNames = new NameIndex<>(this);
+	private final transient NameIndex<NonWorkingRule> ruleNames = new NameIndex<>(this);
+
+	// reverse index of the segments and teams using each shift, null until
+	// first needed
+	private transient ShiftUsage shiftUsage;
+
+	// number of changes made to the teams and non-working periods
+	private final transient AtomicInteger changeCount = new AtomicInteger();
+
+	// number of changes made to the non-working periods and rules
+	private final transient AtomicInteger nonWorkingChangeCount = new AtomicInteger();
+
+	// number of times an object of this schedule has been renamed
+	private final transient AtomicInteger nameChangeCount = new AtomicInteger();
+
+	// number of changes made to the shifts, breaks and rotations of this schedule
+	private final transient AtomicInteger periodChangeCount = new AtomicInteger();
+
+	// shift instances by day, null if not cached
+	private transient volatile ShiftInstanceCache instanceCache;
+
+	// maximum number of days in the hyperperiod table, 0 if not used
+	private transient volatile int hyperperiodLimit = 0;
+
+	// shifts of all teams over one hyperperiod, null until first needed
+	private transient volatile HyperperiodTable hyperperiod;
+
+	// fork/join pool for parallel evaluation, null to evaluate sequentially
+	private transient volatile ForkJoinPool forkJoinPool;
+
+	// smallest amount of work that is evaluated in parallel
+	private transient volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
 	// optimistic locking version
 	private Integer version;
 
@@ -93,6 +181,17 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 		return messages.getString(key);
 	}
 
+	// epoch second of the date and time in the calculation time zone, rounded to
+	// the nearest second
+	static long toEpochSecond(LocalDateTime dateTime) {
+		long second = dateTime.atZone(ZONE_ID).toEpochSecond();
+
+		if (dateTime.getNano() > 500E+06) {
+			second++;
+		}
+		return second;
+	}
+
 	/**
 	 * Remove this team from the schedule
 	 * 
@@ -101,6 +200,7 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 	public void deleteTeam(Team team) {
 		if (teams.contains(team)) {
 			teams.remove(team);
+			teamRotationChanged(team, team.getRotation(), null);
 		}
 	}
 
@@ -113,6 +213,16 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 		return this.teams;
 	}
 
+	/**
+	 * Get the team with the specified name
+	 * 
+	 * @param name Name of team
+	 * @return {@link Team}, or null if not found
+	 */
+	public Team getTeam(String name) {
+		return teamNames.get(teams, name);
+	}
+
 	/**
 	 * Remove a non-working period from the schedule
 	 * 
@@ -121,329 +231,1912 @@ public class WorkSchedule extends Named implements Comparable<WorkSchedule> {
 	public void deleteNonWorkingPeriod(NonWorkingPeriod period) {
 		if (this.nonWorkingPeriods.contains(period)) {
 			this.nonWorkingPeriods.remove(period);
+			nonWorkingPeriodsChanged();
 		}
 	}
 
 	/**
-	 * Get all non-working periods in the schedule
+	 * Get all non-working periods in the schedule. Periods can be added to or
+	 * removed from the list directly, and the change is seen by later queries.
 	 * 
 	 * @return List of {@link NonWorkingPeriod}
 	 */
 	public List<NonWorkingPeriod> getNonWorkingPeriods() {
-		return this.nonWorkingPeriods;
+		TrackedList<NonWorkingPeriod> view = nonWorkingPeriodView;
+
+		// the list is replaced when the schedule is loaded
+		if (view == null || !view.isViewOf(nonWorkingPeriods)) {
+			view = new TrackedList<>(nonWorkingPeriods, this::nonWorkingListChanged);
+			nonWorkingPeriodView = view;
+		}
+		return view;
 	}
 
 	/**
-	 * Get the list of shift instances for the specified date that start in that
-	 * date
+	 * Get the non-working period with the specified name
 	 * 
-	 * @param day LocalDate
-	 * @return List of {@link ShiftInstance}
-	 * @throws Exception exception
+	 * @param name Name of period
+	 * @return {@link NonWorkingPeriod}, or null if not found
 	 */
-	public List<ShiftInstance> getShiftInstancesForDay(LocalDate day) throws Exception {
-		List<ShiftInstance> workingShifts = new ArrayList<>();
+	public NonWorkingPeriod getNonWorkingPeriod(String name) {
+		return periodNames.get(nonWorkingPeriods, name);
+	}
 
-		// for each team see if there is a working shift
-		for (Team team : teams) {
-			ShiftInstance instance = team.getShiftInstanceForDay(day);
+	/**
+	 * Get a snapshot of the non-working periods and rules. The snapshot is
+	 * replaced after a period or rule is created, deleted or changed, including
+	 * by a change made directly to the list of periods or rules.
+	 * 
+	 * @return {@link NonWorkingCalendar}
+	 * @throws Exception exception
+	 */
+	NonWorkingCalendar getNonWorkingCalendar() throws Exception {
+		NonWorkingCalendar calendar = nonWorkingCalendar;
+		long stamp = getNonWorkingStamp();
 
-			if (instance == null) {
-				continue;
-			}
+		if (calendar == null || calendar.getStamp() != stamp) {
+			calendar = new NonWorkingCalendar(nonWorkingPeriods, nonWorkingRules, stamp);
+			nonWorkingCalendar = calendar;
+		}
+		return calendar;
+	}
 
-			// check to see if this is a non-working day
-			boolean addShift = true;
+	/**
+	 * Get the index of the non-working periods, with the periods of the
+	 * non-working rules expanded for at least the years from a year before to a
+	 * year after the interval
+	 * 
+	 * @param fromSecond Starting epoch second
+	 * @param toSecond   Ending epoch second
+	 * @return {@link NonWorkingIndex}
+	 * @throws Exception exception
+	 */
+	NonWorkingIndex getNonWorkingIndex(long fromSecond, long toSecond) throws Exception {
+		return getNonWorkingCalendar().getIndex(fromSecond, toSecond);
+	}
 
-			LocalDate startDate = instance.getStartTime().toLocalDate();
+	// index of the non-working periods covering the dates
+	private NonWorkingIndex getNonWorkingIndex(LocalDate from, LocalDate to) throws Exception {
+		return getNonWorkingIndex(from.toEpochDay() * RotationTable.SECONDS_PER_DAY,
+				(to.toEpochDay() + 1) * RotationTable.SECONDS_PER_DAY);
+	}
 
-			for (NonWorkingPeriod nonWorkingPeriod : nonWorkingPeriods) {
-				if (nonWorkingPeriod.isInPeriod(startDate)) {
-					addShift = false;
-					break;
-				}
-			}
+	// version of the non-working periods and rules
+	long getNonWorkingStamp() {
+		return nonWorkingChangeCount.get();
+	}
 
-			if (addShift) {
-				workingShifts.add(instance);
-			}
-		}
+	// discard the non-working period snapshot
+	void nonWorkingPeriodsChanged() {
+		nonWorkingCalendar = null;
+		nonWorkingChangeCount.incrementAndGet();
+		changeCount.incrementAndGet();
+	}
 
-		Collections.sort(workingShifts);
+	// a period's start has changed, so keep the list in order of start
+	void nonWorkingPeriodMoved() {
+		Collections.sort(nonWorkingPeriods);
+		nonWorkingPeriodsChanged();
+	}
 
-		return workingShifts;
+	// a period or rule was added to, removed from or replaced in a list
+	// directly, which also puts the list's name index out of step
+	private void nonWorkingListChanged() {
+		nonWorkingPeriodsChanged();
+		nameChanged();
 	}
 
-	/**
-	 * Get the list of shift instances for the specified date and time of day
-	 * 
-	 * @param dateTime Date and time of day
-	 * @return List of {@link ShiftInstance}
-	 * @throws Exception exception
-	 */
-	public List<ShiftInstance> getShiftInstancesForTime(LocalDateTime dateTime) throws Exception {
-		List<ShiftInstance> workingShifts = new ArrayList<>();
+	// mark the name indexes as out of date
+	void nameChanged() {
+		nameChangeCount.incrementAndGet();
+	}
 
-		// day
-		List<ShiftInstance> candidateShifts = getShiftInstancesForDay(dateTime.toLocalDate());
+	// number of times an object of this schedule has been renamed
+	int getNameChangeCount() {
+		return nameChangeCount.get();
+	}
 
-		// check time now
-		for (ShiftInstance instance : candidateShifts) {
-			if (instance.getShift().isInShift(dateTime.toLocalTime())) {
-				workingShifts.add(instance);
-			}
-		}
+	@Override
+	WorkSchedule getOwner() {
+		return this;
+	}
 
-		return workingShifts;
+	// mark the shift instances of the teams as out of date
+	void teamsChanged() {
+		changeCount.incrementAndGet();
 	}
 
 	/**
-	 * Create a team
+	 * Get the list of shift instances for the specified date that start in that
+	 * date. No instances are returned for a date in a non-working period, even if
+	 * the period covers only part of an instance. If the shift instance cache is
+	 * enabled, the list is unmodifiable and is shared by later calls for that
+	 * date until the schedule changes.
 	 * 
-	 * @param name          Name of team
-	 * @param description   Team description
-	 * @param rotation      Shift rotation
-	 * @param rotationStart Start of rotation
-	 * @return {@link Team}
+	 * @param day LocalDate
+	 * @return List of {@link ShiftInstance}
 	 * @throws Exception exception
 	 */
-	public Team createTeam(String name, String description, Rotation rotation, LocalDate rotationStart)
-			throws Exception {
-		Team team = new Team(name, description, rotation, rotationStart);
+	public List<ShiftInstance> getShiftInstancesForDay(LocalDate day) throws Exception {
+		ShiftInstanceCache cache = instanceCache;
 
-		if (teams.contains(team)) {
-			String msg = MessageFormat.format(WorkSchedule.getMessage("team.already.exists"), name);
-			throw new Exception(msg);
+		if (cache == null) {
+			return createShiftInstancesForDay(day);
 		}
 
-		teams.add(team);
-		team.setWorkSchedule(this);
-		return team;
+		long periodStamp = getPeriodStamp();
+		long scheduleStamp = getScheduleStamp();
+		long nonWorkingStamp = getNonWorkingStamp();
+
+		long epochDay = day.toEpochDay();
+		List<ShiftInstance> instances = cache.get(epochDay, periodStamp, scheduleStamp, nonWorkingStamp);
+
+		if (instances == null) {
+			instances = Collections.unmodifiableList(createShiftInstancesForDay(day));
+			cache.put(epochDay, instances, periodStamp, scheduleStamp, nonWorkingStamp);
+		}
+		return instances;
 	}
 
 	/**
-	 * Create a shift
+	 * Enable a cache of the shift instances by date for
+	 * {@link #getShiftInstancesForDay(LocalDate)}, holding up to the specified
+	 * number of dates and evicting the least recently used date when full. The
+	 * cache is cleared automatically when a shift, rotation, team or non-working
+	 * period of the schedule is changed. The cache is disabled by default.
 	 * 
-	 * @param name        Name of shift
-	 * @param description Description of shift
-	 * @param start       Shift start time of day
-	 * @param duration    Shift duration
-	 * @return {@link Shift}
-	 * @throws Exception exception
+	 * @param days Maximum number of dates to cache, or 0 to disable the cache
 	 */
-	public Shift createShift(String name, String description, LocalTime start, Duration duration) throws Exception {
-		Shift shift = new Shift(name, description, start, duration);
-
-		if (shifts.contains(shift)) {
-			String msg = MessageFormat.format(WorkSchedule.getMessage("shift.already.exists"), name);
-			throw new Exception(msg);
-		}
-		shifts.add(shift);
-		shift.setWorkSchedule(this);
-		return shift;
+	public void setShiftInstanceCacheSize(int days) {
+		instanceCache = days > 0 ? new ShiftInstanceCache(days) : null;
 	}
 
 	/**
-	 * Create a rotation
+	 * Get the maximum number of dates in the shift instance cache
 	 * 
-	 * @param name        Name of rotation
-	 * @param description Description of rotation
-	 * @return {@link Rotation}
-	 * @throws Exception exception
+	 * @return Number of dates, 0 if the cache is disabled
 	 */
-	public Rotation createRotation(String name, String description) throws Exception {
-		Rotation rotation = new Rotation(name, description);
-
-		if (rotations.contains(rotation)) {
-			String msg = MessageFormat.format(WorkSchedule.getMessage("rotation.already.exists"), name);
-			throw new Exception(msg);
-		}
-
-		rotations.add(rotation);
-		rotation.setWorkSchedule(this);
-		return rotation;
+	public int getShiftInstanceCacheSize() {
+		ShiftInstanceCache cache = instanceCache;
+		return cache != null ? cache.getCapacity() : 0;
 	}
 
 	/**
-	 * Delete this shift
+	 * Get the number of lookups answered from the shift instance cache since it
+	 * was enabled
 	 * 
-	 * @param shift {@link Shift} to delete
-	 * @throws Exception exception
+	 * @return Hit count
 	 */
-	public void deleteShift(Shift shift) throws Exception {
-		if (!shifts.contains(shift)) {
-			return;
-		}
-
-		// can't be in use
-		for (Shift inUseShift : shifts) {
-			for (Team team : teams) {
-				Rotation rotation = team.getRotation();
-
-				for (TimePeriod period : rotation.getPeriods()) {
-					if (period.equals(inUseShift)) {
-						String msg = MessageFormat.format(WorkSchedule.getMessage("shift.in.use"), shift.getName());
-						throw new Exception(msg);
-					}
-				}
-			}
-		}
-
-		shifts.remove(shift);
+	public long getShiftInstanceCacheHits() {
+		ShiftInstanceCache cache = instanceCache;
+		return cache != null ? cache.getHits() : 0;
 	}
 
 	/**
-	 * Create a non-working period of time
+	 * Get the number of lookups not answered from the shift instance cache since
+	 * it was enabled
 	 * 
-	 * @param name          Name of period
-	 * @param description   Description of period
-	 * @param startDateTime Starting date and time of day
-	 * @param duration      Duration of period
-	 * @return {@link NonWorkingPeriod}
-	 * @throws Exception exception
+	 * @return Miss count
 	 */
-	public NonWorkingPeriod createNonWorkingPeriod(String name, String description, LocalDateTime startDateTime,
-			Duration duration) throws Exception {
-		NonWorkingPeriod period = new NonWorkingPeriod(name, description, startDateTime, duration);
-
-		if (nonWorkingPeriods.contains(period)) {
-			String msg = MessageFormat.format(WorkSchedule.getMessage("nonworking.period.already.exists"), name);
-			throw new Exception(msg);
-		}
-		period.setWorkSchedule(this);
-		nonWorkingPeriods.add(period);
+	public long getShiftInstanceCacheMisses() {
+		ShiftInstanceCache cache = instanceCache;
+		return cache != null ? cache.getMisses() : 0;
+	}
 
-		Collections.sort(nonWorkingPeriods);
+	// version of the shifts and rotations
+	private long getPeriodStamp() {
+		return getPeriodChangeCount();
+	}
 
-		return period;
+	// count a change to a shift, break or rotation of this work schedule
+	void periodChanged() {
+		periodChangeCount.incrementAndGet();
 	}
 
-	/**
-	 * Get total duration of rotation across all teams.
-	 * 
-	 * @return Duration of rotation
-	 * @throws Exception Exception
-	 */
-	public Duration getRotationDuration() throws Exception {
-		Duration sum = Duration.ZERO;
+	// number of changes made to the shifts, breaks and rotations of this work
+	// schedule, so that its cached tables and shift instances can tell when a
+	// period has changed
+	int getPeriodChangeCount() {
+		return periodChangeCount.get();
+	}
 
-		for (Team team : teams) {
-			sum = sum.plus(team.getRotationDuration());
-		}
-		return sum;
+	// version of the teams and non-working periods, including teams added to or
+	// removed from the list directly
+	private long getScheduleStamp() {
+		return ((long) changeCount.get() << 32) | teams.size();
 	}
 
 	/**
-	 * Get the total working time for all team rotations
+	 * Enable a pre-computed table of the shifts of all teams over one
+	 * hyperperiod, the least common multiple of the teams' rotation lengths after
+	 * which the whole schedule repeats. The shift instances for a date are then
+	 * looked up in the table instead of in each team's rotation. If the
+	 * hyperperiod is longer than the limit, or for a date before the last team's
+	 * rotation start, the teams' rotations are used. The table is disabled by
+	 * default.
 	 * 
-	 * @return Team rotation working time
+	 * @param days Maximum number of days in the hyperperiod, or 0 to disable the
+	 *             table
 	 */
-	public Duration getRotationWorkingTime() {
-		Duration sum = Duration.ZERO;
-
-		for (Team team : teams) {
-			sum = sum.plus(team.getRotation().getWorkingTime());
-		}
-		return sum;
+	public void setHyperperiodLimit(int days) {
+		hyperperiodLimit = Math.max(days, 0);
+		hyperperiod = null;
 	}
 
 	/**
-	 * Calculate the scheduled working time between the specified dates and times of
-	 * day. Non-working periods are removed.
+	 * Get the maximum number of days in the hyperperiod table
 	 * 
-	 * @param from Starting date and time
-	 * @param to   Ending date and time
-	 * @return Working time duration
-	 * @throws Exception exception
+	 * @return Number of days, 0 if the table is disabled
 	 */
-	public Duration calculateWorkingTime(LocalDateTime from, LocalDateTime to) throws Exception {
-		Duration sum = Duration.ZERO;
+	public int getHyperperiodLimit() {
+		return hyperperiodLimit;
+	}
 
-		// now add up scheduled time by team
-		for (Team team : getTeams()) {
-			sum = sum.plus(team.calculateWorkingTime(from, to));
+	// get the hyperperiod table, rebuilding it if the schedule has changed
+	HyperperiodTable getHyperperiodTable() {
+		int limit = hyperperiodLimit;
+
+		if (limit == 0) {
+			return null;
 		}
 
-		// remove the non-working time
-		Duration nonWorking = calculateNonWorkingTime(from, to);
-		sum = sum.minus(nonWorking);
+		long periodStamp = getPeriodStamp();
+		long scheduleStamp = getScheduleStamp();
+		HyperperiodTable current = hyperperiod;
 
-		// clip if negative
-		if (sum.isNegative()) {
-			sum = Duration.ZERO;
+		if (current == null || !current.isCurrent(periodStamp, scheduleStamp)) {
+			current = new HyperperiodTable(teams, limit, periodStamp, scheduleStamp);
+			hyperperiod = current;
 		}
-
-		return sum;
+		return current;
 	}
 
 	/**
-	 * Calculate the non-working time between the specified dates and times of day.
+	 * Get the total scheduled time of the shift instances of all teams that start
+	 * on the specified date, including breaks. No time is scheduled on a date in
+	 * a non-working period.
 	 * 
-	 * @param from Starting date and time
-	 * @param to   Ending date and time
-	 * @return Non-working time duration
+	 * @param day LocalDate
+	 * @return Scheduled time duration
 	 * @throws Exception exception
 	 */
-	public Duration calculateNonWorkingTime(LocalDateTime from, LocalDateTime to) throws Exception {
-		Duration sum = Duration.ZERO;
+	public Duration getScheduledTimeForDay(LocalDate day) throws Exception {
+		long epochDay = day.toEpochDay();
 
-		long fromSeconds = from.atZone(ZONE_ID).toEpochSecond();
-		long toSeconds = to.atZone(ZONE_ID).toEpochSecond();
+		if (getNonWorkingIndex(day, day).containsDay(epochDay)) {
+			return Duration.ZERO;
+		}
 
-		for (NonWorkingPeriod period : getNonWorkingPeriods()) {
-			LocalDateTime start = period.getStartDateTime();
-			long startSeconds = start.atZone(ZONE_ID).toEpochSecond();
+		HyperperiodTable table = getHyperperiodTable();
+		int offset = table != null ? table.getOffset(epochDay) : -1;
 
-			LocalDateTime end = period.getEndDateTime();
-			long endSeconds = end.atZone(ZONE_ID).toEpochSecond();
+		if (offset >= 0) {
+			return Duration.ofSeconds(table.getSeconds(offset));
+		}
 
-			if (fromSeconds >= endSeconds) {
-				// look at next period
-				continue;
-			}
+		Duration sum = Duration.ZERO;
+
+		for (Team team : teams) {
+			ShiftInstance instance = team.getShiftInstanceForDay(day);
 
-			if (toSeconds <= startSeconds) {
-				// done with periods
-				break;
+			if (instance != null) {
+				sum = sum.plus(instance.getShift().getDuration());
 			}
+		}
+		return sum;
+	}
 
-			if (fromSeconds <= endSeconds) {
-				// found a period, check edge conditions
-				if (fromSeconds > startSeconds) {
-					startSeconds = fromSeconds;
-				}
+	// build the sorted list of shift instances starting on the day
+	private List<ShiftInstance> createShiftInstancesForDay(LocalDate day) throws Exception {
+		// check to see if this is a non-working day
+		boolean nonWorkingDay = getNonWorkingIndex(day, day).containsDay(day.toEpochDay());
 
-				if (toSeconds < endSeconds) {
-					endSeconds = toSeconds;
-				}
+		HyperperiodTable table = getHyperperiodTable();
+		int offset = table != null ? table.getOffset(day.toEpochDay()) : -1;
 
-				sum = sum.plusSeconds(endSeconds - startSeconds);
-			}
+		if (offset >= 0) {
+			return nonWorkingDay ? new ArrayList<>() : table.createInstances(day, offset);
+		}
+
+		List<ShiftInstance> workingShifts = new ArrayList<>();
+
+		// for each team see if there is a working shift
+		for (Team team : teams) {
+			ShiftInstance instance = team.getShiftInstanceForDay(day);
 
-			if (toSeconds <= endSeconds) {
-				break;
+			if (instance != null && !nonWorkingDay) {
+				workingShifts.add(instance);
 			}
 		}
 
-		return sum;
+		Collections.sort(workingShifts);
+
+		return workingShifts;
 	}
 
 	/**
-	 * Get the list of shifts in this schedule
+	 * Get a lazily generated stream of the shift instances that start between the
+	 * specified dates. The instances of all teams are merged in starting time
+	 * order and instances in non-working periods are skipped. Only one day of
+	 * instances is held in memory at a time.
 	 * 
-	 * @return List of {@link Shift}
+	 * @param from Starting date
+	 * @param to   Ending date (inclusive)
+	 * @return Stream of {@link ShiftInstance}
+	 * @throws Exception exception
 	 */
-	public List<Shift> getShifts() {
-		return shifts;
+	public Stream<ShiftInstance> streamShiftInstances(LocalDate from, LocalDate to) throws Exception {
+		return ShiftInstanceIterator.stream(teams, from, to, getNonWorkingIndex(from, to));
 	}
 
 	/**
-	 * Get the list of rotations in this schedule
+	 * Get the shift instances that start between the specified dates, in date
+	 * order and for each date in the order of
+	 * {@link #getShiftInstancesForDay(LocalDate)}. With parallel evaluation
+	 * enabled, ranges of dates are evaluated on the fork/join pool.
 	 * 
-	 * @return List of {@link Rotation}
+	 * @param from Starting date
+	 * @param to   Ending date (inclusive)
+	 * @return List of {@link ShiftInstance}
+	 * @throws Exception exception
 	 */
-	public List<Rotation> getRotations() {
-		return rotations;
+	public List<ShiftInstance> getShiftInstances(LocalDate from, LocalDate to) throws Exception {
+		if (from.isAfter(to)) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), to, from);
+			throw new Exception(msg);
+		}
+
+		long firstDay = from.toEpochDay();
+		int days = Math.toIntExact(to.toEpochDay() - firstDay + 1);
+
+		// build the shared tables before the days are split
+		getNonWorkingIndex(from, to);
+		getHyperperiodTable();
+
+		for (Team team : teams) {
+			team.getRotation().getTable();
+		}
+
+		ForkJoinPool pool = forkJoinPool;
+
+		return PartitionTask.invoke(pool, 0, days, parallelGrain(pool, days, teams.size()), (low, high) -> {
+			List<ShiftInstance> instances = new ArrayList<>();
+
+			for (int day = low; day < high; day++) {
+				instances.addAll(createShiftInstancesForDay(LocalDate.ofEpochDay(firstDay + day)));
+			}
+			return instances;
+		}, (left, right) -> {
+			left.addAll(right);
+			return left;
+		});
+	}
+
+	/**
+	 * Get the list of shift instances that are in progress at the specified date
+	 * and time of day, including an instance that started on the prior day and
+	 * crosses midnight. Both the starting and ending times of an instance are
+	 * included. Instances that start on a date in a non-working period or before
+	 * a team's rotation start are skipped as a whole, and an instance that
+	 * started on another date is returned even while a non-working period is in
+	 * progress.
+	 * 
+	 * @param dateTime Date and time of day
+	 * @return List of {@link ShiftInstance}
+	 * @throws Exception exception
+	 */
+	public List<ShiftInstance> getShiftInstancesForTime(LocalDateTime dateTime) throws Exception {
+		List<ShiftInstance> workingShifts = new ArrayList<>();
+
+		NonWorkingIndex index = getNonWorkingIndex(dateTime.toLocalDate(), dateTime.toLocalDate());
+
+		// at most the prior day's and this day's instance of each team
+		for (Team team : teams) {
+			team.addShiftInstancesAt(dateTime, index, workingShifts);
+		}
+
+		Collections.sort(workingShifts);
+
+		return workingShifts;
+	}
+
+	/**
+	 * Get the list of breaks that are in progress at the specified date and time
+	 * of day, at most one for each team. A break includes its starting time but
+	 * not its ending time, and the break is found by a binary search of its
+	 * shift's break offsets. Breaks in shift instances that start on a date in a
+	 * non-working period are skipped.
+	 * 
+	 * @param dateTime Date and time of day
+	 * @return List of {@link BreakInstance} in starting time order
+	 * @throws Exception exception
+	 */
+	public List<BreakInstance> getBreakInstancesForTime(LocalDateTime dateTime) throws Exception {
+		List<BreakInstance> breaks = new ArrayList<>();
+
+		long second = toEpochSecond(dateTime);
+		NonWorkingIndex index = getNonWorkingIndex(second, second);
+
+		for (Team team : teams) {
+			BreakInstance instance = team.breakInstanceAt(second, index);
+
+			if (instance != null) {
+				breaks.add(instance);
+			}
+		}
+
+		Collections.sort(breaks);
+
+		return breaks;
+	}
+
+	/**
+	 * Check whether any team is on a break at the specified date and time of day,
+	 * as found by {@link #getBreakInstancesForTime(LocalDateTime)}
+	 * 
+	 * @param dateTime Date and time of day
+	 * @return True if on a break
+	 * @throws Exception exception
+	 */
+	public boolean isOnBreak(LocalDateTime dateTime) throws Exception {
+		long second = toEpochSecond(dateTime);
+		NonWorkingIndex index = getNonWorkingIndex(second, second);
+
+		for (Team team : teams) {
+			if (team.breakInstanceAt(second, index) != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the first transition after the specified date and time of day. A
+	 * transition is the start or end of a shift instance, of a break in it or of
+	 * a non-working period. Each team's next instance is found from its rotation
+	 * cycle and the non-working boundaries by a binary search, so the cost does
+	 * not depend on how far away the transition is. If transitions of more than
+	 * one team occur at that time, they are ordered by type and then by team
+	 * name. A shift instance that starts on a date in a non-working period has
+	 * no transitions, and one that starts on another date keeps its transitions
+	 * in a non-working period. As in the other calculations, the date and time is
+	 * rounded to the nearest second.
+	 * 
+	 * @param dateTime Date and time of day
+	 * @return {@link ShiftTransition}, or null if none
+	 * @throws Exception exception
+	 */
+	public ShiftTransition nextTransition(LocalDateTime dateTime) throws Exception {
+		long second = toEpochSecond(dateTime);
+		NonWorkingIndex index = getNonWorkingIndex(second, second);
+		List<ShiftTransition> transitions = new ArrayList<>();
+
+		ShiftTransition next = index.nextTransition(second);
+
+		for (Team team : teams) {
+			ShiftTransition transition = team.nextTransition(second, index, transitions);
+
+			if (transition != null && (next == null || transition.compareTo(next) < 0)) {
+				next = transition;
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Get the last transition before the specified date and time of day. See
+	 * {@link #nextTransition(LocalDateTime)}.
+	 * 
+	 * @param dateTime Date and time of day
+	 * @return {@link ShiftTransition}, or null if none
+	 * @throws Exception exception
+	 */
+	public ShiftTransition previousTransition(LocalDateTime dateTime) throws Exception {
+		long second = toEpochSecond(dateTime);
+		NonWorkingIndex index = getNonWorkingIndex(second, second);
+		List<ShiftTransition> transitions = new ArrayList<>();
+
+		ShiftTransition previous = index.previousTransition(second);
+
+		for (Team team : teams) {
+			ShiftTransition transition = team.previousTransition(second, index, transitions);
+
+			if (transition != null && (previous == null || transition.compareTo(previous) > 0)) {
+				previous = transition;
+			}
+		}
+		return previous;
+	}
+
+	/**
+	 * Get a lazily generated stream of the transitions after the specified date
+	 * and time of day, in time order. The stream is unbounded if any team has a
+	 * working day, so it is typically limited, for example with
+	 * {@link Stream#limit(long)} or by driving a shift change timer from its
+	 * iterator. The periods of the non-working rules are included for every
+	 * year that the stream reaches, and the shift instances are left out by
+	 * their starting date as in {@link #nextTransition(LocalDateTime)}. The date and time is rounded to the nearest
+	 * second.
+	 * 
+	 * @param dateTime Date and time of day
+	 * @return Stream of {@link ShiftTransition}
+	 * @throws Exception exception
+	 */
+	public Stream<ShiftTransition> streamTransitions(LocalDateTime dateTime) throws Exception {
+		long second = toEpochSecond(dateTime);
+		return TransitionIterator.stream(teams, second, getNonWorkingCalendar());
+	}
+
+	/**
+	 * Create a tagger that assigns ascending time stamps, such as those of
+	 * machine events, to the shift instances of this schedule's teams that are
+	 * in progress. Changes made to the schedule afterwards are not seen by the
+	 * tagger. The periods of the non-working rules are created for each year
+	 * that is tagged, whatever the years queried before. An instance that starts
+	 * on a date in a non-working period is never tagged, and one that starts on
+	 * another date is tagged for its whole duration.
+	 * 
+	 * @return {@link ShiftTagger}
+	 * @throws Exception exception
+	 */
+	public ShiftTagger createShiftTagger() throws Exception {
+		return new ShiftTagger(teams, getNonWorkingCalendar());
+	}
+
+	/**
+	 * Get the number of teams on shift between the specified dates and times of
+	 * day as a timeline of segments with a constant head count, for example to
+	 * find the gaps and handovers in the coverage over the next year. The
+	 * starting and ending times of the shift instances are swept once in time
+	 * order. Instances that start on a date in a non-working period are not
+	 * counted, and those that start on another date are counted for their whole
+	 * duration.
+	 * 
+	 * @param from Starting date and time
+	 * @param to   Ending date and time
+	 * @return {@link CoverageTimeline}
+	 * @throws Exception exception
+	 */
+	public CoverageTimeline getCoverage(LocalDateTime from, LocalDateTime to) throws Exception {
+		if (from.isAfter(to)) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), to, from);
+			throw new Exception(msg);
+		}
+
+		long fromSecond = toEpochSecond(from);
+
+		// a shift lasts 24 hours or less, so one that is on shift at the start
+		// began within the prior day
+		long first = fromSecond - RotationTable.SECONDS_PER_DAY - 1;
+
+		Iterator<ShiftTransition> transitions = TransitionIterator
+				.stream(teams, first, getNonWorkingCalendar())
+				.iterator();
+		return CoverageTimeline.sweep(transitions, first, fromSecond, toEpochSecond(to));
+	}
+
+	/**
+	 * Create a team
+	 * 
+	 * @param name          Name of team
+	 * @param description   Team description
+	 * @param rotation      Shift rotation
+	 * @param rotationStart Start of rotation
+	 * @return {@link Team}
+	 * @throws Exception exception
+	 */
+	public Team createTeam(String name, String description, Rotation rotation, LocalDate rotationStart)
+			throws Exception {
+		Team team = new Team(name, description, rotation, rotationStart);
+
+		if (getTeam(name) != null) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("team.already.exists"), name);
+			throw new Exception(msg);
+		}
+
+		teams.add(team);
+		teamNames.added(teams, team);
+		team.setWorkSchedule(this);
+		teamRotationChanged(team, null, rotation);
+		return team;
+	}
+
+	/**
+	 * Create a shift
+	 * 
+	 * @param name        Name of shift
+	 * @param description Description of shift
+	 * @param start       Shift start time of day
+	 * @param duration    Shift duration
+	 * @return {@link Shift}
+	 * @throws Exception exception
+	 */
+	public Shift createShift(String name, String description, LocalTime start, Duration duration) throws Exception {
+		Shift shift = new Shift(name, description, start, duration);
+
+		if (getShift(name) != null) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("shift.already.exists"), name);
+			throw new Exception(msg);
+		}
+		shifts.add(shift);
+		shiftNames.added(shifts, shift);
+		shift.setWorkSchedule(this);
+		return shift;
+	}
+
+	/**
+	 * Create a rotation
+	 * 
+	 * @param name        Name of rotation
+	 * @param description Description of rotation
+	 * @return {@link Rotation}
+	 * @throws Exception exception
+	 */
+	public Rotation createRotation(String name, String description) throws Exception {
+		Rotation rotation = new Rotation(name, description);
+
+		if (getRotation(name) != null) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("rotation.already.exists"), name);
+			throw new Exception(msg);
+		}
+
+		rotations.add(rotation);
+		rotationNames.added(rotations, rotation);
+		rotation.setWorkSchedule(this);
+		return rotation;
+	}
+
+	// get the reverse index of shift usage, building it if needed
+	private synchronized ShiftUsage getShiftUsage() {
+		if (shiftUsage == null) {
+			shiftUsage = new ShiftUsage(rotations, teams);
+		}
+		return shiftUsage;
+	}
+
+	// a rotation segment now starts with the shift
+	synchronized void shiftUsed(RotationSegment segment) {
+		if (shiftUsage != null) {
+			shiftUsage.addSegment(segment);
+		}
+	}
+
+	// a rotation segment no longer starts with the shift
+	synchronized void shiftUnused(Shift shift, RotationSegment segment) {
+		if (shiftUsage != null) {
+			shiftUsage.removeSegment(shift, segment);
+		}
+	}
+
+	// a team has been moved from one rotation to another, either of which can be
+	// null for a team that is created or deleted
+	synchronized void teamRotationChanged(Team team, Rotation previous, Rotation current) {
+		teamsChanged();
+
+		if (shiftUsage != null) {
+			if (previous != null) {
+				shiftUsage.removeTeam(team, previous);
+			}
+
+			if (current != null) {
+				shiftUsage.addTeam(team);
+			}
+		}
+	}
+
+	/**
+	 * Get the rotation segments that start with the shift
+	 * 
+	 * @param shift {@link Shift}
+	 * @return List of {@link RotationSegment}
+	 */
+	public synchronized List<RotationSegment> getRotationSegments(Shift shift) {
+		return getShiftUsage().getSegments(shift);
+	}
+
+	/**
+	 * Get the teams of this schedule that work the shift, i.e. whose rotation has
+	 * a segment starting with it. The answer comes from a reverse index kept up
+	 * to date as rotations and teams change, so it does not depend on the number
+	 * of teams or the length of their rotations.
+	 * 
+	 * @param shift {@link Shift}
+	 * @return List of {@link Team}
+	 */
+	public synchronized List<Team> getTeams(Shift shift) {
+		return getShiftUsage().getTeams(shift, this);
+	}
+
+	/**
+	 * Delete this shift. A shift that is worked by a team of this schedule
+	 * cannot be deleted.
+	 * 
+	 * @param shift {@link Shift} to delete
+	 * @throws Exception exception
+	 */
+	public void deleteShift(Shift shift) throws Exception {
+		if (getShift(shift.getName()) == null) {
+			return;
+		}
+
+		// can't be in use
+		if (!getTeams(shift).isEmpty()) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("shift.in.use"), shift.getName());
+			throw new Exception(msg);
+		}
+
+		shifts.remove(shift);
+		periodChanged();
+
+		synchronized (this) {
+			getShiftUsage().removeShift(shift);
+		}
+	}
+
+	/**
+	 * Create a non-working period of time
+	 * 
+	 * @param name          Name of period
+	 * @param description   Description of period
+	 * @param startDateTime Starting date and time of day
+	 * @param duration      Duration of period
+	 * @return {@link NonWorkingPeriod}
+	 * @throws Exception exception
+	 */
+	public NonWorkingPeriod createNonWorkingPeriod(String name, String description, LocalDateTime startDateTime,
+			Duration duration) throws Exception {
+		NonWorkingPeriod period = new NonWorkingPeriod(name, description, startDateTime, duration);
+
+		if (getNonWorkingPeriod(name) != null) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("nonworking.period.already.exists"), name);
+			throw new Exception(msg);
+		}
+		period.setWorkSchedule(this);
+		nonWorkingPeriods.add(period);
+		periodNames.added(nonWorkingPeriods, period);
+
+		Collections.sort(nonWorkingPeriods);
+		nonWorkingPeriodsChanged();
+
+		return period;
+	}
+
+	/**
+	 * Create a non-working rule for a holiday on the same month and day every
+	 * year. A rule for February 29 only applies in leap years.
+	 * 
+	 * @param name        Name of rule
+	 * @param description Description of rule
+	 * @param monthDay    Month and day of month
+	 * @param startTime   Starting time of day
+	 * @param duration    Duration of each period
+	 * @return {@link NonWorkingRule}
+	 * @throws Exception exception
+	 */
+	public NonWorkingRule createFixedDateRule(String name, String description, MonthDay monthDay,
+			LocalTime startTime, Duration duration) throws Exception {
+		return addNonWorkingRule(NonWorkingRule.fixedDate(name, description, monthDay, startTime, duration));
+	}
+
+	/**
+	 * Create a non-working rule for a holiday on the nth day of the week in a
+	 * month every year, for example the fourth Thursday in November or the last
+	 * Monday in May
+	 * 
+	 * @param name        Name of rule
+	 * @param description Description of rule
+	 * @param month       Month
+	 * @param dayOfWeek   Day of the week
+	 * @param ordinal     Occurrence of the day of the week in the month from 1 to
+	 *                    5, or -1 for the last one. A year without a fifth
+	 *                    occurrence is skipped.
+	 * @param startTime   Starting time of day
+	 * @param duration    Duration of each period
+	 * @return {@link NonWorkingRule}
+	 * @throws Exception exception
+	 */
+	public NonWorkingRule createWeekdayOfMonthRule(String name, String description, Month month, DayOfWeek dayOfWeek,
+			int ordinal, LocalTime startTime, Duration duration) throws Exception {
+		return addNonWorkingRule(
+				NonWorkingRule.weekdayOfMonth(name, description, month, dayOfWeek, ordinal, startTime, duration));
+	}
+
+	/**
+	 * Create a non-working rule for a window on the same day of the week every
+	 * week, for example for preventive maintenance
+	 * 
+	 * @param name        Name of rule
+	 * @param description Description of rule
+	 * @param dayOfWeek   Day of the week
+	 * @param startTime   Starting time of day
+	 * @param duration    Duration of each period
+	 * @return {@link NonWorkingRule}
+	 * @throws Exception exception
+	 */
+	public NonWorkingRule createWeeklyRule(String name, String description, DayOfWeek dayOfWeek, LocalTime startTime,
+			Duration duration) throws Exception {
+		return addNonWorkingRule(NonWorkingRule.weekly(name, description, dayOfWeek, startTime, duration));
+	}
+
+	/**
+	 * Create a non-working rule for a holiday relative to Easter Sunday in the
+	 * Gregorian calendar every year, for example Good Friday (-2) or Easter
+	 * Monday (1)
+	 * 
+	 * @param name         Name of rule
+	 * @param description  Description of rule
+	 * @param easterOffset Days before (negative) or after (positive) Easter
+	 *                     Sunday, up to 365 days
+	 * @param startTime    Starting time of day
+	 * @param duration     Duration of each period
+	 * @return {@link NonWorkingRule}
+	 * @throws Exception exception
+	 */
+	public NonWorkingRule createEasterRule(String name, String description, int easterOffset, LocalTime startTime,
+			Duration duration) throws Exception {
+		return addNonWorkingRule(NonWorkingRule.easter(name, description, easterOffset, startTime, duration));
+	}
+
+	// add a rule with a unique name
+	private NonWorkingRule addNonWorkingRule(NonWorkingRule rule) throws Exception {
+		if (getNonWorkingRule(rule.getName()) != null) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("nonworking.rule.already.exists"),
+					rule.getName());
+			throw new Exception(msg);
+		}
+		rule.setWorkSchedule(this);
+
+		nonWorkingRules.add(rule);
+		ruleNames.added(nonWorkingRules, rule);
+
+		nonWorkingPeriodsChanged();
+
+		return rule;
+	}
+
+	/**
+	 * Remove a non-working rule from the schedule
+	 * 
+	 * @param rule {@link NonWorkingRule}
+	 */
+	public void deleteNonWorkingRule(NonWorkingRule rule) {
+		if (this.nonWorkingRules.contains(rule)) {
+			this.nonWorkingRules.remove(rule);
+			nonWorkingPeriodsChanged();
+		}
+	}
+
+	/**
+	 * Get all non-working rules in the schedule
+	 * 
+	 * @return List of {@link NonWorkingRule}
+	 */
+	public List<NonWorkingRule> getNonWorkingRules() {
+		TrackedList<NonWorkingRule> view = nonWorkingRuleView;
+
+		if (view == null || !view.isViewOf(nonWorkingRules)) {
+			view = new TrackedList<>(nonWorkingRules, this::nonWorkingListChanged);
+			nonWorkingRuleView = view;
+		}
+		return view;
+	}
+
+	/**
+	 * Get the non-working rule with the specified name
+	 * 
+	 * @param name Name of rule
+	 * @return {@link NonWorkingRule}, or null if not found
+	 */
+	public NonWorkingRule getNonWorkingRule(String name) {
+		return ruleNames.get(nonWorkingRules, name);
+	}
+
+	/**
+	 * Get the non-working periods and the periods of the non-working rules that
+	 * overlap the specified dates, in starting date and time order. The periods
+	 * of the rules are created only for the years of the dates.
+	 * 
+	 * @param from Starting date
+	 * @param to   Ending date (inclusive)
+	 * @return List of {@link NonWorkingPeriod}
+	 * @throws Exception exception
+	 */
+	public List<NonWorkingPeriod> getNonWorkingPeriods(LocalDate from, LocalDate to) throws Exception {
+		LocalDateTime start = from.atStartOfDay();
+		LocalDateTime end = to.plusDays(1).atStartOfDay();
+
+		List<NonWorkingPeriod> periods = new ArrayList<>();
+
+		for (NonWorkingPeriod period : nonWorkingPeriods) {
+			if (period.getStartDateTime().isBefore(end) && period.getEndDateTime().isAfter(start)) {
+				periods.add(period);
+			}
+		}
+
+		// a period can last into the next year
+		for (NonWorkingRule rule : nonWorkingRules) {
+			for (int year = from.getYear() - 1; year <= to.getYear(); year++) {
+				for (NonWorkingPeriod period : rule.getPeriods(year)) {
+					if (period.getStartDateTime().isBefore(end) && period.getEndDateTime().isAfter(start)) {
+						periods.add(period);
+					}
+				}
+			}
+		}
+
+		Collections.sort(periods);
+
+		return periods;
+	}
+
+	/**
+	 * Get total duration of rotation across all teams.
+	 * 
+	 * @return Duration of rotation
+	 * @throws Exception Exception
+	 */
+	public Duration getRotationDuration() throws Exception {
+		Duration sum = Duration.ZERO;
+
+		for (Team team : teams) {
+			sum = sum.plus(team.getRotationDuration());
+		}
+		return sum;
+	}
+
+	/**
+	 * Get the total working time for all team rotations
+	 * 
+	 * @return Team rotation working time
+	 */
+	public Duration getRotationWorkingTime() {
+		Duration sum = Duration.ZERO;
+
+		for (Team team : teams) {
+			sum = sum.plus(team.getRotation().getWorkingTime());
+		}
+		return sum;
+	}
+
+	/**
+	 * Calculate the scheduled working time between the specified dates and times of
+	 * day. Each team's working time in a non-working period is removed by the
+	 * second, whatever date the shift instance started on, so the result is the
+	 * time actually worked by the teams. The non-working periods are
+	 * merged into disjoint intervals and the teams' cumulative working time is
+	 * measured over them in one pass.
+	 * 
+	 * @param from Starting date and time
+	 * @param to   Ending date and time
+	 * @return Working time duration
+	 * @throws Exception exception
+	 */
+	public Duration calculateWorkingTime(LocalDateTime from, LocalDateTime to) throws Exception {
+		if (from.isAfter(to)) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), to, from);
+			throw new Exception(msg);
+		}
+
+		long fromSecond = toEpochSecond(from);
+		long toSecond = toEpochSecond(to);
+		IntervalSet nonWorking = getNonWorkingIndex(fromSecond, toSecond).getIntervals();
+
+		// each team is measured over the non-working intervals in the range
+		long weight = 1 + nonWorking.firstEndingAfter(toSecond) - nonWorking.firstEndingAfter(fromSecond);
+		ForkJoinPool pool = forkJoinPool;
+
+		long sum = PartitionTask.invoke(pool, 0, teams.size(), parallelGrain(pool, teams.size(), weight),
+				(low, high) -> workingSeconds(low, high, fromSecond, toSecond, nonWorking), Long::sum);
+
+		return Duration.ofSeconds(sum);
+	}
+
+	// working seconds of the teams between the local epoch seconds
+	private long workingSeconds(long fromSecond, long toSecond, IntervalSet nonWorking) {
+		LongUnaryOperator working = teamWorking(0, teams.size());
+
+		// add up scheduled time by team and remove the time in non-working periods
+		return working.applyAsLong(toSecond) - working.applyAsLong(fromSecond)
+				- nonWorking.measure(fromSecond, toSecond, working);
+	}
+
+	/**
+	 * Calculate the scheduled working time between the specified dates and times
+	 * of day less the time that the teams are on break. As with
+	 * {@link #calculateWorkingTime(LocalDateTime, LocalDateTime)}, each team's
+	 * time in a non-working period is removed. The break time comes from each
+	 * rotation's cumulative break time and a binary search of the breaks of a
+	 * shift in progress, so the cost does not depend on the number of breaks
+	 * taken in the range.
+	 * 
+	 * @param from Starting date and time
+	 * @param to   Ending date and time
+	 * @return Net working time duration
+	 * @throws Exception exception
+	 */
+	public Duration calculateNetWorkingTime(LocalDateTime from, LocalDateTime to) throws Exception {
+		if (from.isAfter(to)) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), to, from);
+			throw new Exception(msg);
+		}
+
+		long fromSecond = toEpochSecond(from);
+		long toSecond = toEpochSecond(to);
+		IntervalSet nonWorking = getNonWorkingIndex(fromSecond, toSecond).getIntervals();
+
+		long seconds = teamNetWorkingSecondsTo(toSecond) - teamNetWorkingSecondsTo(fromSecond)
+				- nonWorking.measure(fromSecond, toSecond, this::teamNetWorkingSecondsTo);
+
+		return Duration.ofSeconds(seconds);
+	}
+
+	// working seconds of the teams in the index range between the epoch seconds
+	private long workingSeconds(int low, int high, long fromSecond, long toSecond, IntervalSet nonWorking) {
+		LongUnaryOperator working = teamWorking(low, high);
+
+		return working.applyAsLong(toSecond) - working.applyAsLong(fromSecond)
+				- nonWorking.measure(fromSecond, toSecond, working);
+	}
+
+	/**
+	 * Enable the parallel evaluation of
+	 * {@link #calculateWorkingTime(LocalDateTime, LocalDateTime)},
+	 * {@link #calculateWorkingTimeBuckets(LocalDateTime, LocalDateTime, Duration)},
+	 * the team and shift buckets and
+	 * {@link #getShiftInstances(LocalDate, LocalDate)}. The teams, buckets or
+	 * days are split into parts that are evaluated on the fork/join pool, and the
+	 * results of the parts are merged in order so they are the same as those of
+	 * a sequential evaluation. A query with less work than the threshold, counted
+	 * in team days, team buckets or team non-working periods, is evaluated in the
+	 * calling thread. Parallel evaluation is disabled by default.
+	 * 
+	 * @param pool      Fork/join pool, or null to disable parallel evaluation
+	 * @param threshold Smallest amount of work to evaluate in parallel, and the
+	 *                  amount of work in each part
+	 */
+	public void setParallelMode(ForkJoinPool pool, int threshold) {
+		forkJoinPool = pool;
+		parallelThreshold = Math.max(threshold, 1);
+	}
+
+	/**
+	 * Get the fork/join pool for parallel evaluation
+	 * 
+	 * @return ForkJoinPool, or null if parallel evaluation is disabled
+	 */
+	public ForkJoinPool getForkJoinPool() {
+		return forkJoinPool;
+	}
+
+	/**
+	 * Get the smallest amount of work that is evaluated in parallel
+	 * 
+	 * @return Threshold
+	 */
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	// number of items in each part of a parallel evaluation, or all of them if
+	// the work is below the threshold
+	private int parallelGrain(ForkJoinPool pool, int items, long weight) {
+		int threshold = parallelThreshold;
+		weight = Math.max(weight, 1);
+
+		if (pool == null || items * weight < threshold) {
+			return Math.max(items, 1);
+		}
+		return (int) Math.max(threshold / weight, 1);
+	}
+
+	/**
+	 * Calculate the working seconds of all teams between the specified epoch
+	 * seconds, as {@link #calculateWorkingTime(LocalDateTime, LocalDateTime)} does
+	 * for dates and times in the calculation time zone (UTC).
+	 * 
+	 * @param fromEpochSec Starting epoch second
+	 * @param toEpochSec   Ending epoch second
+	 * @return Working seconds
+	 * @throws Exception exception
+	 */
+	public long workingSeconds(long fromEpochSec, long toEpochSec) throws Exception {
+		if (fromEpochSec > toEpochSec) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"),
+					LocalDateTime.ofEpochSecond(toEpochSec, 0, ZoneOffset.UTC),
+					LocalDateTime.ofEpochSecond(fromEpochSec, 0, ZoneOffset.UTC));
+			throw new Exception(msg);
+		}
+		return workingSeconds(fromEpochSec, toEpochSec, getNonWorkingIndex(fromEpochSec, toEpochSec).getIntervals());
+	}
+
+	/**
+	 * Check whether any team is working in the second starting at the specified
+	 * epoch second, outside of the non-working periods. A team on a shift
+	 * instance that started on a date in a non-working period is working after
+	 * the period ends.
+	 * 
+	 * @param epochSec Epoch second
+	 * @return True if working
+	 * @throws Exception exception
+	 */
+	public boolean isWorking(long epochSec) throws Exception {
+		if (getNonWorkingIndex(epochSec, epochSec).getIntervals().contains(epochSec)) {
+			return false;
+		}
+		LongUnaryOperator working = teamWorking(0, teams.size());
+		return working.applyAsLong(epochSec + 1) > working.applyAsLong(epochSec);
+	}
+
+	/**
+	 * Get the shift in progress at the specified epoch second, as an index into
+	 * the list of shifts. If instances of more than one team are in progress, the
+	 * one that started last is chosen. A shift instance includes its starting
+	 * second but not its ending second. The same rule as
+	 * {@link #isWorking(long)} applies, so no shift is in progress in a
+	 * non-working period and the index is not -1 if and only if a team is
+	 * working.
+	 * 
+	 * @param epochSec Epoch second
+	 * @return Index of the {@link Shift}, or -1 if none is in progress
+	 * @throws Exception exception
+	 */
+	public int shiftIndexAt(long epochSec) throws Exception {
+		if (getNonWorkingIndex(epochSec, epochSec).getIntervals().contains(epochSec)) {
+			return -1;
+		}
+
+		int latest = -1;
+		long latestStart = Long.MIN_VALUE;
+
+		for (int i = 0; i < teams.size(); i++) {
+			Team team = teams.get(i);
+			long day = team.instanceDayAt(epochSec, null);
+
+			if (day == Long.MIN_VALUE) {
+				continue;
+			}
+
+			long start = day * RotationTable.SECONDS_PER_DAY + team.shiftOnDay(day).getStartSecond();
+
+			if (start > latestStart) {
+				latest = team.shiftIndexOnDay(day);
+				latestStart = start;
+			}
+		}
+		return latest;
+	}
+
+	/**
+	 * Calculate the date and time at which the specified working time has been
+	 * worked by all teams together, starting at the specified date and time. The
+	 * teams' working time in non-working periods does not count, by the second as
+	 * in {@link #calculateWorkingTime(LocalDateTime, LocalDateTime)}. Each
+	 * non-working period is skipped as a whole, and within the working time
+	 * between two of them the date and time is found by a search on the teams'
+	 * cumulative working time rather than by stepping through the days.
+	 * 
+	 * @param start Starting date and time of day
+	 * @param work  Working time to add
+	 * @return Earliest date and time at which the working time is reached
+	 * @throws Exception exception
+	 */
+	public LocalDateTime addWorkingTime(LocalDateTime start, Duration work) throws Exception {
+		long remaining = toWorkingSeconds(work);
+
+		if (remaining == 0) {
+			return start;
+		}
+
+		boolean working = false;
+
+		for (Team team : teams) {
+			if (team.getRotation().getTable().getWorkingSeconds() > 0) {
+				working = true;
+			}
+		}
+
+		if (!working) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("no.working.time"), work);
+			throw new Exception(msg);
+		}
+
+		long second = toEpochSecond(start);
+		NonWorkingIndex index = getNonWorkingIndex(second, second);
+		long end = secondAfterWorking(second, remaining, index.getIntervals());
+		long available = -1;
+
+		// the non-working rules are expanded around the start, so widen them to
+		// the end and search again until it is covered. The search stops if
+		// neither the horizon nor the working time in it grows, as when the
+		// rules leave no working time.
+		while (!index.covers(second, end)) {
+			long horizonAvailable = workingSeconds(second, index.getHorizonEnd(), index.getIntervals());
+			NonWorkingIndex wider = getNonWorkingIndex(second, end);
+
+			if (horizonAvailable <= available || wider.getHorizonEnd() <= index.getHorizonEnd()) {
+				String msg = MessageFormat.format(WorkSchedule.getMessage("no.working.time"), work);
+				throw new Exception(msg);
+			}
+			available = horizonAvailable;
+			index = wider;
+			end = secondAfterWorking(second, remaining, index.getIntervals());
+		}
+		return LocalDateTime.ofEpochSecond(end, 0, ZoneOffset.UTC);
+	}
+
+	// first epoch second at which the teams have worked the seconds remaining
+	// after the position outside of the non-working intervals
+	private long secondAfterWorking(long position, long remaining, IntervalSet nonWorking) {
+		LongUnaryOperator working = teamWorking(0, teams.size());
+		int count = nonWorking.size();
+
+		for (int i = nonWorking.firstEndingAfter(position);; i++) {
+			if (i >= count) {
+				// no more non-working periods
+				return secondAtTeamWorking(position, Long.MAX_VALUE, working.applyAsLong(position) + remaining,
+						working);
+			}
+
+			long nonWorkingStart = nonWorking.start(i);
+
+			if (position < nonWorkingStart) {
+				// working time up to the next non-working period
+				long from = working.applyAsLong(position);
+				long available = working.applyAsLong(nonWorkingStart) - from;
+
+				if (remaining <= available) {
+					return secondAtTeamWorking(position, nonWorkingStart, from + remaining, working);
+				}
+				remaining -= available;
+			}
+
+			// skip the non-working period
+			position = Math.max(position, nonWorking.end(i));
+		}
+	}
+
+	// working seconds of the teams in the index range from their rotation
+	// starts to an epoch second, with each team's rotation table looked up once
+	private LongUnaryOperator teamWorking(int low, int high) {
+		RotationTable[] tables = new RotationTable[high - low];
+		long[] rotationSeconds = new long[high - low];
+
+		for (int i = low; i < high; i++) {
+			Team team = teams.get(i);
+			tables[i - low] = team.getRotation().getTable();
+			rotationSeconds[i - low] = team.getRotationStart().toEpochDay() * RotationTable.SECONDS_PER_DAY;
+		}
+		return second -> RotationTable.workingSecondsTo(tables, rotationSeconds, second);
+	}
+
+	// net working seconds of all teams from their rotation starts to the epoch
+	// second
+	private long teamNetWorkingSecondsTo(long second) {
+		long sum = 0;
+
+		for (Team team : teams) {
+			sum += team.netWorkingSecondsTo(second);
+		}
+		return sum;
+	}
+
+	// first epoch second between low and high at which the teams' working
+	// seconds reach the target. An unbounded high end is found by doubling.
+	private long secondAtTeamWorking(long low, long high, long target, LongUnaryOperator working) {
+		if (teams.size() == 1) {
+			// invert the single rotation directly
+			return Math.max(low, teams.get(0).secondAtWorking(target));
+		}
+
+		if (high == Long.MAX_VALUE) {
+			long step = RotationTable.SECONDS_PER_DAY;
+			high = low + step;
+
+			while (working.applyAsLong(high) < target) {
+				low = high;
+				step *= 2;
+				high = low + step;
+			}
+		}
+
+		while (low < high) {
+			long mid = (low + high) >>> 1;
+
+			if (working.applyAsLong(mid) >= target) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+
+	// whole seconds of working time to add, rounded to the nearest second
+	static long toWorkingSeconds(Duration work) throws Exception {
+		if (work == null || work.isNegative()) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("working.time.negative"), work);
+			throw new Exception(msg);
+		}
+
+		long seconds = work.getSeconds();
+
+		if (work.getNano() > 500E+06) {
+			seconds++;
+		}
+		return seconds;
+	}
+
+	/**
+	 * Calculate the scheduled working time for each of the intervals defined by
+	 * the starting and ending epoch seconds in the calculation time zone (UTC).
+	 * Each result is the same as calling
+	 * {@link #calculateWorkingTime(LocalDateTime, LocalDateTime)} for that
+	 * interval, but the intervals are visited in starting time order with the
+	 * rotation tables and a cursor into the non-working periods shared between
+	 * them.
+	 * 
+	 * @param fromSeconds Starting epoch second of each interval
+	 * @param toSeconds   Ending epoch second of each interval
+	 * @return Working seconds of each interval
+	 * @throws Exception exception
+	 */
+	public long[] calculateWorkingTime(long[] fromSeconds, long[] toSeconds) throws Exception {
+		if (fromSeconds.length != toSeconds.length) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("interval.count.mismatch"),
+					fromSeconds.length, toSeconds.length);
+			throw new Exception(msg);
+		}
+
+		int count = fromSeconds.length;
+		long[] workingSeconds = new long[count];
+		LongUnaryOperator working = teamWorking(0, teams.size());
+
+		// the rules' non-working periods are expanded over all of the intervals
+		long low = count > 0 ? fromSeconds[0] : 0;
+		long high = low;
+
+		for (int i = 0; i < count; i++) {
+			low = Math.min(low, fromSeconds[i]);
+			high = Math.max(high, toSeconds[i]);
+		}
+
+		IntervalSet nonWorking = getNonWorkingIndex(low, high).getIntervals();
+		int cursor = 0;
+
+		for (int interval : ascendingOrder(fromSeconds)) {
+			long from = fromSeconds[interval];
+			long to = toSeconds[interval];
+
+			if (from > to) {
+				String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"),
+						LocalDateTime.ofEpochSecond(to, 0, ZoneOffset.UTC),
+						LocalDateTime.ofEpochSecond(from, 0, ZoneOffset.UTC));
+				throw new Exception(msg);
+			}
+
+			// remove the teams' time in non-working periods
+			cursor = nonWorking.firstEndingAfter(from, cursor);
+			workingSeconds[interval] = working.applyAsLong(to) - working.applyAsLong(from)
+					- nonWorking.measure(from, to, working, cursor);
+		}
+
+		return workingSeconds;
+	}
+
+	/**
+	 * Calculate the scheduled working time for each of the intervals defined by
+	 * the starting and ending dates and times of day. The times are rounded to
+	 * the nearest second.
+	 * 
+	 * @param from Starting date and time of each interval
+	 * @param to   Ending date and time of each interval
+	 * @return Working seconds of each interval
+	 * @throws Exception exception
+	 */
+	public long[] calculateWorkingTime(LocalDateTime[] from, LocalDateTime[] to) throws Exception {
+		long[] fromSeconds = new long[from.length];
+		long[] toSeconds = new long[to.length];
+
+		for (int i = 0; i < from.length; i++) {
+			fromSeconds[i] = toEpochSecond(from[i]);
+		}
+
+		for (int i = 0; i < to.length; i++) {
+			toSeconds[i] = toEpochSecond(to[i]);
+		}
+
+		return calculateWorkingTime(fromSeconds, toSeconds);
+	}
+
+	/**
+	 * Calculate the scheduled working time in consecutive buckets of equal size
+	 * starting at the specified date and time of day, e.g. hourly, daily or
+	 * weekly buckets. The last bucket is shortened if it would end after the
+	 * ending date and time. Each result is the same as calling
+	 * {@link #calculateWorkingTime(LocalDateTime, LocalDateTime)} for that bucket,
+	 * but the team rotations are evaluated only once per bucket boundary and the
+	 * non-working periods are visited once in a single pass.
+	 *
+	 * @param from       Starting date and time
+	 * @param to         Ending date and time
+	 * @param bucketSize Bucket size of at least one second
+	 * @return Working seconds of each bucket
+	 * @throws Exception exception
+	 */
+	public long[] calculateWorkingTimeBuckets(LocalDateTime from, LocalDateTime to, Duration bucketSize)
+			throws Exception {
+		long fromSecond = toEpochSecond(from);
+		long toSecond = toEpochSecond(to);
+		long size = checkBuckets(from, to, bucketSize);
+
+		int count = bucketCount(fromSecond, toSecond, size);
+		long[] buckets = new long[count];
+
+		int teamCount = teams.size();
+		LongUnaryOperator working = teamWorking(0, teamCount);
+
+		IntervalSet nonWorking = getNonWorkingIndex(fromSecond, toSecond).getIntervals();
+		ForkJoinPool pool = forkJoinPool;
+
+		// each part fills its own range of buckets
+		PartitionTask.invoke(pool, 0, count, parallelGrain(pool, count, teamCount + 1), (low, high) -> {
+			fillBuckets(buckets, low, high, fromSecond, toSecond, size, working, nonWorking);
+			return null;
+		}, (left, right) -> null);
+
+		return buckets;
+	}
+
+	// calculate the working seconds of the buckets in the index range
+	private static void fillBuckets(long[] buckets, int low, int high, long fromSecond, long toSecond, long size,
+			LongUnaryOperator working, IntervalSet nonWorking) {
+		// working time of the teams up to the previous bucket boundary
+		long previous = working.applyAsLong(fromSecond + low * size);
+		int cursor = 0;
+
+		for (int bucket = low; bucket < high; bucket++) {
+			long start = fromSecond + bucket * size;
+			long end = Math.min(start + size, toSecond);
+			long current = working.applyAsLong(end);
+
+			// remove the teams' time in non-working periods
+			cursor = nonWorking.firstEndingAfter(start, cursor);
+			buckets[bucket] = current - previous - nonWorking.measure(start, end, working, cursor);
+			previous = current;
+		}
+	}
+
+	/**
+	 * Calculate the scheduled working time of each team in consecutive buckets of
+	 * equal size starting at the specified date and time of day. The shift
+	 * instances of each team are visited once in starting time order and the
+	 * time that falls in a non-working period is removed from them.
+	 *
+	 * @param from       Starting date and time
+	 * @param to         Ending date and time
+	 * @param bucketSize Bucket size of at least one second
+	 * @return Map of {@link Team} to the working seconds of each bucket
+	 * @throws Exception exception
+	 */
+	public Map<Team, long[]> calculateWorkingTimeBucketsByTeam(LocalDateTime from, LocalDateTime to,
+			Duration bucketSize) throws Exception {
+		Map<Team, long[]> groups = new LinkedHashMap<>();
+
+		for (Team team : teams) {
+			groups.put(team, null);
+		}
+		return calculateGroupedBuckets(from, to, bucketSize, groups, (team, shift) -> team);
+	}
+
+	/**
+	 * Calculate the scheduled working time of each shift in consecutive buckets
+	 * of equal size starting at the specified date and time of day. The shift
+	 * instances of each team are visited once in starting time order and the
+	 * time that falls in a non-working period is removed from them.
+	 *
+	 * @param from       Starting date and time
+	 * @param to         Ending date and time
+	 * @param bucketSize Bucket size of at least one second
+	 * @return Map of {@link Shift} to the working seconds of each bucket
+	 * @throws Exception exception
+	 */
+	public Map<Shift, long[]> calculateWorkingTimeBucketsByShift(LocalDateTime from, LocalDateTime to,
+			Duration bucketSize) throws Exception {
+		Map<Shift, long[]> groups = new LinkedHashMap<>();
+
+		for (Shift shift : shifts) {
+			groups.put(shift, null);
+		}
+		return calculateGroupedBuckets(from, to, bucketSize, groups, (team, shift) -> shift);
+	}
+
+	// sweep the shift instances of each team into the buckets of its group
+	private <K> Map<K, long[]> calculateGroupedBuckets(LocalDateTime from, LocalDateTime to, Duration bucketSize,
+			Map<K, long[]> groups, BiFunction<Team, Shift, K> grouping) throws Exception {
+		long fromSecond = toEpochSecond(from);
+		long toSecond = toEpochSecond(to);
+		long size = checkBuckets(from, to, bucketSize);
+
+		int count = bucketCount(fromSecond, toSecond, size);
+
+		IntervalSet nonWorking = getNonWorkingIndex(fromSecond, toSecond).getIntervals();
+		ForkJoinPool pool = forkJoinPool;
+
+		// each part sweeps a range of teams into its own buckets, which are then
+		// added together
+		long days = (toSecond - fromSecond) / RotationTable.SECONDS_PER_DAY + 2;
+
+		return PartitionTask.invoke(pool, 0, teams.size(), parallelGrain(pool, teams.size(), days), (low, high) -> {
+			Map<K, long[]> part = new LinkedHashMap<>();
+
+			for (K key : groups.keySet()) {
+				part.put(key, new long[count]);
+			}
+
+			for (int t = low; t < high; t++) {
+				sweepBuckets(teams.get(t), part, grouping, count, fromSecond, toSecond, size, nonWorking);
+			}
+			return part;
+		}, (left, right) -> {
+			for (Map.Entry<K, long[]> entry : right.entrySet()) {
+				long[] buckets = left.computeIfAbsent(entry.getKey(), key -> new long[count]);
+
+				for (int i = 0; i < count; i++) {
+					buckets[i] += entry.getValue()[i];
+				}
+			}
+			return left;
+		});
+	}
+
+	// add the working time of the team's shift instances to the buckets of its
+	// groups
+	private static <K> void sweepBuckets(Team team, Map<K, long[]> groups, BiFunction<Team, Shift, K> grouping,
+			int count, long fromSecond, long toSecond, long size, IntervalSet nonWorking) {
+		RotationTable table = team.getRotation().getTable();
+		int dayCount = table.getDayCount();
+
+		if (dayCount == 0) {
+			return;
+		}
+
+		// start with the prior day for a shift that crosses midnight
+		long rotationDay = team.getRotationStart().toEpochDay();
+		long firstDay = Math.max(Math.floorDiv(fromSecond, RotationTable.SECONDS_PER_DAY) - 1, rotationDay);
+		long lastDay = Math.floorDiv(toSecond - 1, RotationTable.SECONDS_PER_DAY);
+		int cursor = 0;
+
+		for (long day = firstDay; day <= lastDay; day++) {
+			int dayIndex = (int) ((day - rotationDay) % dayCount);
+			Shift shift = table.getShift(dayIndex);
+
+			if (shift == null) {
+				continue;
+			}
+
+			long midnight = day * RotationTable.SECONDS_PER_DAY;
+			long start = Math.max(midnight + table.getStartSecond(dayIndex), fromSecond);
+			long end = Math.min(midnight + table.getEndSecond(dayIndex), toSecond);
+
+			if (start >= end) {
+				continue;
+			}
+
+			long[] buckets = groups.computeIfAbsent(grouping.apply(team, shift), key -> new long[count]);
+
+			// add the working pieces between the non-working intervals
+			cursor = nonWorking.firstEndingAfter(start, cursor);
+
+			for (int i = cursor; i < nonWorking.size() && start < end; i++) {
+				long nonWorkingStart = nonWorking.start(i);
+
+				if (nonWorkingStart >= end) {
+					break;
+				}
+
+				if (nonWorkingStart > start) {
+					addToBuckets(buckets, fromSecond, size, start, nonWorkingStart);
+				}
+				start = Math.max(start, nonWorking.end(i));
+			}
+
+			if (start < end) {
+				addToBuckets(buckets, fromSecond, size, start, end);
+			}
+		}
+	}
+
+	// check the interval and bucket size, returning the size in seconds
+	private static long checkBuckets(LocalDateTime from, LocalDateTime to, Duration bucketSize) throws Exception {
+		if (from.isAfter(to)) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), to, from);
+			throw new Exception(msg);
+		}
+
+		if (bucketSize == null || bucketSize.getSeconds() < 1) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("bucket.size.not.positive"), bucketSize);
+			throw new Exception(msg);
+		}
+		return bucketSize.getSeconds();
+	}
+
+	// number of buckets of this size needed to cover the interval
+	private static int bucketCount(long fromSecond, long toSecond, long size) {
+		long span = toSecond - fromSecond;
+		return (int) ((span + size - 1) / size);
+	}
+
+	// add the seconds from start to end to the buckets they fall in
+	private static void addToBuckets(long[] buckets, long fromSecond, long size, long start, long end) {
+		int bucket = (int) ((start - fromSecond) / size);
+
+		while (start < end) {
+			long bucketEnd = Math.min(fromSecond + (bucket + 1) * size, end);
+			buckets[bucket++] += bucketEnd - start;
+			start = bucketEnd;
+		}
+	}
+
+	// indexes of the values in ascending order
+	private static int[] ascendingOrder(long[] values) {
+		int[] order = new int[values.length];
+		boolean sorted = true;
+
+		for (int i = 0; i < values.length; i++) {
+			order[i] = i;
+
+			if (i > 0 && values[i] < values[i - 1]) {
+				sorted = false;
+			}
+		}
+
+		if (!sorted) {
+			Integer[] boxed = new Integer[values.length];
+
+			for (int i = 0; i < values.length; i++) {
+				boxed[i] = i;
+			}
+
+			Arrays.sort(boxed, (a, b) -> Long.compare(values[a], values[b]));
+
+			for (int i = 0; i < values.length; i++) {
+				order[i] = boxed[i];
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Calculate the non-working time between the specified dates and times of day.
+	 * 
+	 * @param from Starting date and time
+	 * @param to   Ending date and time
+	 * @return Non-working time duration
+	 * @throws Exception exception
+	 */
+	public Duration calculateNonWorkingTime(LocalDateTime from, LocalDateTime to) throws Exception {
+		long fromSeconds = toEpochSecond(from);
+		long toSeconds = toEpochSecond(to);
+
+		// start with the first period that overlaps the interval
+		return Duration.ofSeconds(getNonWorkingIndex(fromSeconds, toSeconds).overlapSeconds(fromSeconds, toSeconds));
+	}
+
+	/**
+	 * Get the time zone of the {@link Instant} and {@link ZonedDateTime}
+	 * calculations
+	 * 
+	 * @return ZoneId
+	 */
+	public ZoneId getZoneId() {
+		return zoneId;
+	}
+
+	/**
+	 * Set the time zone in which the shifts and non-working periods of this
+	 * schedule are worked, by their local dates and times of day. The
+	 * {@link Instant} and {@link ZonedDateTime} calculations then measure the
+	 * elapsed time, so a shift that spans a change to daylight saving time is
+	 * worked for an hour more or less. The calculations on LocalDateTime are not
+	 * affected. The default time zone is UTC. The time zone is not persisted with
+	 * the schedule, so it must be set again after the schedule is loaded.
+	 * 
+	 * @param zoneId Time zone, or null for UTC
+	 */
+	public void setZoneId(ZoneId zoneId) {
+		this.zoneId = zoneId != null ? zoneId : ZONE_ID;
+		zoneOffsets = null;
+	}
+
+	// epoch second of the instant, rounded to the nearest second
+	private static long toEpochSecond(Instant instant) {
+		long second = instant.getEpochSecond();
+
+		if (instant.getNano() > 500E+06) {
+			second++;
+		}
+		return second;
+	}
+
+	// get the offsets of the time zone covering the interval, extending the
+	// horizon by a year on each side if needed
+	private ZoneOffsetTable getZoneOffsets(long from, long to) {
+		ZoneOffsetTable table = zoneOffsets;
+
+		if (table == null || !table.getZoneId().equals(zoneId)) {
+			table = new ZoneOffsetTable(zoneId, from - YEAR_SECONDS, to + YEAR_SECONDS);
+			zoneOffsets = table;
+		} else if (!table.covers(from, to)) {
+			long start = Math.min(table.getHorizonStart(), from - YEAR_SECONDS);
+			long end = Math.max(table.getHorizonEnd(), to + YEAR_SECONDS);
+			table = new ZoneOffsetTable(zoneId, start, end);
+			zoneOffsets = table;
+		}
+		return table;
+	}
+
+	// add the measure of each part of the interval with a constant offset, taken
+	// over the local epoch seconds
+	private long measureLocal(Instant from, Instant to, LongBinaryOperator measure)
+			throws Exception {
+		if (from.isAfter(to)) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"), to, from);
+			throw new Exception(msg);
+		}
+
+		long fromSecond = toEpochSecond(from);
+		long toSecond = toEpochSecond(to);
+
+		ZoneOffsetTable table = getZoneOffsets(fromSecond, toSecond);
+		long sum = 0;
+		long start = fromSecond;
+
+		for (int segment = table.segmentAt(fromSecond); start < toSecond; segment++) {
+			long end = Math.min(table.segmentEnd(segment), toSecond);
+			int offset = table.offset(segment);
+
+			sum += measure.applyAsLong(start + offset, end + offset);
+			start = end;
+		}
+		return sum;
+	}
+
+	/**
+	 * Calculate the elapsed working time between the specified instants, with the
+	 * shifts worked by their local times of day in the schedule's time zone
+	 * 
+	 * @param from Starting instant
+	 * @param to   Ending instant
+	 * @return Working time duration
+	 * @throws Exception exception
+	 */
+	public Duration calculateWorkingTime(Instant from, Instant to) throws Exception {
+		IntervalSet nonWorking = getNonWorkingIndex(toEpochSecond(from), toEpochSecond(to)).getIntervals();
+		return Duration.ofSeconds(measureLocal(from, to, (start, end) -> workingSeconds(start, end, nonWorking)));
+	}
+
+	/**
+	 * Calculate the elapsed working time between the specified instants. The time
+	 * zones of the arguments only identify the instants, the schedule's time zone
+	 * is used for the shifts.
+	 * 
+	 * @param from Starting date and time
+	 * @param to   Ending date and time
+	 * @return Working time duration
+	 * @throws Exception exception
+	 */
+	public Duration calculateWorkingTime(ZonedDateTime from, ZonedDateTime to) throws Exception {
+		return calculateWorkingTime(from.toInstant(), to.toInstant());
+	}
+
+	/**
+	 * Calculate the elapsed non-working time between the specified instants, with
+	 * the non-working periods by their local dates and times of day in the
+	 * schedule's time zone
+	 * 
+	 * @param from Starting instant
+	 * @param to   Ending instant
+	 * @return Non-working time duration
+	 * @throws Exception exception
+	 */
+	public Duration calculateNonWorkingTime(Instant from, Instant to) throws Exception {
+		NonWorkingIndex index = getNonWorkingIndex(toEpochSecond(from), toEpochSecond(to));
+		return Duration.ofSeconds(measureLocal(from, to, index::overlapSeconds));
+	}
+
+	/**
+	 * Calculate the elapsed non-working time between the specified instants. The
+	 * time zones of the arguments only identify the instants.
+	 * 
+	 * @param from Starting date and time
+	 * @param to   Ending date and time
+	 * @return Non-working time duration
+	 * @throws Exception exception
+	 */
+	public Duration calculateNonWorkingTime(ZonedDateTime from, ZonedDateTime to) throws Exception {
+		return calculateNonWorkingTime(from.toInstant(), to.toInstant());
+	}
+
+	/**
+	 * Get the list of shift instances that are in progress at the specified
+	 * instant, by its local date and time of day in the schedule's time zone.
+	 * During the repeated hour at the end of daylight saving time, each of the two
+	 * instants with the same local time finds the same instances.
+	 * 
+	 * @param instant Instant
+	 * @return List of {@link ShiftInstance}
+	 * @throws Exception exception
+	 */
+	public List<ShiftInstance> getShiftInstancesForTime(Instant instant) throws Exception {
+		long second = instant.getEpochSecond();
+		int offset = getZoneOffsets(second, second).offsetAt(second);
+
+		return getShiftInstancesForTime(LocalDateTime.ofEpochSecond(second + offset, instant.getNano(), ZoneOffset.UTC));
+	}
+
+	/**
+	 * Get the list of shift instances that are in progress at the specified date
+	 * and time. The time zone of the argument only identifies the instant.
+	 * 
+	 * @param dateTime Date and time
+	 * @return List of {@link ShiftInstance}
+	 * @throws Exception exception
+	 */
+	public List<ShiftInstance> getShiftInstancesForTime(ZonedDateTime dateTime) throws Exception {
+		return getShiftInstancesForTime(dateTime.toInstant());
+	}
+
+	/**
+	 * Compile this work schedule into an immutable, thread-safe snapshot for
+	 * read-only queries. Later changes to the times of this schedule's shifts,
+	 * breaks, rotations and non-working periods are not reflected in the
+	 * snapshot, but its teams and shifts are this schedule's own objects. The
+	 * snapshot keeps the non-working rules, so their periods are found for any
+	 * year queried.
+	 * 
+	 * @return {@link CompiledSchedule}
+	 * @throws Exception exception
+	 */
+	public CompiledSchedule compile() throws Exception {
+		return new CompiledSchedule(this);
+	}
+
+	/**
+	 * Get the list of shifts in this schedule
+	 * 
+	 * @return List of {@link Shift}
+	 */
+	public List<Shift> getShifts() {
+		return shifts;
+	}
+
+	/**
+	 * Get the shift with the specified name
+	 * 
+	 * @param name Name of shift
+	 * @return {@link Shift}, or null if not found
+	 */
+	public Shift getShift(String name) {
+		return shiftNames.get(shifts, name);
+	}
+
+	/**
+	 * Get the list of rotations in this schedule
+	 * 
+	 * @return List of {@link Rotation}
+	 */
+	public List<Rotation> getRotations() {
+		return rotations;
+	}
+
+	/**
+	 * Get the rotation with the specified name
+	 * 
+	 * @param name Name of rotation
+	 * @return {@link Rotation}, or null if not found
+	 */
+	public Rotation getRotation(String name) {
+		return rotationNames.get(rotations, name);
 	}
 
 	/**
@@ -0,0 +1,265 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Class WorkingTimeBitmap is an immutable bitmap of one {@link Team}'s working
+ * time created by {@link Team#createWorkingBitmap(Duration)}. It holds one bit
+ * per time slot of the team's rotation cycle (e.g. one bit per minute) together
+ * with the number of working slots before each 64-bit word, and the
+ * non-working periods of the work schedule as an overlay of disjoint intervals.
+ * As in {@link WorkSchedule#calculateWorkingTime(LocalDateTime, LocalDateTime)},
+ * the seconds in a non-working period are not working whatever date the shift
+ * instance started on.
+ * Checking whether the team is working at an instant is a single bit test, and
+ * the working time between two instants is computed from two word popcounts
+ * plus one pair per overlapping non-working period. The periods of the
+ * non-working rules are created for a year when it is first queried.
+ *
+ * A slot is working if the team is working at the start of the slot, so the
+ * results are exact when the shift starting times and durations are multiples
+ * of the granularity. Time in which two of the team's shifts overlap is counted
+ * once. Changes made to the team or work schedule after the bitmap was created
+ * are not seen by it.
+ */
+public final class WorkingTimeBitmap {
+	// team whose working time is held
+	private final Team team;
+
+	// seconds per slot
+	private final int granularity;
+
+	// working slots of one rotation cycle, one bit per slot
+	private final long[] words;
+
+	// number of working slots before each word, one more entry than words
+	private final int[] ranks;
+
+	// slots in one rotation cycle
+	private final int slotCount;
+
+	// epoch second of the rotation start
+	private final long rotationSecond;
+
+	// seconds in one rotation cycle
+	private final long cycleSeconds;
+
+	// working seconds at the start of the cycle that spill over from the last
+	// day of the previous cycle
+	private final long wrapSeconds;
+
+	// non-working periods and rules of the work schedule
+	private final NonWorkingCalendar nonWorkingCalendar;
+
+	WorkingTimeBitmap(Team team, Duration granularity, NonWorkingCalendar nonWorkingCalendar) throws Exception {
+		if (granularity == null || granularity.getNano() != 0 || granularity.getSeconds() < 1
+				|| RotationTable.SECONDS_PER_DAY % granularity.getSeconds() != 0) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("bitmap.granularity.invalid"), granularity);
+			throw new Exception(msg);
+		}
+
+		this.team = team;
+		this.granularity = (int) granularity.getSeconds();
+		this.nonWorkingCalendar = nonWorkingCalendar;
+		this.rotationSecond = team.getRotationStart().toEpochDay() * RotationTable.SECONDS_PER_DAY;
+
+		RotationTable table = team.getRotation().getTable();
+		int dayCount = table.getDayCount();
+
+		cycleSeconds = (long) dayCount * RotationTable.SECONDS_PER_DAY;
+		slotCount = (int) (cycleSeconds / this.granularity);
+		words = new long[(slotCount + 63) >>> 6];
+		ranks = new int[words.length + 1];
+
+		long spill = 0;
+
+		for (int day = 0; day < dayCount; day++) {
+			if (table.getShift(day) == null) {
+				continue;
+			}
+
+			long midnight = (long) day * RotationTable.SECONDS_PER_DAY;
+			long start = midnight + table.getStartSecond(day);
+			long end = midnight + table.getEndSecond(day);
+
+			if (end > cycleSeconds) {
+				// wrap around to the start of the cycle
+				spill = end - cycleSeconds;
+				setSlots(start, cycleSeconds);
+				setSlots(0, spill);
+			} else {
+				setSlots(start, end);
+			}
+		}
+
+		// round up to the working slots
+		wrapSeconds = firstSlotFrom(spill) * (long) this.granularity;
+
+		for (int i = 0; i < words.length; i++) {
+			ranks[i + 1] = ranks[i] + Long.bitCount(words[i]);
+		}
+	}
+
+	// index of the first slot starting at or after the second in the cycle
+	private int firstSlotFrom(long second) {
+		return (int) ((second + granularity - 1) / granularity);
+	}
+
+	// set the slots that start between the seconds in the cycle
+	private void setSlots(long fromSecond, long toSecond) {
+		int last = firstSlotFrom(toSecond);
+
+		for (int slot = firstSlotFrom(fromSecond); slot < last; slot++) {
+			words[slot >>> 6] |= 1L << slot;
+		}
+	}
+
+	// check the slot's bit
+	private boolean isSet(int slot) {
+		return (words[slot >>> 6] & (1L << slot)) != 0;
+	}
+
+	// number of working slots before the slot
+	private long rank(int slot) {
+		int word = slot >>> 6;
+		long mask = (1L << slot) - 1;
+		return ranks[word] + Long.bitCount(words[word] & mask);
+	}
+
+	/**
+	 * Get the team whose working time is held in this bitmap
+	 *
+	 * @return {@link Team}
+	 */
+	public Team getTeam() {
+		return team;
+	}
+
+	/**
+	 * Get the time covered by each bit
+	 *
+	 * @return Granularity
+	 */
+	public Duration getGranularity() {
+		return Duration.ofSeconds(granularity);
+	}
+
+	// team working seconds from the rotation start to the epoch second
+	private long workingSecondsTo(long epochSecond) {
+		long second = epochSecond - rotationSecond;
+
+		if (second <= 0 || slotCount == 0) {
+			return 0;
+		}
+
+		long cycles = second / cycleSeconds;
+		long inCycle = second % cycleSeconds;
+		int slot = (int) (inCycle / granularity);
+
+		long sum = (cycles * ranks[words.length] + rank(slot)) * granularity;
+
+		if (isSet(slot)) {
+			sum += inCycle % granularity;
+		}
+
+		// nothing spills over into the first cycle
+		return sum - Math.min(second, wrapSeconds);
+	}
+
+	/**
+	 * Check to see if the team is working at the epoch second in the calculation
+	 * time zone (UTC)
+	 *
+	 * @param epochSecond Epoch second
+	 * @return True if working
+	 */
+	public boolean isWorking(long epochSecond) {
+		long second = epochSecond - rotationSecond;
+
+		if (second < wrapSeconds || slotCount == 0) {
+			// before the rotation start, or spill-over into its first day
+			return false;
+		}
+
+		if (!isSet((int) ((second % cycleSeconds) / granularity))) {
+			return false;
+		}
+		return !nonWorkingCalendar.getIndex(epochSecond, epochSecond).contains(epochSecond);
+	}
+
+	/**
+	 * Check to see if the team is working at the specified date and time of day
+	 *
+	 * @param dateTime Date and time of day
+	 * @return True if working
+	 */
+	public boolean isWorking(LocalDateTime dateTime) {
+		return isWorking(WorkSchedule.toEpochSecond(dateTime));
+	}
+
+	/**
+	 * Calculate the team's working time between the epoch seconds in the
+	 * calculation time zone (UTC). Time in a non-working period of the work
+	 * schedule is removed.
+	 *
+	 * @param fromSecond Starting epoch second
+	 * @param toSecond   Ending epoch second
+	 * @return Working seconds
+	 * @throws Exception exception
+	 */
+	public long workingSeconds(long fromSecond, long toSecond) throws Exception {
+		if (fromSecond > toSecond) {
+			String msg = MessageFormat.format(WorkSchedule.getMessage("end.earlier.than.start"),
+					LocalDateTime.ofEpochSecond(toSecond, 0, ZoneOffset.UTC),
+					LocalDateTime.ofEpochSecond(fromSecond, 0, ZoneOffset.UTC));
+			throw new Exception(msg);
+		}
+
+		long sum = workingSecondsTo(toSecond) - workingSecondsTo(fromSecond);
+
+		// remove the working time in the overlapping non-working periods
+		sum -= nonWorkingCalendar.getIndex(fromSecond, toSecond).getIntervals().measure(fromSecond, toSecond,
+				this::workingSecondsTo);
+		return sum;
+	}
+
+	/**
+	 * Calculate the team's working time between the specified dates and times of
+	 * day. Time in a non-working period of the work schedule is removed.
+	 *
+	 * @param from Starting date and time
+	 * @param to   Ending date and time
+	 * @return Working time duration
+	 * @throws Exception exception
+	 */
+	public Duration calculateWorkingTime(LocalDateTime from, LocalDateTime to) throws Exception {
+		return Duration.ofSeconds(workingSeconds(WorkSchedule.toEpochSecond(from), WorkSchedule.toEpochSecond(to)));
+	}
+}
@@ -0,0 +1,165 @@
+/*
+MIT License
+
+Copyright (c) 2016 Kent Randall
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package org.point85.workschedule;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+
+/**
+ * Class ZoneOffsetTable is an immutable table of the offsets from UTC of a time
+ * zone over a horizon of epoch seconds. Between two transitions the offset is
+ * constant, so an interval of time maps to the same length of local time in
+ * each segment. The segments are found by a binary search on the transitions,
+ * without looking up the zone rules.
+ */
+final class ZoneOffsetTable {
+	// time zone of the table
+	private final ZoneId zoneId;
+
+	// first and last epoch seconds covered
+	private final long horizonStart;
+	private final long horizonEnd;
+
+	// epoch seconds at which the offset changes
+	private final long[] transitions;
+
+	// offset in seconds of each segment, one more than the number of
+	// transitions. Segment i ends at transition i.
+	private final int[] offsets;
+
+	ZoneOffsetTable(ZoneId zoneId, long horizonStart, long horizonEnd) {
+		ZoneRules rules = zoneId.getRules();
+
+		this.zoneId = zoneId;
+
+		if (rules.isFixedOffset()) {
+			this.horizonStart = Long.MIN_VALUE;
+			this.horizonEnd = Long.MAX_VALUE;
+			this.transitions = new long[0];
+			this.offsets = new int[] { rules.getOffset(Instant.EPOCH).getTotalSeconds() };
+			return;
+		}
+
+		this.horizonStart = horizonStart;
+		this.horizonEnd = horizonEnd;
+
+		long[] seconds = new long[16];
+		int[] totals = new int[17];
+		int count = 0;
+
+		Instant instant = Instant.ofEpochSecond(horizonStart);
+		totals[0] = rules.getOffset(instant).getTotalSeconds();
+
+		ZoneOffsetTransition transition = rules.nextTransition(instant);
+
+		while (transition != null && transition.toEpochSecond() <= horizonEnd) {
+			if (count == seconds.length) {
+				seconds = Arrays.copyOf(seconds, 2 * count);
+				totals = Arrays.copyOf(totals, 2 * count + 1);
+			}
+			seconds[count] = transition.toEpochSecond();
+			totals[count + 1] = transition.getOffsetAfter().getTotalSeconds();
+			count++;
+
+			transition = rules.nextTransition(transition.getInstant());
+		}
+
+		this.transitions = Arrays.copyOf(seconds, count);
+		this.offsets = Arrays.copyOf(totals, count + 1);
+	}
+
+	/**
+	 * Get the time zone of the table
+	 *
+	 * @return ZoneId
+	 */
+	ZoneId getZoneId() {
+		return zoneId;
+	}
+
+	/**
+	 * Check whether the table covers the interval
+	 *
+	 * @param from Starting epoch second
+	 * @param to   Ending epoch second
+	 * @return True if covered
+	 */
+	boolean covers(long from, long to) {
+		return from >= horizonStart && to <= horizonEnd;
+	}
+
+	long getHorizonStart() {
+		return horizonStart;
+	}
+
+	long getHorizonEnd() {
+		return horizonEnd;
+	}
+
+	/**
+	 * Get the segment containing the epoch second
+	 *
+	 * @param second Epoch second
+	 * @return Segment index
+	 */
+	int segmentAt(long second) {
+		// number of transitions at or before the second
+		int index = Arrays.binarySearch(transitions, second);
+		return index >= 0 ? index + 1 : -index - 1;
+	}
+
+	/**
+	 * Get the epoch second at which the segment ends
+	 *
+	 * @param segment Segment index
+	 * @return Epoch second, or Long.MAX_VALUE for the last segment
+	 */
+	long segmentEnd(int segment) {
+		return segment < transitions.length ? transitions[segment] : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Get the offset from UTC of the segment
+	 *
+	 * @param segment Segment index
+	 * @return Offset in seconds
+	 */
+	int offset(int segment) {
+		return offsets[segment];
+	}
+
+	/**
+	 * Get the offset from UTC at the epoch second
+	 *
+	 * @param second Epoch second
+	 * @return Offset in seconds
+	 */
+	int offsetAt(long second) {
+		return offsets[segmentAt(second)];
+	}
+}
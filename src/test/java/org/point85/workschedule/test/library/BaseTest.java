@@ -32,9 +32,12 @@ import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.junit.BeforeClass;
+import org.point85.workschedule.CompiledSchedule;
 import org.point85.workschedule.NonWorkingPeriod;
 import org.point85.workschedule.Rotation;
 import org.point85.workschedule.Shift;
@@ -199,13 +202,13 @@ public abstract class BaseTest {
 					assertFalse(shift.isInShift(endTime.plusSeconds(1)));
 				}
 
-				LocalDateTime ldt = LocalDateTime.of(day, startTime);
-				assertTrue(ws.getShiftInstancesForTime(ldt).size() > 0);
+				LocalDateTime ldt = instance.getStartTime();
+				assertTrue(containsInstance(ws.getShiftInstancesForTime(ldt), instance));
 
-				ldt = LocalDateTime.of(day, startTime.plusSeconds(1));
-				assertTrue(ws.getShiftInstancesForTime(ldt).size() > 0);
+				ldt = instance.getStartTime().plusSeconds(1);
+				assertTrue(containsInstance(ws.getShiftInstancesForTime(ldt), instance));
 
-				ldt = LocalDateTime.of(day, startTime.minusSeconds(1));
+				ldt = instance.getStartTime().minusSeconds(1);
 
 				for (ShiftInstance si : ws.getShiftInstancesForTime(ldt)) {
 					if (!shiftDuration.equals(Duration.ofHours(24))) {
@@ -213,23 +216,102 @@ public abstract class BaseTest {
 					}
 				}
 
-				ldt = LocalDateTime.of(day, endTime);
-				assertTrue(ws.getShiftInstancesForTime(ldt).size() > 0);
+				ldt = instance.getEndTime();
+				assertTrue(containsInstance(ws.getShiftInstancesForTime(ldt), instance));
 
-				ldt = LocalDateTime.of(day, endTime.minusSeconds(1));
-				assertTrue(ws.getShiftInstancesForTime(ldt).size() > 0);
+				ldt = instance.getEndTime().minusSeconds(1);
+				assertTrue(containsInstance(ws.getShiftInstancesForTime(ldt), instance));
 
-				ldt = LocalDateTime.of(day, endTime.plusSeconds(1));
+				ldt = instance.getEndTime().plusSeconds(1);
 
 				for (ShiftInstance si : ws.getShiftInstancesForTime(ldt)) {
 					if (!shiftDuration.equals(Duration.ofHours(24))) {
 						assertFalse(shift.getName().equals(si.getShift().getName()));
 					}
 				}
+
+				// every instance found contains the time
+				for (ShiftInstance si : ws.getShiftInstancesForTime(ldt)) {
+					assertFalse(si.getStartTime().isAfter(ldt));
+					assertFalse(si.getEndTime().isBefore(ldt));
+				}
+			}
+
+			day = day.plusDays(1);
+		}
+	}
+
+	private boolean containsInstance(List<ShiftInstance> instances, ShiftInstance instance) {
+		for (ShiftInstance si : instances) {
+			if (si.getTeam().equals(instance.getTeam()) && si.getStartTime().equals(instance.getStartTime())) {
+				return true;
 			}
+		}
+		return false;
+	}
+
+	private void assertSameInstances(List<ShiftInstance> expected, List<ShiftInstance> actual) {
+		assertTrue(expected.size() == actual.size());
+
+		for (int i = 0; i < expected.size(); i++) {
+			assertTrue(expected.get(i).getTeam().equals(actual.get(i).getTeam()));
+			assertTrue(expected.get(i).getShift().equals(actual.get(i).getShift()));
+			assertTrue(expected.get(i).getStartTime().equals(actual.get(i).getStartTime()));
+		}
+	}
+
+	private void testCompiledSchedule(WorkSchedule ws, LocalDate instanceReference, Duration rotationDays)
+			throws Exception {
+		CompiledSchedule compiled = ws.compile();
+
+		assertTrue(compiled.getName().equals(ws.getName()));
+		assertTrue(compiled.getTeams().size() == ws.getTeams().size());
+
+		LocalDate day = instanceReference;
 
+		for (long i = 0; i < rotationDays.toDays(); i++) {
+			assertSameInstances(ws.getShiftInstancesForDay(day), compiled.getShiftInstancesForDay(day));
+
+			for (int hour = 0; hour < 24; hour += 3) {
+				LocalDateTime ldt = LocalDateTime.of(day, LocalTime.of(hour, 0, 0));
+				assertSameInstances(ws.getShiftInstancesForTime(ldt), compiled.getShiftInstancesForTime(ldt));
+			}
 			day = day.plusDays(1);
 		}
+
+		LocalDateTime from = LocalDateTime.of(instanceReference, LocalTime.of(7, 0, 0));
+		LocalDateTime to = from.plusDays(rotationDays.toDays() * 3).plusHours(5);
+
+		assertTrue(ws.calculateWorkingTime(from, to).equals(compiled.calculateWorkingTime(from, to)));
+		assertTrue(ws.calculateNonWorkingTime(from, to).equals(compiled.calculateNonWorkingTime(from, to)));
+	}
+
+	private void testStreamShiftInstances(WorkSchedule ws, LocalDate instanceReference, Duration rotationDays)
+			throws Exception {
+		LocalDate endDate = instanceReference.plusDays(rotationDays.toDays() * 2);
+
+		List<ShiftInstance> expected = new ArrayList<>();
+		for (LocalDate day = instanceReference; !day.isAfter(endDate); day = day.plusDays(1)) {
+			expected.addAll(ws.getShiftInstancesForDay(day));
+		}
+		assertSameInstances(expected, ws.streamShiftInstances(instanceReference, endDate).collect(Collectors.toList()));
+
+		for (Team team : ws.getTeams()) {
+			if (team.getRotationStart().isAfter(instanceReference)) {
+				continue;
+			}
+
+			List<ShiftInstance> teamExpected = new ArrayList<>();
+			for (LocalDate day = instanceReference; !day.isAfter(endDate); day = day.plusDays(1)) {
+				ShiftInstance instance = team.getShiftInstanceForDay(day);
+
+				if (instance != null) {
+					teamExpected.add(instance);
+				}
+			}
+			assertSameInstances(teamExpected,
+					team.streamShiftInstances(instanceReference, endDate).collect(Collectors.toList()));
+		}
 	}
 
 	protected void runBaseTest(WorkSchedule ws, Duration hoursPerRotation, Duration rotationDays,
@@ -254,6 +336,12 @@ public abstract class BaseTest {
 		// shift instances
 		testShiftInstances(ws, instanceReference);
 
+		// compiled snapshot
+		testCompiledSchedule(ws, instanceReference, rotationDays);
+
+		// streamed shift instances
+		testStreamShiftInstances(ws, instanceReference, rotationDays);
+
 		if (testDeletions) {
 			testDeletions();
 		}
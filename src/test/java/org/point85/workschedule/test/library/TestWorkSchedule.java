@@ -28,23 +28,43 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.time.DayOfWeek;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.Month;
+import java.time.MonthDay;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 import org.junit.Test;
 import org.point85.workschedule.Break;
+import org.point85.workschedule.BreakInstance;
+import org.point85.workschedule.CompiledSchedule;
+import org.point85.workschedule.CoverageSegment;
+import org.point85.workschedule.CoverageTimeline;
 import org.point85.workschedule.NonWorkingPeriod;
+import org.point85.workschedule.NonWorkingRule;
 import org.point85.workschedule.Rotation;
 import org.point85.workschedule.RotationSegment;
 import org.point85.workschedule.Shift;
 import org.point85.workschedule.ShiftInstance;
+import org.point85.workschedule.ShiftTagger;
+import org.point85.workschedule.ShiftTransition;
 import org.point85.workschedule.Team;
+import org.point85.workschedule.TransitionType;
 import org.point85.workschedule.WorkSchedule;
+import org.point85.workschedule.WorkingTimeBitmap;
 
 public class TestWorkSchedule extends BaseTest {
 
@@ -982,4 +1002,1753 @@ public class TestWorkSchedule extends BaseTest {
 		duration = team1.calculateWorkingTime(from, to);
 		assertTrue(duration.equals(Duration.ofHours(45).plusMinutes(30)));
 	}
+
+	@Test
+	public void testTeamWorkingTimeCycles() throws Exception {
+		schedule = new WorkSchedule("Working Time Cycles", "Test working time over many rotations");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 0, 0), Duration.ofHours(8));
+
+		// last day of the rotation is a working day
+		Rotation rotation = schedule.createRotation("Off Day", "Off then day");
+		rotation.addSegment(day, 0, 1);
+		rotation.addSegment(day, 1, 0);
+
+		LocalDate startRotation = LocalDate.of(2017, 1, 1);
+		Team team = schedule.createTeam("Team1", "Team 1", rotation, startRotation);
+
+		LocalDateTime from = LocalDateTime.of(2017, 1, 3, 0, 0, 0);
+		Duration time = team.calculateWorkingTime(from, from.plusDays(10));
+		assertTrue(time.equals(Duration.ofHours(60)));
+
+		// ten years is a whole number of rotations
+		time = team.calculateWorkingTime(from, from.plusDays(3652));
+		assertTrue(time.equals(rotation.getWorkingTime().multipliedBy(1826)));
+
+		// night shift ends after the end of the interval
+		Rotation nightRotation = schedule.createRotation("Night", "Night");
+		nightRotation.addSegment(night, 1, 1);
+		Team team2 = schedule.createTeam("Team2", "Team 2", nightRotation, startRotation);
+
+		from = LocalDateTime.of(2017, 1, 4, 0, 0, 0);
+		time = team2.calculateWorkingTime(from, from.plusHours(3));
+		assertTrue(time.equals(Duration.ofHours(3)));
+
+		// compare to the sum of the shift instances
+		LocalDate fromDate = LocalDate.of(2017, 2, 1);
+		LocalDate toDate = LocalDate.of(2017, 12, 31);
+		Duration sum = Duration.ZERO;
+
+		for (LocalDate date = fromDate; date.isBefore(toDate); date = date.plusDays(1)) {
+			ShiftInstance instance = team2.getShiftInstanceForDay(date);
+
+			if (instance != null) {
+				sum = sum.plus(instance.getShift().getDuration());
+			}
+		}
+		time = team2.calculateWorkingTime(LocalDateTime.of(fromDate, LocalTime.of(22, 0, 0)),
+				LocalDateTime.of(toDate, LocalTime.of(22, 0, 0)));
+		assertTrue(time.equals(sum));
+
+		// nothing is worked before the rotation starts
+		from = LocalDateTime.of(startRotation.minusDays(10), LocalTime.MIDNIGHT);
+		time = team2.calculateWorkingTime(from, LocalDateTime.of(startRotation, LocalTime.MIDNIGHT));
+		assertTrue(time.equals(Duration.ZERO));
+	}
+
+	@Test
+	public void testCompiledSnapshot() throws Exception {
+		schedule = new WorkSchedule("Compiled", "Test compiled snapshot");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+		Rotation rotation = schedule.createRotation("Day", "Day");
+		Break lunch = day.createBreak("Lunch", "Lunch", LocalTime.of(12, 0, 0), Duration.ofMinutes(30));
+		rotation.addSegment(day, 5, 2);
+
+		LocalDate startRotation = LocalDate.of(2017, 1, 2);
+		schedule.createTeam("Team", "Team", rotation, startRotation);
+
+		CompiledSchedule compiled = schedule.compile();
+
+		// the times of the shift and its breaks are those of the snapshot
+		day.setStart(LocalTime.of(8, 0, 0));
+		lunch.setDuration(Duration.ofMinutes(45));
+
+		ShiftInstance instance = compiled.getShiftInstancesForDay(startRotation).get(0);
+		assertTrue(instance.getShift() == day);
+		assertTrue(instance.getStartTime().equals(LocalDateTime.of(startRotation, LocalTime.of(7, 0, 0))));
+		assertTrue(instance.getEndTime().equals(LocalDateTime.of(startRotation, LocalTime.of(15, 0, 0))));
+		assertTrue(instance.getBreakInstances().get(0).getEndTime()
+				.equals(LocalDateTime.of(startRotation, LocalTime.of(12, 30, 0))));
+		assertTrue(schedule.getShiftInstancesForDay(startRotation).get(0).getBreakInstances().get(0).getEndTime()
+				.equals(LocalDateTime.of(startRotation, LocalTime.of(12, 45, 0))));
+
+		// later changes are not seen by the snapshot
+		LocalDate holiday = LocalDate.of(2017, 1, 16);
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", LocalDateTime.of(holiday, LocalTime.MIDNIGHT),
+				Duration.ofHours(24));
+
+		assertTrue(schedule.getShiftInstancesForDay(holiday).size() == 0);
+		assertTrue(compiled.getShiftInstancesForDay(holiday).size() == 1);
+		assertTrue(schedule.compile().getShiftInstancesForDay(holiday).size() == 0);
+
+		LocalDateTime from = LocalDateTime.of(holiday, LocalTime.MIDNIGHT);
+		assertTrue(compiled.calculateWorkingTime(from, from.plusDays(1)).equals(Duration.ofHours(8)));
+		assertTrue(schedule.calculateWorkingTime(from, from.plusDays(1)).equals(Duration.ZERO));
+
+		try {
+			// date before start
+			compiled.getShiftInstancesForDay(startRotation.minusDays(1));
+			fail();
+		} catch (Exception e) {
+		}
+	}
+
+	@Test
+	public void testNonWorkingPeriodIndex() throws Exception {
+		schedule = new WorkSchedule("Holidays", "Test many non-working periods");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+		Rotation rotation = schedule.createRotation("Day", "Day");
+		rotation.addSegment(day, 1, 0);
+
+		LocalDate startRotation = LocalDate.of(2010, 1, 1);
+		schedule.createTeam("Team", "Team", rotation, startRotation);
+
+		// a 12 hour holiday every 5 days for 10 years, and a long shutdown
+		// overlapping several of them
+		for (int i = 0; i < 730; i++) {
+			LocalDateTime start = LocalDateTime.of(startRotation.plusDays(5 * i), LocalTime.NOON);
+			schedule.createNonWorkingPeriod("Holiday" + i, "Holiday", start, Duration.ofHours(12));
+		}
+		NonWorkingPeriod shutdown = schedule.createNonWorkingPeriod("Shutdown", "Shutdown",
+				LocalDateTime.of(2012, 6, 1, 0, 0, 0), Duration.ofDays(30));
+
+		for (LocalDate date = startRotation; date.isBefore(LocalDate.of(2020, 1, 1)); date = date.plusDays(1)) {
+			boolean inPeriod = false;
+
+			for (NonWorkingPeriod period : schedule.getNonWorkingPeriods()) {
+				if (period.isInPeriod(date)) {
+					inPeriod = true;
+					break;
+				}
+			}
+			assertTrue(schedule.getShiftInstancesForDay(date).isEmpty() == inPeriod);
+		}
+
+		LocalDateTime from = LocalDateTime.of(2011, 1, 1, 18, 0, 0);
+		Duration time = schedule.calculateNonWorkingTime(from, from.plusDays(10));
+		assertTrue(time.equals(Duration.ofHours(24)));
+
+		// changes are seen by the index
+		LocalDate june = LocalDate.of(2012, 6, 3);
+		assertTrue(schedule.getShiftInstancesForDay(june).isEmpty());
+
+		shutdown.setDuration(Duration.ofDays(1));
+		assertTrue(schedule.getShiftInstancesForDay(june).size() == (june.toEpochDay() % 5 == 0 ? 0 : 1));
+
+		schedule.deleteNonWorkingPeriod(shutdown);
+		NonWorkingPeriod first = schedule.getNonWorkingPeriods().remove(0);
+		assertTrue(schedule.getShiftInstancesForDay(startRotation).size() == 1);
+
+		// a removal and an addition that keep the number of periods are seen too
+		LocalDate second = startRotation.plusDays(5);
+		assertTrue(schedule.getShiftInstancesForDay(second).isEmpty());
+
+		schedule.getNonWorkingPeriods().remove(0);
+		schedule.getNonWorkingPeriods().add(0, first);
+		assertTrue(schedule.getShiftInstancesForDay(startRotation).isEmpty());
+		assertTrue(schedule.getShiftInstancesForDay(second).size() == 1);
+		assertTrue(schedule.getNonWorkingPeriod("Holiday1") == null);
+		assertTrue(schedule.getNonWorkingPeriod("Holiday0") == first);
+
+		// the same view of each list is returned
+		assertTrue(schedule.getNonWorkingPeriods() == schedule.getNonWorkingPeriods());
+		assertTrue(schedule.getNonWorkingRules() == schedule.getNonWorkingRules());
+	}
+
+	@Test
+	public void testBatchWorkingTime() throws Exception {
+		schedule = new WorkSchedule("Batch", "Test batch working time");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+
+		Rotation rotation = schedule.createRotation("DNO", "DNO");
+		rotation.addSegment(day, 1, 0);
+		rotation.addSegment(night, 1, 1);
+
+		schedule.createTeam("Team 1", "First team", rotation, referenceDate);
+		schedule.createTeam("Team 2", "Second team", rotation, referenceDate.minusDays(1));
+		schedule.createTeam("Team 3", "Third team", rotation, referenceDate.minusDays(2));
+
+		for (int i = 0; i < 50; i++) {
+			LocalDateTime start = LocalDateTime.of(referenceDate.plusDays(7 * i + 3), LocalTime.of(6, 0, 0));
+			schedule.createNonWorkingPeriod("Holiday" + i, "Holiday", start, Duration.ofHours(30));
+		}
+
+		// unsorted and overlapping intervals
+		Random random = new Random(85);
+		int count = 1000;
+		LocalDateTime[] from = new LocalDateTime[count];
+		LocalDateTime[] to = new LocalDateTime[count];
+
+		for (int i = 0; i < count; i++) {
+			from[i] = LocalDateTime.of(referenceDate, LocalTime.MIDNIGHT).plusMinutes(random.nextInt(365 * 1440));
+			to[i] = from[i].plusMinutes(random.nextInt(10 * 1440));
+		}
+
+		long[] seconds = schedule.calculateWorkingTime(from, to);
+
+		for (int i = 0; i < count; i++) {
+			assertTrue(seconds[i] == schedule.calculateWorkingTime(from[i], to[i]).getSeconds());
+		}
+
+		try {
+			// end before start
+			schedule.calculateWorkingTime(new LocalDateTime[] { to[0].plusDays(1) }, new LocalDateTime[] { to[0] });
+			fail();
+		} catch (Exception e) {
+		}
+
+		try {
+			// mismatched arrays
+			schedule.calculateWorkingTime(new long[2], new long[1]);
+			fail();
+		} catch (Exception e) {
+		}
+	}
+
+	@Test
+	public void testWorkingTimeBuckets() throws Exception {
+		schedule = new WorkSchedule("Buckets", "Test working time buckets");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+
+		Rotation rotation = schedule.createRotation("DNO", "DNO");
+		rotation.addSegment(day, 1, 0);
+		rotation.addSegment(night, 1, 1);
+
+		Team team1 = schedule.createTeam("Team 1", "First team", rotation, referenceDate);
+		Team team2 = schedule.createTeam("Team 2", "Second team", rotation, referenceDate.minusDays(1));
+		Team team3 = schedule.createTeam("Team 3", "Third team", rotation, referenceDate.minusDays(2));
+
+		LocalDateTime holiday = LocalDateTime.of(referenceDate.plusDays(10), LocalTime.of(6, 0, 0));
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", holiday, Duration.ofHours(30));
+		schedule.createNonWorkingPeriod("Shutdown", "Shutdown", holiday.plusHours(20), Duration.ofHours(20));
+
+		// hourly buckets with a partial last bucket
+		LocalDateTime from = LocalDateTime.of(referenceDate, LocalTime.of(0, 30, 0));
+		LocalDateTime to = from.plusDays(30).plusMinutes(20);
+		Duration hour = Duration.ofHours(1);
+
+		long[] buckets = schedule.calculateWorkingTimeBuckets(from, to, hour);
+		Map<Team, long[]> byTeam = schedule.calculateWorkingTimeBucketsByTeam(from, to, hour);
+		Map<Shift, long[]> byShift = schedule.calculateWorkingTimeBucketsByShift(from, to, hour);
+
+		assertTrue(buckets.length == 30 * 24 + 1);
+		assertTrue(byTeam.size() == 3);
+		assertTrue(byShift.size() == 2);
+
+		for (int i = 0; i < buckets.length; i++) {
+			LocalDateTime start = from.plusHours(i);
+			LocalDateTime end = i < buckets.length - 1 ? start.plusHours(1) : to;
+
+			assertTrue(buckets[i] == schedule.calculateWorkingTime(start, end).getSeconds());
+
+			long teamSum = 0;
+			long teamReference = 0;
+
+			for (Team team : new Team[] { team1, team2, team3 }) {
+				long teamWorking = team.calculateWorkingTime(start, end).getSeconds();
+				assertTrue(byTeam.get(team)[i] <= teamWorking);
+				teamSum += byTeam.get(team)[i];
+				teamReference += teamWorking;
+			}
+
+			assertTrue(teamSum == byShift.get(day)[i] + byShift.get(night)[i]);
+
+			Duration nonWorking = schedule.calculateNonWorkingTime(start, end);
+
+			if (nonWorking.isZero()) {
+				assertTrue(teamSum == teamReference);
+			} else if (nonWorking.equals(Duration.between(start, end))) {
+				assertTrue(teamSum == 0);
+			}
+		}
+
+		// daily buckets
+		long[] days = schedule.calculateWorkingTimeBuckets(from, to, Duration.ofDays(1));
+		assertTrue(days.length == 31);
+		assertTrue(days[0] == Duration.ofHours(24).getSeconds());
+
+		// empty interval
+		assertTrue(schedule.calculateWorkingTimeBuckets(from, from, hour).length == 0);
+
+		try {
+			// no bucket size
+			schedule.calculateWorkingTimeBuckets(from, to, Duration.ZERO);
+			fail();
+		} catch (Exception e) {
+		}
+
+		try {
+			// end before start
+			schedule.calculateWorkingTimeBucketsByTeam(to, from, hour);
+			fail();
+		} catch (Exception e) {
+		}
+	}
+
+	@Test
+	public void testWorkingTimeBitmap() throws Exception {
+		schedule = new WorkSchedule("Bitmap", "Test working time bitmap");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(6, 30, 0), Duration.ofMinutes(8 * 60 + 15));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 0, 0), Duration.ofHours(8));
+
+		Rotation rotation = schedule.createRotation("Bitmap", "Bitmap");
+		rotation.addSegment(day, 3, 1);
+		rotation.addSegment(night, 3, 0);
+
+		Team team = schedule.createTeam("Team", "Team", rotation, referenceDate);
+
+		LocalDateTime holiday = LocalDateTime.of(referenceDate.plusDays(20), LocalTime.of(12, 0, 0));
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", holiday, Duration.ofHours(40));
+		schedule.createNonWorkingPeriod("Shutdown", "Shutdown", holiday.plusHours(30), Duration.ofHours(24));
+
+		WorkingTimeBitmap bitmap = team.createWorkingBitmap(Duration.ofMinutes(1));
+		assertTrue(bitmap.getTeam().equals(team));
+		assertTrue(bitmap.getGranularity().equals(Duration.ofMinutes(1)));
+
+		Random random = new Random(7);
+		LocalDateTime origin = LocalDateTime.of(referenceDate.minusDays(2), LocalTime.MIDNIGHT);
+
+		for (int i = 0; i < 2000; i++) {
+			LocalDateTime from = origin.plusMinutes(random.nextInt(120 * 1440));
+			LocalDateTime to = from.plusMinutes(random.nextInt(5 * 1440) + 1);
+
+			// point lookup
+			boolean working = team.calculateWorkingTime(from, from.plusSeconds(1)).getSeconds() == 1
+					&& schedule.calculateNonWorkingTime(from, from.plusSeconds(1)).isZero();
+			assertTrue(bitmap.isWorking(from) == working);
+
+			// range, net of the non-working periods
+			long expected = schedule.calculateWorkingTimeBucketsByTeam(from, to, Duration.between(from, to))
+					.get(team)[0];
+			assertTrue(bitmap.calculateWorkingTime(from, to).getSeconds() == expected);
+		}
+
+		// nothing before the rotation start
+		assertFalse(bitmap.isWorking(LocalDateTime.of(referenceDate, LocalTime.of(2, 0, 0))));
+		assertFalse(bitmap.isWorking(LocalDateTime.of(referenceDate.minusDays(1), LocalTime.of(7, 0, 0))));
+
+		try {
+			// does not divide a day
+			team.createWorkingBitmap(Duration.ofSeconds(7));
+			fail();
+		} catch (Exception e) {
+		}
+	}
+
+	@Test
+	public void testOvernightInstanceForTime() throws Exception {
+		schedule = new WorkSchedule("Overnight", "Test overnight instance lookup");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(8, 0, 0), Duration.ofHours(8));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 0, 0), Duration.ofHours(8));
+
+		Rotation dayRotation = schedule.createRotation("Days", "Days");
+		dayRotation.addSegment(day, 5, 2);
+
+		Rotation nightRotation = schedule.createRotation("Nights", "Nights");
+		nightRotation.addSegment(night, 7, 0);
+
+		Team dayTeam = schedule.createTeam("Day team", "Days", dayRotation, referenceDate);
+		Team nightTeam = schedule.createTeam("Night team", "Nights", nightRotation, referenceDate);
+
+		LocalDate date = referenceDate.plusDays(3);
+		CompiledSchedule compiled = schedule.compile();
+
+		// the night instance that started yesterday, not today's
+		LocalDateTime threeAm = LocalDateTime.of(date, LocalTime.of(3, 0, 0));
+		LocalDateTime nightStart = LocalDateTime.of(date.minusDays(1), LocalTime.of(22, 0, 0));
+
+		assertSingleInstance(schedule.getShiftInstancesForTime(threeAm), nightTeam, nightStart);
+		assertSingleInstance(compiled.getShiftInstancesForTime(threeAm), nightTeam, nightStart);
+
+		// both ends included
+		List<ShiftInstance> instances = schedule.getShiftInstancesForTime(LocalDateTime.of(date, LocalTime.of(6, 0, 0)));
+		assertTrue(instances.size() == 1);
+		assertTrue(schedule.getShiftInstancesForTime(LocalDateTime.of(date, LocalTime.of(6, 0, 1))).isEmpty());
+
+		instances = schedule.getShiftInstancesForTime(LocalDateTime.of(date, LocalTime.of(12, 0, 0)));
+		assertTrue(instances.size() == 1);
+		assertTrue(instances.get(0).getTeam().equals(dayTeam));
+
+		// nothing before the rotation start
+		assertTrue(schedule.getShiftInstancesForTime(LocalDateTime.of(referenceDate, LocalTime.of(3, 0, 0))).isEmpty());
+
+		// yesterday's instance is skipped if it started on a non-working day
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", LocalDateTime.of(date.minusDays(1), LocalTime.MIDNIGHT),
+				Duration.ofHours(24));
+		assertTrue(schedule.getShiftInstancesForTime(threeAm).isEmpty());
+		assertTrue(schedule.compile().getShiftInstancesForTime(threeAm).isEmpty());
+	}
+
+	private void assertSingleInstance(List<ShiftInstance> instances, Team team, LocalDateTime start) {
+		assertTrue(instances.size() == 1);
+		assertTrue(instances.get(0).getTeam().equals(team));
+		assertTrue(instances.get(0).getStartTime().equals(start));
+	}
+
+	@Test
+	public void testShiftWorkingSeconds() throws Exception {
+		schedule = new WorkSchedule("Working seconds", "Test shift working seconds");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(9));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(21, 30, 0), Duration.ofHours(10));
+		Shift full = schedule.createShift("Full", "24 hour shift", LocalTime.of(8, 0, 0), Duration.ofHours(24));
+
+		for (Shift shift : new Shift[] { day, night, full }) {
+			for (int from = 0; from < 86400; from += 1800) {
+				for (int to = 0; to < 86400; to += 1800) {
+					LocalTime fromTime = LocalTime.ofSecondOfDay(from);
+					LocalTime toTime = LocalTime.ofSecondOfDay(to);
+
+					assertTrue(shift.calculateWorkingSeconds(from, to, true) == shift
+							.calculateWorkingTime(fromTime, toTime, true).getSeconds());
+					assertTrue(shift.calculateWorkingSeconds(from, to, false) == shift
+							.calculateWorkingTime(fromTime, toTime, false).getSeconds());
+				}
+			}
+		}
+
+		// cached times follow changes
+		assertFalse(day.spansMidnight());
+		day.setStart(LocalTime.of(20, 0, 0));
+		assertTrue(day.spansMidnight());
+		assertTrue(day.calculateWorkingSeconds(22 * 3600, 23 * 3600, true) == 3600);
+
+		day.setDuration(Duration.ofHours(2));
+		assertFalse(day.spansMidnight());
+		assertTrue(day.calculateWorkingSeconds(21 * 3600, 23 * 3600, true) == 3600);
+	}
+
+	@Test
+	public void testRotationPeriodsCache() throws Exception {
+		schedule = new WorkSchedule("Rotation cache", "Test rotation period cache");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+
+		Rotation rotation = schedule.createRotation("DNO", "DNO");
+		RotationSegment daySegment = rotation.addSegment(day, 1, 0);
+		rotation.addSegment(night, 1, 1);
+
+		Team team1 = schedule.createTeam("Team 1", "First team", rotation, referenceDate);
+		Team team2 = schedule.createTeam("Team 2", "Second team", rotation, referenceDate.minusDays(1));
+
+		LocalDateTime from = LocalDateTime.of(referenceDate, LocalTime.MIDNIGHT);
+		LocalDateTime to = from.plusDays(30);
+
+		assertTrue(rotation.getDayCount() == 3);
+		assertTrue(rotation.getWorkingTime().equals(Duration.ofHours(24)));
+		assertTrue(team1.calculateWorkingTime(from, to).equals(Duration.ofHours(240)));
+
+		// the list can only be changed through the segments
+		try {
+			rotation.getPeriods().clear();
+			fail();
+		} catch (UnsupportedOperationException e) {
+		}
+
+		// segment changes
+		daySegment.setDaysOn(2);
+		assertTrue(rotation.getDayCount() == 4);
+		assertTrue(rotation.getDuration().equals(Duration.ofDays(4)));
+		assertTrue(rotation.getWorkingTime().equals(Duration.ofHours(36)));
+		assertTrue(team2.getShiftInstanceForDay(referenceDate).getShift().equals(day));
+
+		daySegment.setDaysOff(1);
+		assertTrue(rotation.getDayCount() == 5);
+		assertFalse(day.equals(rotation.getPeriods().get(2)));
+
+		daySegment.setStartingShift(night);
+		assertTrue(night.equals(rotation.getPeriods().get(0)));
+
+		// shift changes
+		daySegment.setStartingShift(day);
+		day.setDuration(Duration.ofHours(10));
+		assertTrue(rotation.getWorkingTime().equals(Duration.ofHours(32)));
+
+		// segments removed from the list directly
+		rotation.getRotationSegments().remove(daySegment);
+		assertTrue(rotation.getDayCount() == 2);
+		assertTrue(team1.calculateWorkingTime(from, to).equals(Duration.ofHours(180)));
+
+		// concurrent first use
+		rotation.addSegment(day, 3, 2);
+		Thread[] threads = new Thread[8];
+		int[] dayCounts = new int[threads.length];
+
+		for (int i = 0; i < threads.length; i++) {
+			final int index = i;
+			threads[i] = new Thread(() -> dayCounts[index] = rotation.getPeriods().size());
+			threads[i].start();
+		}
+
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+			assertTrue(dayCounts[i] == 7);
+		}
+	}
+
+	@Test
+	public void testTransitions() throws Exception {
+		schedule = new WorkSchedule("Transitions", "Test shift transitions");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+		day.createBreak("Lunch", "Lunch", LocalTime.of(12, 0, 0), Duration.ofMinutes(30));
+
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 0, 0), Duration.ofHours(8));
+		night.createBreak("Meal", "Meal", LocalTime.of(2, 0, 0), Duration.ofMinutes(30));
+
+		Rotation dayRotation = schedule.createRotation("Days", "Days");
+		dayRotation.addSegment(day, 2, 1);
+
+		Rotation nightRotation = schedule.createRotation("Nights", "Nights");
+		nightRotation.addSegment(night, 2, 2);
+
+		schedule.createTeam("Day team", "Days", dayRotation, referenceDate);
+		Team nightTeam = schedule.createTeam("Night team", "Nights", nightRotation, referenceDate);
+
+		LocalDate holiday = referenceDate.plusDays(10);
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", LocalDateTime.of(holiday, LocalTime.of(6, 30, 0)),
+				Duration.ofHours(36));
+
+		// the night meal break is after midnight
+		LocalDateTime dateTime = LocalDateTime.of(referenceDate, LocalTime.of(23, 0, 0));
+		ShiftTransition transition = nightTeam.nextTransition(dateTime);
+		assertTrue(transition.getType() == TransitionType.BREAK_START);
+		assertTrue(transition.getTime().equals(LocalDateTime.of(referenceDate.plusDays(1), LocalTime.of(2, 0, 0))));
+
+		transition = nightTeam.previousTransition(dateTime);
+		assertTrue(transition.getType() == TransitionType.SHIFT_START);
+		assertTrue(transition.getTime().equals(LocalDateTime.of(referenceDate, LocalTime.of(22, 0, 0))));
+
+		// nothing before the rotation start
+		assertTrue(nightTeam.previousTransition(LocalDateTime.of(referenceDate, LocalTime.of(22, 0, 0))) == null);
+
+		// a fraction of a second is rounded to the nearest second
+		LocalDateTime early = LocalDateTime.of(referenceDate, LocalTime.of(21, 59, 59, 600_000_000));
+		assertTrue(nightTeam.nextTransition(early).getTime()
+				.equals(LocalDateTime.of(referenceDate.plusDays(1), LocalTime.of(2, 0, 0))));
+		assertTrue(nightTeam.previousTransition(early) == null);
+		assertTrue(schedule.previousTransition(early).getTime()
+				.equals(LocalDateTime.of(referenceDate, LocalTime.of(15, 0, 0))));
+
+		// non-working boundaries
+		transition = schedule.nextTransition(LocalDateTime.of(holiday, LocalTime.of(6, 10, 0)));
+		assertTrue(transition.getType() == TransitionType.NON_WORKING_START);
+		assertTrue(transition.getTeam() == null);
+
+		// the stream is in time order and agrees with the point queries
+		List<ShiftTransition> transitions = schedule.streamTransitions(LocalDateTime.of(referenceDate, LocalTime.MIDNIGHT))
+				.limit(200).collect(Collectors.toList());
+
+		for (int i = 1; i < transitions.size(); i++) {
+			assertTrue(transitions.get(i - 1).compareTo(transitions.get(i)) < 0);
+		}
+		assertTrue(transitions.get(0).getTime().equals(LocalDateTime.of(referenceDate, LocalTime.of(7, 0, 0))));
+
+		Random random = new Random(12);
+		LocalDateTime last = transitions.get(transitions.size() - 1).getTime();
+
+		for (int i = 0; i < 500; i++) {
+			LocalDateTime time = LocalDateTime.of(referenceDate, LocalTime.MIDNIGHT).plusMinutes(random.nextInt(30 * 1440));
+
+			if (!time.isBefore(last)) {
+				continue;
+			}
+
+			ShiftTransition expectedNext = null;
+			ShiftTransition expectedPrevious = null;
+
+			for (ShiftTransition candidate : transitions) {
+				if (candidate.getTime().isAfter(time)) {
+					expectedNext = candidate;
+					break;
+				}
+
+				if (candidate.getTime().isBefore(time)) {
+					expectedPrevious = candidate;
+				}
+			}
+
+			assertTrue(schedule.nextTransition(time).compareTo(expectedNext) == 0);
+
+			ShiftTransition previous = schedule.previousTransition(time);
+			assertTrue(previous == null ? expectedPrevious == null : previous.compareTo(expectedPrevious) == 0);
+		}
+
+		// skipped instances
+		for (ShiftTransition candidate : transitions) {
+			if (candidate.getShiftInstance() != null) {
+				assertFalse(candidate.getShiftInstance().getStartTime().toLocalDate().equals(holiday));
+			}
+		}
+	}
+
+	@Test
+	public void testAddWorkingTime() throws Exception {
+		schedule = new WorkSchedule("Add working time", "Test the due date calculation");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 0, 0), Duration.ofHours(8));
+
+		Rotation dayRotation = schedule.createRotation("Days", "Days");
+		dayRotation.addSegment(day, 5, 2);
+
+		Rotation nightRotation = schedule.createRotation("Nights", "Nights");
+		nightRotation.addSegment(night, 3, 4);
+
+		Team dayTeam = schedule.createTeam("Day team", "Days", dayRotation, referenceDate);
+		Team nightTeam = schedule.createTeam("Night team", "Nights", nightRotation, referenceDate.plusDays(2));
+
+		LocalDateTime rotationStart = LocalDateTime.of(referenceDate, LocalTime.MIDNIGHT);
+
+		// a week of day shifts
+		assertTrue(dayTeam.addWorkingTime(rotationStart, Duration.ofHours(40))
+				.equals(LocalDateTime.of(referenceDate.plusDays(4), LocalTime.of(15, 0, 0))));
+		assertTrue(dayTeam.addWorkingTime(rotationStart, Duration.ZERO).equals(rotationStart));
+
+		Random random = new Random(5);
+
+		for (int i = 0; i < 200; i++) {
+			LocalDateTime start = rotationStart.plusMinutes(random.nextInt(60 * 1440));
+			Duration work = Duration.ofMinutes(1 + random.nextInt(200 * 60));
+
+			for (Team team : schedule.getTeams()) {
+				LocalDateTime end = team.addWorkingTime(start, work);
+				assertTrue(team.calculateWorkingTime(start, end).equals(work));
+				assertTrue(team.calculateWorkingTime(start, end.minusSeconds(1)).compareTo(work) < 0);
+			}
+
+			LocalDateTime end = schedule.addWorkingTime(start, work);
+			assertTrue(schedule.calculateWorkingTime(start, end).equals(work));
+		}
+
+		// holidays are skipped
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", LocalDateTime.of(referenceDate.plusDays(10), LocalTime.MIDNIGHT),
+				Duration.ofDays(3));
+		schedule.createNonWorkingPeriod("Shutdown", "Shutdown",
+				LocalDateTime.of(referenceDate.plusDays(30), LocalTime.of(12, 0, 0)), Duration.ofDays(10));
+
+		WorkingTimeBitmap[] bitmaps = new WorkingTimeBitmap[] { dayTeam.createWorkingBitmap(Duration.ofMinutes(1)),
+				nightTeam.createWorkingBitmap(Duration.ofMinutes(1)) };
+
+		for (int i = 0; i < 200; i++) {
+			LocalDateTime start = rotationStart.plusMinutes(random.nextInt(60 * 1440));
+			Duration work = Duration.ofMinutes(1 + random.nextInt(200 * 60));
+			LocalDateTime end = schedule.addWorkingTime(start, work);
+
+			long worked = 0;
+			long before = 0;
+
+			for (WorkingTimeBitmap bitmap : bitmaps) {
+				worked += bitmap.calculateWorkingTime(start, end).getSeconds();
+				before += bitmap.calculateWorkingTime(start, end.minusSeconds(1)).getSeconds();
+			}
+			assertTrue(worked == work.getSeconds());
+			assertTrue(before < work.getSeconds());
+		}
+
+		try {
+			schedule.addWorkingTime(rotationStart, Duration.ofHours(-1));
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testExactWorkingTime() throws Exception {
+		schedule = new WorkSchedule("Exact", "Test working time net of non-working periods");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 0, 0), Duration.ofHours(8));
+
+		Rotation dayRotation = schedule.createRotation("Days", "Days");
+		dayRotation.addSegment(day, 5, 2);
+
+		Rotation nightRotation = schedule.createRotation("Nights", "Nights");
+		nightRotation.addSegment(night, 4, 3);
+
+		schedule.createTeam("A", "Days", dayRotation, referenceDate);
+		schedule.createTeam("B", "Days", dayRotation, referenceDate.plusDays(2));
+		schedule.createTeam("C", "Nights", nightRotation, referenceDate);
+
+		LocalDateTime from = LocalDateTime.of(referenceDate.plusDays(7), LocalTime.MIDNIGHT);
+		LocalDateTime to = from.plusDays(1);
+
+		// team A's day shift and the start of team C's night shift, then team A's
+		// day shift and team C's night shift on both sides of midnight
+		assertTrue(schedule.calculateWorkingTime(from, to).equals(Duration.ofHours(10)));
+		assertTrue(schedule.calculateWorkingTime(to, to.plusDays(1)).equals(Duration.ofHours(16)));
+
+		// a whole-day holiday removes all of it and overlapping periods are counted
+		// once
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", from, Duration.ofHours(24));
+		schedule.createNonWorkingPeriod("Overlap", "Overlap", from.plusHours(6), Duration.ofHours(6));
+
+		assertTrue(schedule.calculateWorkingTime(from, to).equals(Duration.ZERO));
+		assertTrue(schedule.calculateWorkingTime(from, to.plusDays(1)).equals(Duration.ofHours(16)));
+
+		// a non-working period when no team works does not change the working time
+		LocalDateTime evening = LocalDateTime.of(referenceDate.plusDays(14), LocalTime.of(15, 0, 0));
+		Duration eveningTime = schedule.calculateWorkingTime(evening, evening.plusHours(24));
+		schedule.createNonWorkingPeriod("Evening", "Evening", evening, Duration.ofHours(7));
+		assertTrue(schedule.calculateWorkingTime(evening, evening.plusHours(24)).equals(eveningTime));
+
+		// agrees with the teams' bitmaps, the compiled schedule and the batch
+		// calculation
+		CompiledSchedule compiled = schedule.compile();
+		Random random = new Random(21);
+
+		for (int i = 0; i < 100; i++) {
+			LocalDateTime start = LocalDateTime.of(referenceDate, LocalTime.MIDNIGHT).plusMinutes(random.nextInt(40 * 1440));
+			LocalDateTime end = start.plusMinutes(random.nextInt(10 * 1440));
+
+			long expected = 0;
+
+			for (Team team : schedule.getTeams()) {
+				expected += team.createWorkingBitmap(Duration.ofMinutes(1)).calculateWorkingTime(start, end).getSeconds();
+			}
+
+			assertTrue(schedule.calculateWorkingTime(start, end).getSeconds() == expected);
+			assertTrue(compiled.calculateWorkingTime(start, end).getSeconds() == expected);
+			assertTrue(schedule.calculateWorkingTime(new LocalDateTime[] { start },
+					new LocalDateTime[] { end })[0] == expected);
+
+			// the due date calculation is its inverse
+			if (expected > 0) {
+				LocalDateTime due = schedule.addWorkingTime(start, Duration.ofSeconds(expected));
+				assertTrue(schedule.calculateWorkingTime(start, due).getSeconds() == expected);
+			}
+		}
+	}
+
+	@Test
+	public void testNameLookup() throws Exception {
+		schedule = new WorkSchedule("Names", "Test name lookup");
+
+		Shift shift = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+		Break lunch = shift.createBreak("Lunch", "Lunch", LocalTime.of(12, 0, 0), Duration.ofMinutes(30));
+		Rotation rotation = schedule.createRotation("Days", "Days");
+		rotation.addSegment(shift, 5, 2);
+
+		for (int i = 0; i < 2000; i++) {
+			schedule.createTeam("Team " + i, "Team", rotation, referenceDate);
+			schedule.createNonWorkingPeriod("Holiday " + i, "Holiday",
+					LocalDateTime.of(referenceDate.plusDays(2000 - i), LocalTime.MIDNIGHT), Duration.ofHours(24));
+		}
+
+		assertTrue(schedule.getTeam("Team 1234").getName().equals("Team 1234"));
+		assertTrue(schedule.getTeam("Team 2000") == null);
+		assertTrue(schedule.getShift("Day") == shift);
+		assertTrue(schedule.getRotation("Days") == rotation);
+		assertTrue(shift.getBreak("Lunch") == lunch);
+		assertTrue(schedule.getNonWorkingPeriod("Holiday 7").getStartDateTime()
+				.equals(LocalDateTime.of(referenceDate.plusDays(1993), LocalTime.MIDNIGHT)));
+
+		// the periods are kept in time order
+		List<NonWorkingPeriod> periods = schedule.getNonWorkingPeriods();
+
+		for (int i = 1; i < periods.size(); i++) {
+			assertTrue(periods.get(i - 1).compareTo(periods.get(i)) < 0);
+		}
+
+		// duplicates are rejected
+		try {
+			schedule.createTeam("Team 5", "Team", rotation, referenceDate);
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+
+		// renamed objects are found by their new name
+		shift.setName("Morning");
+		assertTrue(schedule.getShift("Day") == null);
+		assertTrue(schedule.getShift("Morning") == shift);
+
+		// as are objects added to or removed from the lists directly
+		Team team = new Team();
+		team.setName("Direct");
+		schedule.getTeams().add(team);
+		assertTrue(schedule.getTeam("Direct") == team);
+
+		schedule.deleteTeam(team);
+		assertTrue(schedule.getTeam("Direct") == null);
+
+		// a period that is moved keeps the list in time order
+		NonWorkingPeriod moved = schedule.getNonWorkingPeriod("Holiday 0");
+		moved.setStartDateTime(LocalDateTime.of(referenceDate, LocalTime.MIDNIGHT));
+		assertTrue(periods.get(0) == moved);
+
+		for (int i = 1; i < periods.size(); i++) {
+			assertTrue(periods.get(i - 1).compareTo(periods.get(i)) < 0);
+		}
+
+		// a break renamed in a shift without a schedule is found by its new name
+		Shift unowned = new Shift();
+		Break rest = unowned.createBreak("Rest", "Rest", LocalTime.of(10, 0, 0), Duration.ofMinutes(15));
+		assertTrue(unowned.getBreak("Rest") == rest);
+
+		rest.setName("Coffee");
+		assertTrue(unowned.getBreak("Rest") == null);
+		assertTrue(unowned.getBreak("Coffee") == rest);
+	}
+
+	@Test
+	public void testShiftUsage() throws Exception {
+		schedule = new WorkSchedule("Usage", "Test shift usage");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 0, 0), Duration.ofHours(8));
+		Shift swing = schedule.createShift("Swing", "Swing shift", LocalTime.of(15, 0, 0), Duration.ofHours(8));
+		Shift spare = schedule.createShift("Spare", "Unused shift", LocalTime.of(9, 0, 0), Duration.ofHours(8));
+
+		Rotation days = schedule.createRotation("Days", "Days");
+		RotationSegment daySegment = days.addSegment(day, 5, 2);
+
+		Rotation nights = schedule.createRotation("Nights", "Nights");
+		nights.addSegment(night, 4, 3);
+
+		Team teamA = schedule.createTeam("A", "Days", days, referenceDate);
+		Team teamB = schedule.createTeam("B", "Days", days, referenceDate);
+
+		// an unused shift can be deleted while other shifts are in use
+		schedule.deleteShift(spare);
+		assertTrue(schedule.getShift("Spare") == null);
+
+		assertTrue(schedule.getTeams(day).size() == 2);
+		assertTrue(schedule.getTeams(night).isEmpty());
+		assertTrue(schedule.getRotationSegments(day).get(0) == daySegment);
+
+		try {
+			schedule.deleteShift(day);
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+
+		// the index follows the changes made after it was built
+		teamB.setRotation(nights);
+		assertTrue(schedule.getTeams(day).get(0) == teamA);
+		assertTrue(schedule.getTeams(night).get(0) == teamB);
+
+		daySegment.setStartingShift(swing);
+		assertTrue(schedule.getTeams(day).isEmpty());
+		assertTrue(schedule.getTeams(swing).get(0) == teamA);
+
+		Team teamC = schedule.createTeam("C", "Nights", nights, referenceDate);
+		assertTrue(schedule.getTeams(night).size() == 2);
+
+		schedule.deleteTeam(teamB);
+		assertTrue(schedule.getTeams(night).get(0) == teamC);
+
+		nights.removeSegment(nights.getRotationSegments().get(0));
+		assertTrue(schedule.getTeams(night).isEmpty());
+		assertTrue(nights.getDayCount() == 0);
+
+		schedule.deleteShift(day);
+		schedule.deleteShift(night);
+		assertTrue(schedule.getShifts().size() == 1);
+	}
+
+	@Test
+	public void testShiftInstanceCache() throws Exception {
+		schedule = new WorkSchedule("Cache", "Test shift instance cache");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 0, 0), Duration.ofHours(8));
+
+		Rotation rotation = schedule.createRotation("Days", "Days");
+		rotation.addSegment(day, 2, 1);
+
+		Team team = schedule.createTeam("A", "Days", rotation, referenceDate);
+
+		LocalDate first = referenceDate.plusDays(3);
+		LocalDate second = referenceDate.plusDays(4);
+		LocalDate third = referenceDate.plusDays(6);
+
+		schedule.setShiftInstanceCacheSize(2);
+		assertTrue(schedule.getShiftInstanceCacheSize() == 2);
+
+		List<ShiftInstance> instances = schedule.getShiftInstancesForDay(first);
+		assertTrue(schedule.getShiftInstancesForDay(first) == instances);
+		assertTrue(schedule.getShiftInstanceCacheHits() == 1);
+		assertTrue(schedule.getShiftInstanceCacheMisses() == 1);
+
+		try {
+			instances.clear();
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		// the least recently used date is evicted
+		schedule.getShiftInstancesForDay(second);
+		schedule.getShiftInstancesForDay(first);
+		schedule.getShiftInstancesForDay(third);
+		assertTrue(schedule.getShiftInstancesForDay(first) == instances);
+		schedule.getShiftInstancesForDay(second);
+		assertTrue(schedule.getShiftInstanceCacheMisses() == 4);
+
+		// changes clear the cache
+		team.setRotationStart(referenceDate.plusDays(2));
+		assertTrue(schedule.getShiftInstancesForDay(first).size() == 1);
+		assertTrue(schedule.getShiftInstancesForDay(second).isEmpty());
+
+		rotation.getRotationSegments().get(0).setStartingShift(night);
+		assertTrue(schedule.getShiftInstancesForDay(first).get(0).getShift() == night);
+
+		night.setStart(LocalTime.of(21, 0, 0));
+		assertTrue(schedule.getShiftInstancesForDay(first).get(0).getStartTime()
+				.equals(LocalDateTime.of(first, LocalTime.of(21, 0, 0))));
+
+		NonWorkingPeriod holiday = schedule.createNonWorkingPeriod("Holiday", "Holiday",
+				LocalDateTime.of(first, LocalTime.MIDNIGHT), Duration.ofHours(24));
+		assertTrue(schedule.getShiftInstancesForDay(first).isEmpty());
+
+		holiday.setStartDateTime(LocalDateTime.of(third, LocalTime.MIDNIGHT));
+		assertTrue(schedule.getShiftInstancesForDay(first).size() == 1);
+
+		schedule.createTeam("B", "Days", rotation, referenceDate);
+		assertTrue(schedule.getShiftInstancesForDay(first).size() == 2);
+
+		// changes to another schedule do not clear the cache
+		instances = schedule.getShiftInstancesForDay(first);
+
+		WorkSchedule other = new WorkSchedule("Other", "Other schedule");
+		Shift otherShift = other.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+		Break lunch = otherShift.createBreak("Lunch", "Lunch", LocalTime.of(11, 0, 0), Duration.ofMinutes(30));
+		other.createRotation("Days", "Days").addSegment(otherShift, 1, 1);
+		otherShift.setStart(LocalTime.of(6, 0, 0));
+		lunch.setDuration(Duration.ofMinutes(45));
+		otherShift.setName("Early");
+
+		// nor do changes to periods without a schedule
+		Shift unowned = new Shift();
+		unowned.setStart(LocalTime.of(8, 0, 0));
+		unowned.setDuration(Duration.ofHours(8));
+		unowned.setStart(LocalTime.of(9, 0, 0));
+		unowned.setName("Unowned");
+
+		assertTrue(schedule.getShiftInstancesForDay(first) == instances);
+
+		// disabled
+		schedule.setShiftInstanceCacheSize(0);
+		assertTrue(schedule.getShiftInstancesForDay(first) != schedule.getShiftInstancesForDay(first));
+	}
+
+	@Test
+	public void testHyperperiod() throws Exception {
+		schedule = new WorkSchedule("Hyperperiod", "Test hyperperiod table");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 0, 0), Duration.ofHours(10));
+
+		Rotation three = schedule.createRotation("Three", "Three days");
+		three.addSegment(night, 2, 1);
+
+		Rotation four = schedule.createRotation("Four", "Four days");
+		four.addSegment(day, 1, 1);
+		four.addSegment(night, 1, 1);
+
+		schedule.createTeam("A", "Three", three, referenceDate);
+		schedule.createTeam("B", "Four", four, referenceDate.plusDays(5));
+
+		LocalDate start = referenceDate.plusDays(5);
+		List<List<ShiftInstance>> expected = new ArrayList<>();
+
+		for (int i = 0; i < 30; i++) {
+			expected.add(schedule.getShiftInstancesForDay(start.plusDays(i)));
+		}
+
+		// a hyperperiod of 12 days
+		schedule.setHyperperiodLimit(12);
+		assertTrue(schedule.getHyperperiodLimit() == 12);
+
+		CompiledSchedule compiled = schedule.compile();
+
+		for (int i = 0; i < 30; i++) {
+			LocalDate date = start.plusDays(i);
+			List<ShiftInstance> instances = schedule.getShiftInstancesForDay(date);
+			assertTrue(instances.size() == expected.get(i).size());
+
+			Duration scheduled = Duration.ZERO;
+
+			for (int j = 0; j < instances.size(); j++) {
+				ShiftInstance instance = instances.get(j);
+				assertTrue(instance.getTeam() == expected.get(i).get(j).getTeam());
+				assertTrue(instance.getStartTime().equals(expected.get(i).get(j).getStartTime()));
+				assertTrue(compiled.getShiftInstancesForDay(date).get(j).getTeam() == instance.getTeam());
+				scheduled = scheduled.plus(instance.getShift().getDuration());
+			}
+			assertTrue(schedule.getScheduledTimeForDay(date).equals(scheduled));
+		}
+
+		// holidays are filtered out
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", LocalDateTime.of(start.plusDays(3), LocalTime.MIDNIGHT),
+				Duration.ofHours(24));
+		assertTrue(schedule.getShiftInstancesForDay(start.plusDays(3)).isEmpty());
+		assertTrue(schedule.getScheduledTimeForDay(start.plusDays(3)).isZero());
+
+		// the table is rebuilt when a rotation changes, and the hyperperiod of 15
+		// days is then over the limit
+		four.getRotationSegments().get(1).setDaysOff(2);
+		assertTrue(schedule.getShiftInstancesForDay(start.plusDays(13)).size() == 1);
+		assertTrue(schedule.getScheduledTimeForDay(start.plusDays(13)).equals(Duration.ofHours(10)));
+
+		schedule.setHyperperiodLimit(15);
+		assertTrue(schedule.getShiftInstancesForDay(start.plusDays(10)).size() == 2);
+		assertTrue(schedule.getScheduledTimeForDay(start.plusDays(10)).equals(Duration.ofHours(18)));
+	}
+
+	@Test
+	public void testCoverage() throws Exception {
+		schedule = new WorkSchedule("Coverage", "Test coverage timeline");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 0, 0), Duration.ofHours(10));
+
+		Rotation days = schedule.createRotation("Days", "Days");
+		days.addSegment(day, 1, 0);
+
+		Rotation nights = schedule.createRotation("Nights", "Nights");
+		nights.addSegment(night, 1, 0);
+
+		schedule.createTeam("A", "Days", days, referenceDate);
+		schedule.createTeam("B", "Nights", nights, referenceDate);
+
+		LocalDateTime from = LocalDateTime.of(referenceDate.plusDays(1), LocalTime.MIDNIGHT);
+		LocalDateTime to = from.plusDays(1);
+
+		CoverageTimeline coverage = schedule.getCoverage(from, to);
+		List<CoverageSegment> segments = coverage.getSegments();
+
+		int[] headCounts = { 1, 2, 1, 0, 1 };
+		int[] hours = { 7, 1, 7, 7, 2 };
+		LocalDateTime start = from;
+
+		assertTrue(segments.size() == headCounts.length);
+
+		for (int i = 0; i < segments.size(); i++) {
+			assertTrue(segments.get(i).getHeadCount() == headCounts[i]);
+			assertTrue(segments.get(i).getStart().equals(start));
+			assertTrue(segments.get(i).getDuration().equals(Duration.ofHours(hours[i])));
+			start = segments.get(i).getEnd();
+		}
+		assertTrue(coverage.getStart().equals(from));
+		assertTrue(coverage.getEnd().equals(to));
+
+		assertTrue(coverage.getMinimumHeadCount() == 0);
+		assertTrue(coverage.getMaximumHeadCount() == 2);
+		assertTrue(coverage.getAverageHeadCount() == 0.75d);
+		assertTrue(coverage.getGapTime().equals(Duration.ofHours(7)));
+		assertTrue(coverage.getOverlapTime().equals(Duration.ofHours(1)));
+		assertTrue(coverage.getGaps().get(0).getStart().equals(from.plusHours(15)));
+		assertTrue(coverage.getOverlaps().get(0).getStart().equals(from.plusHours(7)));
+
+		// same as the instances in progress
+		for (int hour = 0; hour < 24; hour++) {
+			LocalDateTime dateTime = from.plusHours(hour).plusMinutes(30);
+			assertTrue(coverage.getHeadCountAt(dateTime) == schedule.getShiftInstancesForTime(dateTime).size());
+		}
+
+		// instances starting in a non-working period are not counted
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", from, Duration.ofHours(24));
+		coverage = schedule.getCoverage(from, to);
+		assertTrue(coverage.getSegments().size() == 2);
+		assertTrue(coverage.getHeadCountAt(from.plusHours(7)) == 1);
+		assertTrue(coverage.getGapTime().equals(Duration.ofHours(16)));
+
+		// empty interval
+		coverage = schedule.getCoverage(from.plusHours(7), from.plusHours(7));
+		assertTrue(coverage.getSegments().size() == 1);
+		assertTrue(coverage.getMaximumHeadCount() == 1);
+		assertTrue(coverage.getGaps().isEmpty());
+	}
+
+	@Test
+	public void testShiftTagger() throws Exception {
+		schedule = new WorkSchedule("Tagger", "Test shift tagger");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 0, 0), Duration.ofHours(10));
+
+		Rotation days = schedule.createRotation("Days", "Days");
+		days.addSegment(day, 1, 0);
+
+		Rotation nights = schedule.createRotation("Nights", "Nights");
+		nights.addSegment(night, 1, 1);
+
+		Team teamA = schedule.createTeam("A", "Days", days, referenceDate);
+		schedule.createTeam("B", "Nights", nights, referenceDate);
+
+		ShiftTagger tagger = schedule.createShiftTagger();
+		LocalDateTime from = LocalDateTime.of(referenceDate.plusDays(1), LocalTime.of(0, 5));
+
+		// same as the last starting instance in progress
+		for (int i = 0; i < 6 * 48; i++) {
+			LocalDateTime dateTime = from.plusMinutes(10 * i);
+			ShiftInstance instance = tagger.tag(dateTime);
+			List<ShiftInstance> expected = schedule.getShiftInstancesForTime(dateTime);
+
+			if (expected.isEmpty()) {
+				assertTrue(instance == null);
+			} else {
+				ShiftInstance last = expected.get(expected.size() - 1);
+				assertTrue(instance.getTeam() == last.getTeam());
+				assertTrue(instance.getStartTime().equals(last.getStartTime()));
+			}
+		}
+
+		// the starting time is included and the ending time is not
+		LocalDateTime handover = LocalDateTime.of(referenceDate.plusDays(3), LocalTime.of(7, 0));
+		tagger = schedule.createShiftTagger();
+		assertTrue(tagger.tag(handover.minusNanos(1000000)).getShift() == night);
+		assertTrue(tagger.tag(handover).getShift() == day);
+		assertTrue(tagger.tag(handover.plusHours(8)) == null);
+
+		// an earlier time stamp moves the cursor back
+		assertTrue(tagger.tag(handover.minusHours(1)).getShift() == night);
+
+		// bulk tagging
+		tagger = schedule.createShiftTagger();
+		long start = handover.toEpochSecond(ZoneOffset.UTC) * 1000;
+		long[] stamps = { start - 3600000, start, start + 1000, start + 6 * 3600000, start + 8 * 3600000 };
+		int[] ids = tagger.tag(stamps);
+
+		assertTrue(ids[0] == 0 && ids[1] == 1 && ids[2] == 1 && ids[3] == 1 && ids[4] == -1);
+		assertTrue(tagger.getInstanceCount() == 2);
+		assertTrue(tagger.getInstance(1).getTeam() == teamA);
+	}
+
+	@Test
+	public void testTimeZone() throws Exception {
+		schedule = new WorkSchedule("Time zone", "Test daylight saving time");
+
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 0, 0), Duration.ofHours(10));
+
+		Rotation nights = schedule.createRotation("Nights", "Nights");
+		nights.addSegment(night, 1, 0);
+
+		schedule.createTeam("A", "Nights", nights, LocalDate.of(2016, 1, 1));
+
+		ZoneId zone = ZoneId.of("America/New_York");
+		assertTrue(schedule.getZoneId().equals(ZoneId.of("Z")));
+
+		// UTC by default
+		ZonedDateTime from = ZonedDateTime.of(LocalDateTime.of(2016, 11, 5, 22, 0), zone);
+		ZonedDateTime to = ZonedDateTime.of(LocalDateTime.of(2016, 11, 6, 8, 0), zone);
+		assertTrue(schedule.calculateWorkingTime(from.toInstant(), to.toInstant())
+				.equals(schedule.calculateWorkingTime(from.withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime(),
+						to.withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime())));
+
+		schedule.setZoneId(zone);
+
+		// an hour more at the end of daylight saving time
+		assertTrue(schedule.calculateWorkingTime(from, to).equals(Duration.ofHours(11)));
+		assertTrue(schedule.calculateWorkingTime(from.plusDays(1), to.plusDays(1)).equals(Duration.ofHours(10)));
+		assertTrue(schedule.calculateWorkingTime(from.minusDays(1), to).equals(Duration.ofHours(21)));
+
+		// an hour less at the start
+		from = ZonedDateTime.of(LocalDateTime.of(2016, 3, 12, 22, 0), zone);
+		to = ZonedDateTime.of(LocalDateTime.of(2016, 3, 13, 8, 0), zone);
+		assertTrue(schedule.calculateWorkingTime(from, to).equals(Duration.ofHours(9)));
+
+		// both instants of the repeated hour are in the same instance
+		ZonedDateTime first = ZonedDateTime.of(LocalDateTime.of(2016, 11, 6, 1, 30), zone).withEarlierOffsetAtOverlap();
+		ZonedDateTime second = first.withLaterOffsetAtOverlap();
+		assertTrue(!first.toInstant().equals(second.toInstant()));
+
+		List<ShiftInstance> instances = schedule.getShiftInstancesForTime(second);
+		assertTrue(instances.size() == 1);
+		assertTrue(instances.get(0).getStartTime().equals(LocalDateTime.of(2016, 11, 5, 22, 0)));
+		assertTrue(schedule.getShiftInstancesForTime(first.toInstant()).get(0).getStartTime()
+				.equals(instances.get(0).getStartTime()));
+
+		// non-working time over the repeated hour
+		schedule.createNonWorkingPeriod("Outage", "Outage", LocalDateTime.of(2016, 11, 6, 0, 0), Duration.ofHours(6));
+		from = ZonedDateTime.of(LocalDateTime.of(2016, 11, 5, 12, 0), zone);
+		to = ZonedDateTime.of(LocalDateTime.of(2016, 11, 6, 12, 0), zone);
+		assertTrue(schedule.calculateNonWorkingTime(from, to).equals(Duration.ofHours(7)));
+		assertTrue(schedule.calculateWorkingTime(from, to).equals(Duration.ofHours(4)));
+	}
+
+	@Test
+	public void testEpochSeconds() throws Exception {
+		schedule = new WorkSchedule("Epoch seconds", "Test primitive API");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 0, 0), Duration.ofHours(10));
+
+		Rotation days = schedule.createRotation("Days", "Days");
+		days.addSegment(day, 1, 0);
+
+		Rotation nights = schedule.createRotation("Nights", "Nights");
+		nights.addSegment(night, 1, 1);
+
+		Team teamA = schedule.createTeam("A", "Days", days, referenceDate);
+		Team teamB = schedule.createTeam("B", "Nights", nights, referenceDate);
+
+		schedule.createNonWorkingPeriod("Holiday", "Holiday",
+				LocalDateTime.of(referenceDate.plusDays(2), LocalTime.of(12, 0)), Duration.ofHours(6));
+
+		LocalDateTime from = LocalDateTime.of(referenceDate, LocalTime.of(0, 5));
+
+		for (int i = 0; i < 4 * 24 * 4; i++) {
+			LocalDateTime dateTime = from.plusMinutes(15 * i);
+			long second = dateTime.toEpochSecond(ZoneOffset.UTC);
+			long fromSecond = from.toEpochSecond(ZoneOffset.UTC);
+
+			assertTrue(schedule.workingSeconds(fromSecond, second) == schedule.calculateWorkingTime(from, dateTime)
+					.getSeconds());
+			assertTrue(teamB.workingSeconds(fromSecond, second) == teamB.calculateWorkingTime(from, dateTime)
+					.getSeconds());
+
+			boolean holiday = dateTime.isAfter(LocalDateTime.of(referenceDate.plusDays(2), LocalTime.of(12, 0)))
+					&& dateTime.isBefore(LocalDateTime.of(referenceDate.plusDays(2), LocalTime.of(18, 0)));
+			boolean working = teamA.isWorking(second) || teamB.isWorking(second);
+			assertTrue(schedule.isWorking(second) == (working && !holiday));
+
+			// the day shift starts later than a night shift in progress
+			int index = teamA.shiftIndexAt(second) >= 0 ? teamA.shiftIndexAt(second) : teamB.shiftIndexAt(second);
+			assertTrue(schedule.shiftIndexAt(second) == (holiday ? -1 : index));
+			assertTrue(schedule.isWorking(second) == (schedule.shiftIndexAt(second) >= 0));
+		}
+
+		// both agree at the boundaries of the non-working period
+		long holidayStart = LocalDateTime.of(referenceDate.plusDays(2), LocalTime.of(12, 0))
+				.toEpochSecond(ZoneOffset.UTC);
+		long holidayEnd = holidayStart + Duration.ofHours(6).getSeconds();
+
+		assertTrue(schedule.isWorking(holidayStart - 1));
+		assertTrue(schedule.shiftIndexAt(holidayStart - 1) == schedule.getShifts().indexOf(day));
+		assertTrue(!schedule.isWorking(holidayStart));
+		assertTrue(schedule.shiftIndexAt(holidayStart) == -1);
+		assertTrue(!schedule.isWorking(holidayEnd - 1));
+		assertTrue(schedule.shiftIndexAt(holidayEnd - 1) == -1);
+
+		// the overlap of the night and day shifts
+		long overlap = LocalDateTime.of(referenceDate.plusDays(1), LocalTime.of(7, 0)).toEpochSecond(ZoneOffset.UTC);
+		assertTrue(schedule.shiftIndexAt(overlap - 1) == schedule.getShifts().indexOf(night));
+		assertTrue(schedule.shiftIndexAt(overlap) == schedule.getShifts().indexOf(day));
+
+		// the indexes follow changes to the list of shifts
+		Shift spare = schedule.createShift("Spare", "Spare shift", LocalTime.of(6, 0, 0), Duration.ofHours(1));
+		schedule.getShifts().remove(spare);
+		schedule.getShifts().add(0, spare);
+		assertTrue(schedule.shiftIndexAt(overlap) == 1);
+		assertTrue(teamB.shiftIndexAt(overlap) == 2);
+		schedule.deleteShift(spare);
+		assertTrue(schedule.shiftIndexAt(overlap) == 0);
+
+		// teams ignore the non-working periods
+		long noon = LocalDateTime.of(referenceDate.plusDays(2), LocalTime.of(13, 0)).toEpochSecond(ZoneOffset.UTC);
+		assertTrue(!schedule.isWorking(noon));
+		assertTrue(teamA.isWorking(noon));
+		assertTrue(teamA.shiftIndexAt(noon) == schedule.getShifts().indexOf(day));
+		assertTrue(teamB.shiftIndexAt(noon) == -1);
+
+		// the ending second is not included
+		long end = LocalDateTime.of(referenceDate.plusDays(1), LocalTime.of(8, 0)).toEpochSecond(ZoneOffset.UTC);
+		assertTrue(teamB.isWorking(end - 1) && !teamB.isWorking(end));
+		assertTrue(teamB.shiftIndexAt(end - 1) == schedule.getShifts().indexOf(night));
+		assertTrue(teamB.shiftIndexAt(end) == -1);
+
+		// a fraction of a second is rounded the same way for working and
+		// non-working time
+		LocalDateTime almost = LocalDateTime.of(referenceDate.plusDays(2), LocalTime.of(11, 59, 59, 900_000_000));
+		LocalDateTime after = almost.plusHours(1);
+		CompiledSchedule compiled = schedule.compile();
+
+		assertTrue(schedule.calculateNonWorkingTime(almost, after).equals(Duration.ofSeconds(3600)));
+		assertTrue(compiled.calculateNonWorkingTime(almost, after).equals(Duration.ofSeconds(3600)));
+		assertTrue(schedule.calculateWorkingTime(almost, after).equals(Duration.ZERO));
+		assertTrue(compiled.calculateWorkingTime(almost, after).equals(Duration.ZERO));
+
+		try {
+			schedule.workingSeconds(end, end - 1);
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testParallelMode() throws Exception {
+		schedule = new WorkSchedule("Parallel", "Test parallel evaluation");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(12));
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(19, 0, 0), Duration.ofHours(12));
+
+		Rotation rotation = schedule.createRotation("4x4", "4 on, 4 off");
+		rotation.addSegment(day, 4, 4);
+		rotation.addSegment(night, 4, 4);
+
+		for (int i = 0; i < 8; i++) {
+			schedule.createTeam("Team" + i, "Team " + i, rotation, referenceDate.minusDays(2 * i));
+		}
+
+		for (int i = 0; i < 12; i++) {
+			schedule.createNonWorkingPeriod("Holiday" + i, "Holiday",
+					LocalDateTime.of(referenceDate.plusDays(30 * i + 5), LocalTime.of(6, 0)), Duration.ofHours(30));
+		}
+
+		LocalDateTime from = LocalDateTime.of(referenceDate, LocalTime.of(3, 0));
+		LocalDateTime to = from.plusDays(365).plusHours(5);
+		Duration bucket = Duration.ofDays(1);
+
+		Duration working = schedule.calculateWorkingTime(from, to);
+		long[] buckets = schedule.calculateWorkingTimeBuckets(from, to, bucket);
+		Map<Team, long[]> byTeam = schedule.calculateWorkingTimeBucketsByTeam(from, to, bucket);
+		Map<Shift, long[]> byShift = schedule.calculateWorkingTimeBucketsByShift(from, to, bucket);
+		List<ShiftInstance> instances = schedule.getShiftInstances(referenceDate, referenceDate.plusDays(60));
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		try {
+			// split into parts as small as possible
+			schedule.setParallelMode(pool, 1);
+			assertTrue(schedule.getForkJoinPool() == pool);
+			assertTrue(schedule.getParallelThreshold() == 1);
+
+			assertTrue(schedule.calculateWorkingTime(from, to).equals(working));
+			assertTrue(Arrays.equals(schedule.calculateWorkingTimeBuckets(from, to, bucket), buckets));
+
+			Map<Team, long[]> parallelByTeam = schedule.calculateWorkingTimeBucketsByTeam(from, to, bucket);
+			assertTrue(new ArrayList<>(parallelByTeam.keySet()).equals(new ArrayList<>(byTeam.keySet())));
+
+			for (Team team : schedule.getTeams()) {
+				assertTrue(Arrays.equals(parallelByTeam.get(team), byTeam.get(team)));
+			}
+
+			Map<Shift, long[]> parallelByShift = schedule.calculateWorkingTimeBucketsByShift(from, to, bucket);
+			assertTrue(Arrays.equals(parallelByShift.get(day), byShift.get(day)));
+			assertTrue(Arrays.equals(parallelByShift.get(night), byShift.get(night)));
+
+			List<ShiftInstance> parallelInstances = schedule.getShiftInstances(referenceDate,
+					referenceDate.plusDays(60));
+			assertTrue(parallelInstances.size() == instances.size());
+
+			for (int i = 0; i < instances.size(); i++) {
+				assertTrue(parallelInstances.get(i).getTeam() == instances.get(i).getTeam());
+				assertTrue(parallelInstances.get(i).getStartTime().equals(instances.get(i).getStartTime()));
+			}
+
+			// exceptions are passed to the caller
+			try {
+				schedule.getShiftInstances(referenceDate.minusDays(20), referenceDate);
+				fail();
+			} catch (Exception e) {
+				// expected
+			}
+
+			// small queries are evaluated in the calling thread
+			schedule.setParallelMode(pool, 1000000);
+			assertTrue(schedule.calculateWorkingTime(from, to).equals(working));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testNetWorkingTime() throws Exception {
+		schedule = new WorkSchedule("Net working time", "Test breaks");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+		day.createBreak("Lunch", "Lunch", LocalTime.of(12, 0, 0), Duration.ofHours(1));
+		day.createBreak("Coffee", "Coffee", LocalTime.of(9, 0, 0), Duration.ofMinutes(15));
+
+		// overlapping breaks after midnight, and one past the end of the shift
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 0, 0), Duration.ofHours(10));
+		night.createBreak("Meal", "Meal", LocalTime.of(2, 0, 0), Duration.ofMinutes(30));
+		night.createBreak("Rest", "Rest", LocalTime.of(2, 15, 0), Duration.ofMinutes(30));
+		night.createBreak("Late", "Late", LocalTime.of(7, 45, 0), Duration.ofMinutes(30));
+
+		Rotation days = schedule.createRotation("Days", "Days");
+		days.addSegment(day, 2, 1);
+
+		Rotation nights = schedule.createRotation("Nights", "Nights");
+		nights.addSegment(night, 1, 1);
+
+		Team teamA = schedule.createTeam("A", "Days", days, referenceDate);
+		Team teamB = schedule.createTeam("B", "Nights", nights, referenceDate);
+
+		LocalDateTime from = LocalDateTime.of(referenceDate, LocalTime.of(0, 5));
+		long expected = 0;
+		long expectedB = 0;
+
+		for (int i = 0; i < 6 * 24 * 60; i++) {
+			LocalDateTime dateTime = from.plusMinutes(i);
+
+			assertTrue(schedule.calculateNetWorkingTime(from, dateTime).getSeconds() == expected);
+			assertTrue(teamB.calculateNetWorkingTime(from, dateTime).getSeconds() == expectedB);
+
+			List<BreakInstance> breaks = schedule.getBreakInstancesForTime(dateTime);
+			assertTrue(schedule.isOnBreak(dateTime) == !breaks.isEmpty());
+
+			boolean breakA = false;
+			boolean breakB = false;
+
+			for (BreakInstance instance : breaks) {
+				assertFalse(dateTime.isBefore(instance.getStartTime()));
+				assertTrue(dateTime.isBefore(instance.getEndTime()));
+				assertFalse(instance.getEndTime().isAfter(instance.getShiftInstance().getEndTime()));
+
+				breakA |= instance.getTeam().equals(teamA);
+				breakB |= instance.getTeam().equals(teamB);
+			}
+
+			long second = dateTime.toEpochSecond(ZoneOffset.UTC);
+
+			if (teamA.isWorking(second) && !breakA) {
+				expected += 60;
+			}
+
+			if (teamB.isWorking(second) && !breakB) {
+				expected += 60;
+				expectedB += 60;
+			}
+		}
+
+		// the meal and rest breaks overlap and the late break is cut short
+		LocalDateTime midnight = LocalDateTime.of(referenceDate.plusDays(1), LocalTime.MIDNIGHT);
+		assertTrue(teamB.calculateNetWorkingTime(midnight.minusDays(1), midnight.plusDays(1))
+				.equals(Duration.ofHours(10).minusMinutes(45 + 15)));
+
+		List<BreakInstance> breaks = schedule.getBreakInstancesForTime(midnight.plusHours(2).plusMinutes(20));
+		assertTrue(breaks.size() == 1);
+		assertTrue(breaks.get(0).getBreak().getName().equals("Rest"));
+
+		List<ShiftInstance> instances = schedule.getShiftInstancesForDay(referenceDate);
+		assertTrue(instances.get(0).getBreakInstances().size() == 2);
+		assertTrue(instances.get(0).getBreakInstances().get(0).getBreak().getName().equals("Coffee"));
+
+		// a holiday removes part of the day shift and its lunch
+		LocalDateTime start = LocalDateTime.of(referenceDate, LocalTime.MIDNIGHT);
+		LocalDateTime end = start.plusDays(1);
+		Duration net = schedule.calculateNetWorkingTime(start, end);
+
+		schedule.createNonWorkingPeriod("Holiday", "Holiday", LocalDateTime.of(referenceDate, LocalTime.of(12, 0)),
+				Duration.ofHours(6));
+		assertTrue(schedule.calculateNetWorkingTime(start, end).equals(net.minusHours(2)));
+
+		// removing a break is seen by the next calculation
+		day.removeBreak(day.getBreak("Coffee"));
+		assertTrue(schedule.calculateNetWorkingTime(start, end).equals(net.minusHours(2).plusMinutes(15)));
+	}
+
+	@Test
+	public void testNonWorkingRules() throws Exception {
+		schedule = new WorkSchedule("Non-working rules", "Test recurring non-working periods");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+
+		Rotation rotation = schedule.createRotation("Days", "Days");
+		rotation.addSegment(day, 1, 0);
+
+		schedule.createTeam("A", "Every day", rotation, LocalDate.of(2020, 1, 1));
+
+		NonWorkingRule newYear = schedule.createFixedDateRule("New Year", "New Year's Day", MonthDay.of(1, 1),
+				LocalTime.MIDNIGHT, Duration.ofHours(24));
+		schedule.createWeekdayOfMonthRule("Thanksgiving", "Fourth Thursday in November", Month.NOVEMBER,
+				DayOfWeek.THURSDAY, 4, LocalTime.MIDNIGHT, Duration.ofHours(24));
+		schedule.createWeekdayOfMonthRule("Memorial Day", "Last Monday in May", Month.MAY, DayOfWeek.MONDAY, -1,
+				LocalTime.MIDNIGHT, Duration.ofHours(24));
+		schedule.createEasterRule("Good Friday", "Good Friday", -2, LocalTime.MIDNIGHT, Duration.ofHours(24));
+		schedule.createWeeklyRule("Maintenance", "Weekly maintenance", DayOfWeek.SUNDAY, LocalTime.of(9, 0),
+				Duration.ofHours(2));
+
+		// a fixed date is kept as its month and day of month
+		assertTrue(newYear.getMonthDay().equals(MonthDay.of(1, 1)));
+		assertTrue(newYear.getMonth() == Month.JANUARY);
+
+		try {
+			schedule.createWeeklyRule("Maintenance", "Duplicate", DayOfWeek.MONDAY, LocalTime.of(9, 0),
+					Duration.ofHours(2));
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+
+		try {
+			schedule.createWeekdayOfMonthRule("Bad", "Bad", Month.MAY, DayOfWeek.MONDAY, 6, LocalTime.MIDNIGHT,
+					Duration.ofHours(24));
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+
+		// an Easter rule can move a date up to a year away
+		WorkSchedule easter = new WorkSchedule("Easter", "Easter offsets");
+		NonWorkingRule yearAfter = easter.createEasterRule("Year after", "Year after Easter", 365,
+				LocalTime.MIDNIGHT, Duration.ofHours(24));
+		assertTrue(yearAfter.getPeriods(2017).size() == 1);
+		assertTrue(yearAfter.getPeriods(2017).get(0).getStartDateTime().equals(LocalDateTime.of(2017, 3, 27, 0, 0)));
+
+		try {
+			easter.createEasterRule("Too far", "Too far", -366, LocalTime.MIDNIGHT, Duration.ofHours(24));
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+
+		// the rules are expanded for the years of a query and kept
+		List<NonWorkingPeriod> periods = newYear.getPeriods(2030);
+		assertTrue(periods.size() == 1);
+		assertTrue(periods.get(0).getStartDateTime().equals(LocalDateTime.of(2030, 1, 1, 0, 0)));
+		assertTrue(newYear.getPeriods(2030) == periods);
+
+		List<NonWorkingPeriod> holidays = schedule.getNonWorkingPeriods(LocalDate.of(2024, 1, 1),
+				LocalDate.of(2024, 12, 31));
+		assertTrue(holidays.size() == 4 + 52);
+
+		List<LocalDate> dates = new ArrayList<>();
+
+		for (NonWorkingPeriod period : holidays) {
+			if (!period.getName().equals("Maintenance")) {
+				dates.add(period.getStartDateTime().toLocalDate());
+			}
+		}
+		assertTrue(dates.equals(Arrays.asList(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 29),
+				LocalDate.of(2024, 5, 27), LocalDate.of(2024, 11, 28))));
+
+		// Easter in other years
+		assertTrue(schedule.getNonWorkingPeriods(LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 30)).stream()
+				.anyMatch(p -> p.getStartDateTime().toLocalDate().equals(LocalDate.of(2025, 4, 18))));
+		assertTrue(schedule.getNonWorkingPeriods(LocalDate.of(2038, 4, 1), LocalDate.of(2038, 4, 30)).stream()
+				.anyMatch(p -> p.getStartDateTime().toLocalDate().equals(LocalDate.of(2038, 4, 23))));
+
+		// no shift on a holiday
+		assertTrue(schedule.getShiftInstancesForDay(LocalDate.of(2024, 11, 28)).isEmpty());
+		assertTrue(schedule.getShiftInstancesForDay(LocalDate.of(2024, 11, 27)).size() == 1);
+		assertTrue(schedule.getShiftInstancesForDay(LocalDate.of(2099, 1, 1)).isEmpty());
+
+		// a week with a holiday and a maintenance window during the shift
+		LocalDateTime from = LocalDateTime.of(2024, 11, 25, 0, 0);
+		LocalDateTime to = from.plusDays(7);
+		assertTrue(schedule.calculateWorkingTime(from, to).equals(Duration.ofHours(6 * 8 - 2)));
+		assertTrue(schedule.calculateNonWorkingTime(from, to).equals(Duration.ofHours(24 + 2)));
+
+		// the same results as explicit non-working periods
+		WorkSchedule explicit = new WorkSchedule("Explicit", "Explicit non-working periods");
+		Shift explicitDay = explicit.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+		Rotation explicitRotation = explicit.createRotation("Days", "Days");
+		explicitRotation.addSegment(explicitDay, 1, 0);
+		explicit.createTeam("A", "Every day", explicitRotation, LocalDate.of(2020, 1, 1));
+
+		int i = 0;
+		for (NonWorkingPeriod period : schedule.getNonWorkingPeriods(LocalDate.of(2022, 1, 1),
+				LocalDate.of(2027, 12, 31))) {
+			explicit.createNonWorkingPeriod("Period " + i++, period.getDescription(), period.getStartDateTime(),
+					period.getDuration());
+		}
+
+		from = LocalDateTime.of(2023, 1, 1, 0, 0);
+		to = LocalDateTime.of(2026, 1, 1, 0, 0);
+		assertTrue(schedule.calculateWorkingTime(from, to).equals(explicit.calculateWorkingTime(from, to)));
+		assertTrue(schedule.addWorkingTime(from, Duration.ofHours(5000))
+				.equals(explicit.addWorkingTime(from, Duration.ofHours(5000))));
+
+		// adding working time beyond the expanded years sees the later holidays
+		LocalDateTime end = schedule.addWorkingTime(LocalDateTime.of(2050, 1, 1, 0, 0), Duration.ofHours(8 * 2000));
+		assertTrue(schedule.calculateWorkingTime(LocalDateTime.of(2050, 1, 1, 0, 0), end)
+				.equals(Duration.ofHours(8 * 2000)));
+
+		// deleting a rule removes its periods
+		schedule.deleteNonWorkingRule(schedule.getNonWorkingRule("Maintenance"));
+		assertTrue(schedule.getNonWorkingRules().size() == 4);
+		assertTrue(schedule.calculateNonWorkingTime(LocalDateTime.of(2024, 11, 25, 0, 0),
+				LocalDateTime.of(2024, 12, 2, 0, 0)).equals(Duration.ofHours(24)));
+	}
+
+	@Test
+	public void testTransitionSpans() throws Exception {
+		schedule = new WorkSchedule("Transition spans", "Test transitions across non-working spans");
+
+		// a break past the end of the shift
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 0, 0), Duration.ofHours(10));
+		night.createBreak("Late", "Late", LocalTime.of(7, 45, 0), Duration.ofMinutes(30));
+
+		Rotation nights = schedule.createRotation("Nights", "Nights");
+		nights.addSegment(night, 1, 1);
+		Team team = schedule.createTeam("B", "Nights", nights, referenceDate);
+
+		// the break ends with the shift, as its break instance does
+		ShiftInstance instance = schedule.getShiftInstancesForDay(referenceDate).get(0);
+		BreakInstance lateBreak = instance.getBreakInstances().get(0);
+		assertTrue(lateBreak.getEndTime().equals(instance.getEndTime()));
+
+		ShiftTransition transition = team.streamTransitions(lateBreak.getStartTime())
+				.filter(candidate -> candidate.getType() == TransitionType.BREAK_END).findFirst().get();
+		assertTrue(transition.getTime().equals(lateBreak.getEndTime()));
+		assertTrue(team.nextTransition(lateBreak.getStartTime()).getTime().equals(lateBreak.getEndTime()));
+
+		transition = team.previousTransition(instance.getEndTime().plusMinutes(1));
+		assertTrue(transition.getTime().equals(instance.getEndTime()));
+
+		// years of consecutive non-working periods are skipped together
+		LocalDate spanStart = referenceDate.plusDays(10);
+		LocalDate spanEnd = spanStart;
+
+		for (int i = 0; i < 1000; i++) {
+			schedule.createNonWorkingPeriod("Closed" + i, "Closed", LocalDateTime.of(spanEnd, LocalTime.MIDNIGHT),
+					Duration.ofHours(12));
+			spanEnd = spanEnd.plusDays(1);
+		}
+
+		// the next transition in the span is the start of the next period
+		transition = schedule.nextTransition(LocalDateTime.of(spanStart.plusDays(500), LocalTime.of(13, 0)));
+		assertTrue(transition.getType() == TransitionType.NON_WORKING_START);
+		assertTrue(transition.getTime().equals(LocalDateTime.of(spanStart.plusDays(501), LocalTime.MIDNIGHT)));
+
+		// the first instance after the span starts on the day after it
+		transition = schedule.nextTransition(LocalDateTime.of(spanEnd, LocalTime.MIDNIGHT));
+		assertTrue(transition.getType() == TransitionType.SHIFT_START);
+		assertTrue(transition.getTime().equals(LocalDateTime.of(spanEnd, LocalTime.of(22, 0))));
+
+		transition = team.nextTransition(LocalDateTime.of(spanEnd, LocalTime.MIDNIGHT));
+		assertTrue(transition.getTime().equals(LocalDateTime.of(spanEnd, LocalTime.of(22, 0))));
+
+		// and the last one before the span ends on its first day
+		transition = schedule.previousTransition(LocalDateTime.of(spanEnd, LocalTime.MIDNIGHT).minusHours(1));
+		assertTrue(transition.getType() == TransitionType.NON_WORKING_END);
+
+		transition = schedule.previousTransition(LocalDateTime.of(spanStart, LocalTime.MIDNIGHT));
+		assertTrue(transition.getTime().equals(LocalDateTime.of(spanStart.minusDays(1), LocalTime.of(8, 0))));
+	}
+
+	@Test
+	public void testNonWorkingRuleSnapshots() throws Exception {
+		schedule = new WorkSchedule("Rule snapshots", "Test non-working rules in snapshots");
+
+		Shift day = schedule.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+
+		Rotation rotation = schedule.createRotation("Days", "Days");
+		rotation.addSegment(day, 1, 0);
+
+		Team team = schedule.createTeam("A", "Every day", rotation, LocalDate.of(2020, 1, 1));
+
+		schedule.createWeekdayOfMonthRule("Thanksgiving", "Fourth Thursday in November", Month.NOVEMBER,
+				DayOfWeek.THURSDAY, 4, LocalTime.MIDNIGHT, Duration.ofHours(24));
+
+		// only the years around 2024 have been queried
+		LocalDate thanksgiving = LocalDate.of(2024, 11, 28);
+		assertTrue(schedule.getShiftInstancesForDay(thanksgiving).isEmpty());
+
+		CompiledSchedule compiled = schedule.compile();
+		ShiftTagger tagger = schedule.createShiftTagger();
+		WorkingTimeBitmap bitmap = team.createWorkingBitmap(Duration.ofMinutes(1));
+
+		// a holiday in a year that was never queried
+		LocalDate holiday = LocalDate.of(2077, 11, 25);
+		LocalDateTime noon = LocalDateTime.of(holiday, LocalTime.NOON);
+
+		assertTrue(compiled.getShiftInstancesForDay(holiday).isEmpty());
+		assertTrue(compiled.getShiftInstancesForDay(holiday.minusDays(1)).size() == 1);
+		assertTrue(compiled.getShiftInstancesForTime(noon).isEmpty());
+		assertTrue(compiled.calculateNonWorkingTime(noon.minusDays(1), noon.plusDays(1)).equals(Duration.ofHours(24)));
+		assertTrue(compiled.calculateWorkingTime(noon.minusDays(1), noon.plusDays(1)).equals(Duration.ofHours(5 + 3)));
+
+		// a period ending at midnight includes the date that it ends on
+		assertTrue(tagger.tag(noon) == null);
+		assertTrue(tagger.tag(noon.plusDays(2)) != null);
+
+		assertFalse(bitmap.isWorking(noon));
+		assertTrue(bitmap.isWorking(noon.plusDays(1)));
+
+		// the same results in the other order of queries
+		WorkSchedule other = new WorkSchedule("Other", "Other order");
+		Shift otherDay = other.createShift("Day", "Day shift", LocalTime.of(7, 0, 0), Duration.ofHours(8));
+		Rotation otherRotation = other.createRotation("Days", "Days");
+		otherRotation.addSegment(otherDay, 1, 0);
+		other.createTeam("A", "Every day", otherRotation, LocalDate.of(2020, 1, 1));
+		other.createWeekdayOfMonthRule("Thanksgiving", "Fourth Thursday in November", Month.NOVEMBER,
+				DayOfWeek.THURSDAY, 4, LocalTime.MIDNIGHT, Duration.ofHours(24));
+
+		CompiledSchedule otherCompiled = other.compile();
+		assertTrue(otherCompiled.getShiftInstancesForDay(holiday).isEmpty());
+		assertTrue(otherCompiled.getShiftInstancesForDay(thanksgiving).isEmpty());
+
+		// a stream of transitions reaches holidays years after its start
+		LocalDateTime start = LocalDateTime.of(2074, 1, 1, 0, 0);
+		List<ShiftTransition> starts = schedule.streamTransitions(start)
+				.filter(transition -> transition.getType() == TransitionType.NON_WORKING_START).limit(4)
+				.collect(Collectors.toList());
+		assertTrue(starts.size() == 4);
+		assertTrue(starts.get(3).getTime().equals(holiday.atStartOfDay()));
+
+		// rules that leave no working time
+		for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+			other.createWeeklyRule(dayOfWeek.toString(), "Closed", dayOfWeek, LocalTime.MIDNIGHT, Duration.ofHours(24));
+		}
+
+		try {
+			other.addWorkingTime(start, Duration.ofHours(1));
+			fail();
+		} catch (Exception e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testNonWorkingInstanceAndTimeRules() throws Exception {
+		schedule = new WorkSchedule("Night holiday", "Test the non-working rules of instances and time");
+
+		Shift night = schedule.createShift("Night", "Night shift", LocalTime.of(22, 0, 0), Duration.ofHours(8));
+
+		Rotation rotation = schedule.createRotation("Nights", "Nights");
+		rotation.addSegment(night, 1, 0);
+
+		schedule.createTeam("A", "Every night", rotation, referenceDate);
+
+		LocalDate christmas = LocalDate.of(2016, 12, 25);
+		schedule.createNonWorkingPeriod("CHRISTMAS", "Christmas day", christmas.atStartOfDay(), Duration.ofHours(24));
+
+		LocalDateTime duringHoliday = LocalDateTime.of(christmas, LocalTime.of(2, 0));
+		LocalDateTime afterHoliday = duringHoliday.plusDays(1);
+
+		// the instance starting on the holiday is left out as a whole
+		assertTrue(schedule.getShiftInstancesForDay(christmas).isEmpty());
+		assertTrue(schedule.getShiftInstancesForTime(afterHoliday).isEmpty());
+		assertTrue(schedule.createShiftTagger().tag(afterHoliday) == null);
+
+		// and the instance starting the day before is kept whole
+		assertTrue(schedule.getShiftInstancesForDay(christmas.minusDays(1)).size() == 1);
+		assertTrue(schedule.getShiftInstancesForTime(duringHoliday).size() == 1);
+
+		// the working time is removed by the second instead
+		long duringSecond = duringHoliday.toEpochSecond(ZoneOffset.UTC);
+		long afterSecond = afterHoliday.toEpochSecond(ZoneOffset.UTC);
+
+		assertFalse(schedule.isWorking(duringSecond));
+		assertTrue(schedule.shiftIndexAt(duringSecond) == -1);
+		assertTrue(schedule.isWorking(afterSecond));
+		assertTrue(schedule.shiftIndexAt(afterSecond) == 0);
+
+		LocalDateTime midnight = christmas.atStartOfDay();
+		assertTrue(schedule.calculateWorkingTime(midnight, midnight.plusHours(6)).isZero());
+		assertTrue(schedule.calculateWorkingTime(midnight.plusDays(1), midnight.plusDays(1).plusHours(6))
+				.equals(Duration.ofHours(6)));
+		assertTrue(schedule.compile().calculateWorkingTime(midnight.plusDays(1), midnight.plusDays(1).plusHours(6))
+				.equals(Duration.ofHours(6)));
+	}
 }
+